@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.After;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.At;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.Before;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.Peek;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.Pop;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.PushTo;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+
+/**
+ * Annotated configuration equivalent to {@link CorpusModule} without additional patterns.
+ */
+public class AnnotatedCorpusConfig {
+    @Before(Corpus.RECORD_PATH)
+    public Record startRecord(ElementContext context) {
+        return new Record(context.attribute("id").or(""));
+    }
+
+    @At(Corpus.VALUE_PATH)
+    public void addValue(@Peek Record record, CharSequence body) {
+        record.addValue(body);
+    }
+
+    @After(Corpus.RECORD_PATH)
+    @PushTo(Corpus.RECORDS_STACK)
+    public Record finishRecord(@Pop Record record) {
+        return record;
+    }
+}
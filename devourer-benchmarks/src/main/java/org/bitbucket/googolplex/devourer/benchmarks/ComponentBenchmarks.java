@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the component microbenchmarks with the GC profiler, which reports allocation rate and bytes allocated
+ * per operation next to the timings. The arguments are regular JMH options:
+ * <pre>
+ *     java -cp target/benchmarks.jar org.bitbucket.googolplex.devourer.benchmarks.ComponentBenchmarks
+ * </pre>
+ * The same can be done for any benchmark by passing {@code -prof gc} to {@code java -jar target/benchmarks.jar}.
+ */
+public class ComponentBenchmarks {
+    private static final Class<?>[] BENCHMARKS = {
+        PathPatternBenchmark.class,
+        ExactPathBenchmark.class,
+        QualifiedNamesBenchmark.class,
+        ElementContextBenchmark.class,
+        StacksBenchmark.class,
+        ReflectedActionBenchmark.class
+    };
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class);
+        for (Class<?> benchmark : BENCHMARKS) {
+            builder.include(benchmark.getName() + "\\.");
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Generates synthetic XML documents for the benchmarks, so no external data is needed. A document consists of
+ * a flat sequence of records:
+ * <pre>
+ *     &lt;corpus&gt;
+ *         &lt;record id="0" a0="..." a1="..."&gt;
+ *             &lt;level&gt;&lt;level&gt;...
+ *                 &lt;value a0="..."&gt;text&lt;/value&gt;
+ *                 &lt;note&gt;text&lt;/note&gt;
+ *             ...&lt;/level&gt;&lt;/level&gt;
+ *         &lt;/record&gt;
+ *         ...
+ *     &lt;/corpus&gt;
+ * </pre>
+ * Benchmark configurations map the records and their values, while notes are left unmapped.
+ */
+public final class Corpus {
+    public static final String RECORD_PATH = "/corpus/record";
+    public static final String VALUE_PATH = "/corpus/record/**/value";
+    public static final String RECORDS_STACK = "records";
+
+    private Corpus() {
+    }
+
+    /**
+     * Creates a UTF-8 encoded document.
+     *
+     * @param records number of records
+     * @param depth number of {@code level} elements between a record and its value
+     * @param attributes number of attributes of each record and value element
+     * @param textLength length of the text of each value and note element
+     * @return document bytes
+     */
+    public static byte[] generate(int records, int depth, int attributes, int textLength) {
+        String text = text(textLength);
+        StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<corpus>\n");
+        for (int i = 0; i < records; ++i) {
+            builder.append("  <record id=\"").append(i).append('"');
+            appendAttributes(builder, attributes, i);
+            builder.append('>');
+            for (int j = 0; j < depth; ++j) {
+                builder.append("<level>");
+            }
+            builder.append("<value");
+            appendAttributes(builder, attributes, i);
+            builder.append('>').append(text).append("</value><note>").append(text).append("</note>");
+            for (int j = 0; j < depth; ++j) {
+                builder.append("</level>");
+            }
+            builder.append("</record>\n");
+        }
+        builder.append("</corpus>\n");
+        return builder.toString().getBytes(Charsets.UTF_8);
+    }
+
+    /**
+     * Creates patterns which never match the generated documents but still have to be considered by pattern
+     * groups: literal paths which diverge at different depths, single and global wildcards.
+     *
+     * @param count number of patterns
+     * @return list of distinct patterns
+     */
+    public static List<String> extraPatterns(int count) {
+        ImmutableList.Builder<String> patterns = ImmutableList.builder();
+        for (int i = 0; i < count; ++i) {
+            switch (i % 4) {
+                case 0:
+                    patterns.add("/corpus/other" + i + "/value");
+                    break;
+                case 1:
+                    patterns.add("/corpus/record/level/missing" + i);
+                    break;
+                case 2:
+                    patterns.add("/corpus/*/extra" + i);
+                    break;
+                default:
+                    patterns.add("/corpus/record/**/missing" + i);
+                    break;
+            }
+        }
+        return patterns.build();
+    }
+
+    private static void appendAttributes(StringBuilder builder, int attributes, int record) {
+        for (int k = 0; k < attributes; ++k) {
+            builder.append(" a").append(k).append("=\"value-").append(record).append('-').append(k).append('"');
+        }
+    }
+
+    private static String text(int length) {
+        String unit = "lorem ipsum dolor sit amet ";
+        return Strings.repeat(unit, length / unit.length() + 1).substring(0, length);
+    }
+}
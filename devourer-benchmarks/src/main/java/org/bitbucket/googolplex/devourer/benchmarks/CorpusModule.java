@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
+import org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+/**
+ * Modular configuration for {@link Corpus} documents: builds a {@link Record} for each record and pushes it
+ * to the {@link Corpus#RECORDS_STACK} stack. Additional patterns which never match can be added to measure
+ * the cost of larger mappings.
+ */
+public class CorpusModule extends AbstractMappingModule {
+    private static final ActionBefore NOTHING = new ActionBefore() {
+        @Override
+        public void act(Stacks stacks, ElementContext context) {
+        }
+    };
+
+    private final int extraPatterns;
+
+    /**
+     * @param extraPatterns number of additional patterns, see {@link Corpus#extraPatterns(int)}
+     */
+    public CorpusModule(int extraPatterns) {
+        this.extraPatterns = extraPatterns;
+    }
+
+    @Override
+    protected void configure() {
+        on(Corpus.RECORD_PATH)
+            .doBefore(new ActionBefore() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    stacks.push(new Record(context.attribute("id").or("")));
+                }
+            })
+            .doAfter(new ActionAfter() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    Record record = stacks.pop();
+                    stacks.get(Corpus.RECORDS_STACK).push(record);
+                }
+            });
+
+        on(Corpus.VALUE_PATH)
+            .doAtChars(new ActionAtChars() {
+                @Override
+                public void act(Stacks stacks, ElementContext context, CharSequence body) {
+                    Record record = stacks.peek();
+                    record.addValue(body);
+                }
+            });
+
+        for (String pattern : Corpus.extraPatterns(extraPatterns)) {
+            on(pattern).doBefore(NOTHING);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.contexts.DefaultElementContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creation of an element context with {@link DefaultElementContext.Builder}, including filling
+ * the builder, for elements with different numbers of attributes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ElementContextBenchmark {
+    private static final javax.xml.namespace.NamespaceContext REAL_CONTEXT =
+        new javax.xml.namespace.NamespaceContext() {
+            @Override
+            public String getNamespaceURI(String prefix) {
+                return null;
+            }
+
+            @Override
+            public String getPrefix(String namespaceURI) {
+                return null;
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(String namespaceURI) {
+                return Collections.<String>emptyList().iterator();
+            }
+        };
+
+    @Param({"0", "4", "16"})
+    public int attributes;
+
+    private final NamespaceContext customContext = NamespaceContext.empty();
+    private final QualifiedName name = QualifiedNames.localOnly("element");
+    private QualifiedName[] attributeNames;
+    private String[] attributeValues;
+
+    @Setup
+    public void setUp() {
+        attributeNames = new QualifiedName[attributes];
+        attributeValues = new String[attributes];
+        for (int i = 0; i < attributes; ++i) {
+            attributeNames[i] = QualifiedNames.localOnly("a" + i);
+            attributeValues[i] = "value-" + i;
+        }
+    }
+
+    @Benchmark
+    public DefaultElementContext build() {
+        DefaultElementContext.Builder builder = new DefaultElementContext.Builder()
+            .setName(name)
+            .setRealNamespaceContext(REAL_CONTEXT)
+            .setCustomNamespaceContext(customContext);
+        for (int i = 0; i < attributeNames.length; ++i) {
+            builder.addAttribute(attributeNames[i], attributeValues[i]);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations {@link ExactPath} is used for while walking a document, on a path of depth 8.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExactPathBenchmark {
+    private final QualifiedName name = QualifiedNames.localOnly("child");
+    private final ExactPath path = ExactPath.fromString("/a/b/c/d/e/f/g/h");
+
+    @Benchmark
+    public ExactPath resolve() {
+        return path.resolve(name);
+    }
+
+    @Benchmark
+    public ExactPath moveUp() {
+        return path.moveUp();
+    }
+
+    @Benchmark
+    public int hashCodeOfExistingPath() {
+        return path.hashCode();
+    }
+
+    @Benchmark
+    public int hashCodeOfResolvedPath() {
+        return path.resolve(name).hashCode();
+    }
+}
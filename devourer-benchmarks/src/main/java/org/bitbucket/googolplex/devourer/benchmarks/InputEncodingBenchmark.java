@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.Devourer;
+import org.bitbucket.googolplex.devourer.Devourers;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
+import org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing of byte input decoded by an {@link java.io.InputStreamReader} with parsing of the same bytes
+ * given to the parser directly, which detects the encoding from the XML declaration, e.g.
+ * <pre>
+ *     java -jar target/benchmarks.jar InputEncodingBenchmark -p encoding=UTF-8
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputEncodingBenchmark {
+    private static class LengthModule extends AbstractMappingModule {
+        @Override
+        protected void configure() {
+            on("/data/item/text")
+                .doAtChars(new ActionAtChars() {
+                    @Override
+                    public void act(Stacks stacks, ElementContext context, CharSequence body) {
+                        stacks.push(body.length());
+                    }
+                });
+        }
+    }
+
+    /** Number of items in the document */
+    @Param({"200000"})
+    public int records;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    public String encoding;
+
+    private Devourer devourer;
+    private Charset charset;
+    private byte[] document;
+
+    @Setup
+    public void setUp() {
+        devourer = Devourers.create(new LengthModule());
+        charset = Charset.forName(encoding);
+
+        StringBuilder builder = new StringBuilder()
+            .append("<?xml version=\"1.0\" encoding=\"").append(charset.name()).append("\"?>\n<data>\n");
+        for (int i = 0; i < records; ++i) {
+            builder.append("  <item id=\"").append(i).append("\"><text>Caf\u00e9 cr\u00e8me, na\u00efve fa\u00e7ade ")
+                .append(i).append("</text></item>\n");
+        }
+        builder.append("</data>\n");
+        document = builder.toString().getBytes(charset);
+
+        // Make sure that both paths actually do the work
+        int decoded = decodedByReader().size();
+        int raw = rawBytes().size();
+        if (decoded != records || raw != records) {
+            throw new IllegalStateException("Unexpected number of records: " + decoded + ", " + raw);
+        }
+    }
+
+    @Benchmark
+    public Stacks decodedByReader() {
+        return devourer.parse(new ByteArrayInputStream(document), charset);
+    }
+
+    @Benchmark
+    public Stacks rawBytes() {
+        return devourer.parse(new ByteArrayInputStream(document));
+    }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.Devourer;
+import org.bitbucket.googolplex.devourer.Devourers;
+import org.bitbucket.googolplex.devourer.configuration.DevourerConfig;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroupProvider;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroups;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end-to-end throughput of {@link Devourer#parse(byte[])} in documents per second. The document shape,
+ * the configuration style and the pattern group are parameters; the defaults give a broad matrix, so use
+ * {@code -p name=value} to narrow it down, e.g.
+ * <pre>
+ *     java -jar target/benchmarks.jar ParseBenchmark -p records=10000 -p provider=TRIE
+ * </pre>
+ * A single Devourer is shared by all benchmark threads; use {@code -t} or {@link ScalingBenchmark} to measure
+ * how the throughput scales with the number of threads. Annotated configuration has no additional patterns,
+ * so {@code extraPatterns} does not affect it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    public enum Configuration {
+        MODULAR {
+            @Override
+            Devourer create(PatternGroupProvider provider, int extraPatterns) {
+                return Devourers.create(DevourerConfig.builder().build(), new CorpusModule(extraPatterns), provider);
+            }
+        },
+        ANNOTATED {
+            @Override
+            Devourer create(PatternGroupProvider provider, int extraPatterns) {
+                return Devourers.create(DevourerConfig.builder().build(), new AnnotatedCorpusConfig(), provider);
+            }
+        };
+
+        abstract Devourer create(PatternGroupProvider provider, int extraPatterns);
+    }
+
+    public enum Provider {
+        LIST_BACKED(PatternGroups.listBackedGroupProvider()),
+        CACHING(PatternGroups.cachingGroupProvider()),
+        TWO_LEVEL_CACHING(PatternGroups.twoLevelCachingGroupProvider()),
+        TRIE(PatternGroups.trieGroupProvider());
+
+        final PatternGroupProvider provider;
+
+        Provider(PatternGroupProvider provider) {
+            this.provider = provider;
+        }
+    }
+
+    /** Number of records in the document */
+    @Param({"100", "1000", "10000"})
+    public int records;
+
+    /** Nesting depth of the values inside records */
+    @Param({"1", "8"})
+    public int depth;
+
+    /** Number of attributes of records and values */
+    @Param({"0", "8"})
+    public int attributes;
+
+    /** Length of text of each text node */
+    @Param({"16", "1024"})
+    public int textLength;
+
+    /** Number of additional patterns which never match */
+    @Param({"0", "64"})
+    public int extraPatterns;
+
+    @Param({"MODULAR", "ANNOTATED"})
+    public Configuration configuration;
+
+    @Param({"LIST_BACKED", "CACHING", "TWO_LEVEL_CACHING", "TRIE"})
+    public Provider provider;
+
+    private Devourer devourer;
+    private byte[] document;
+
+    @Setup
+    public void setUp() {
+        devourer = configuration.create(provider.provider, extraPatterns);
+        document = Corpus.generate(records, depth, attributes, textLength);
+
+        // Make sure that the configuration actually does the work
+        Stacks stacks = devourer.parse(document);
+        int parsed = stacks.get(Corpus.RECORDS_STACK).size();
+        if (parsed != records) {
+            throw new IllegalStateException("Unexpected number of records: " + parsed);
+        }
+    }
+
+    @Benchmark
+    public Stacks parse() {
+        return devourer.parse(document);
+    }
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPatterns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link org.bitbucket.googolplex.devourer.paths.patterns.AdvancedPathPattern#matches} for each kind
+ * of pattern elements, against a path which is matched and a path of the same depth which is not. The deep
+ * wildcard benchmarks check the pathological case of several global wildcards against a path of 1000 elements,
+ * which must take time linear in the length of the path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathPatternBenchmark {
+    private final NamespaceContext context = NamespaceContext.fromItems("urn:p", "p");
+
+    private final PathPattern literal = PathPatterns.fromString("/a/b/c/d/e/f");
+    private final PathPattern singleWildcard = PathPatterns.fromString("/a/*/c/*/e/f");
+    private final PathPattern globalWildcard = PathPatterns.fromString("/a/**/f");
+    private final PathPattern prefixed = PathPatterns.fromString("/a/p:b/c/p:d/e/f");
+
+    private final ExactPath matching = ExactPath.fromString("/a/b/c/d/e/f");
+    private final ExactPath prefixedMatching = ExactPath.fromString("/a/{urn:p}b/c/{urn:p}d/e/f");
+    private final ExactPath failing = ExactPath.fromString("/a/b/c/d/e/g");
+
+    private final PathPattern deepWildcards = PathPatterns.fromString("/**/a/**/a/**/b");
+    private final ExactPath deepFailing = deepPath(1000);
+    private final ExactPath deepMatching = deepFailing.resolve(QualifiedNames.localOnly("b"));
+
+    @Benchmark
+    public boolean literalMatch() {
+        return literal.matches(matching.parts, context);
+    }
+
+    @Benchmark
+    public boolean literalMismatch() {
+        return literal.matches(failing.parts, context);
+    }
+
+    @Benchmark
+    public boolean singleWildcardMatch() {
+        return singleWildcard.matches(matching.parts, context);
+    }
+
+    @Benchmark
+    public boolean singleWildcardMismatch() {
+        return singleWildcard.matches(failing.parts, context);
+    }
+
+    @Benchmark
+    public boolean globalWildcardMatch() {
+        return globalWildcard.matches(matching.parts, context);
+    }
+
+    @Benchmark
+    public boolean globalWildcardMismatch() {
+        return globalWildcard.matches(failing.parts, context);
+    }
+
+    @Benchmark
+    public boolean prefixedMatch() {
+        return prefixed.matches(prefixedMatching.parts, context);
+    }
+
+    @Benchmark
+    public boolean prefixedMismatch() {
+        return prefixed.matches(matching.parts, context);
+    }
+
+    @Benchmark
+    public boolean deepWildcardsMatch() {
+        return deepWildcards.matches(deepMatching.parts, context);
+    }
+
+    @Benchmark
+    public boolean deepWildcardsMismatch() {
+        return deepWildcards.matches(deepFailing.parts, context);
+    }
+
+    private static ExactPath deepPath(int depth) {
+        ExactPath path = ExactPath.root();
+        for (int i = 0; i < depth; ++i) {
+            path = path.resolve(QualifiedNames.localOnly("a"));
+        }
+        return path;
+    }
+}
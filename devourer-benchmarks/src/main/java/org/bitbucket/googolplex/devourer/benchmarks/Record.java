@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+/**
+ * A result object built for each record of a {@link Corpus} document.
+ */
+public final class Record {
+    public final String id;
+    private int values = 0;
+    private long textLength = 0;
+
+    public Record(String id) {
+        this.id = id;
+    }
+
+    public void addValue(CharSequence text) {
+        values++;
+        textLength += text.length();
+    }
+
+    public int values() {
+        return values;
+    }
+
+    public long textLength() {
+        return textLength;
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.bitbucket.googolplex.devourer.configuration.annotated.internal.ParameterInfo;
+import org.bitbucket.googolplex.devourer.configuration.annotated.internal.ParameterKind;
+import org.bitbucket.googolplex.devourer.configuration.annotated.internal.ReflectedActions;
+import org.bitbucket.googolplex.devourer.stacks.DefaultStacks;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures invocation of annotated action methods through
+ * {@link org.bitbucket.googolplex.devourer.configuration.annotated.internal.AbstractReflectedAction#invokeMethod},
+ * compared with the same work done by a direct call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReflectedActionBenchmark {
+    private final AnnotatedCorpusConfig config = new AnnotatedCorpusConfig();
+    private final CharSequence body = "lorem ipsum dolor sit amet";
+    private Stacks stacks;
+    private ReflectedActions.At peekAndBody;
+    private ReflectedActions.After popAndPush;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        stacks = new DefaultStacks();
+        stacks.push(new Record("0"));
+
+        // The same parameters MappingReflector derives from the annotations
+        peekAndBody = new ReflectedActions.At(
+            config, AnnotatedCorpusConfig.class.getMethod("addValue", Record.class, CharSequence.class),
+            Optional.<String>absent(),
+            ImmutableList.of(new ParameterInfo(ParameterKind.PEEK, Stacks.DEFAULT_STACK),
+                             new ParameterInfo(ParameterKind.BODY_CHARS))
+        );
+        popAndPush = new ReflectedActions.After(
+            config, AnnotatedCorpusConfig.class.getMethod("finishRecord", Record.class),
+            Optional.of(Stacks.DEFAULT_STACK),
+            ImmutableList.of(new ParameterInfo(ParameterKind.POP, Stacks.DEFAULT_STACK))
+        );
+    }
+
+    @Benchmark
+    public void reflectedPeekAndBody() {
+        peekAndBody.act(stacks, null, body);
+    }
+
+    @Benchmark
+    public void directPeekAndBody() {
+        config.addValue(stacks.<Record>peek(), body);
+    }
+
+    @Benchmark
+    public void reflectedPopAndPush() {
+        popAndPush.act(stacks, null);
+    }
+
+    @Benchmark
+    public void directPopAndPush() {
+        stacks.push(config.finishRecord(stacks.<Record>pop()));
+    }
+}
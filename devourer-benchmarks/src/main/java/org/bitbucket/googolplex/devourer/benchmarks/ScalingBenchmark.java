@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link ParseBenchmark} on a shared Devourer with 1, 2, 4 and so on up to N threads, where N is
+ * the number of available processors or the value of {@code threads.max} system property. The arguments are
+ * regular JMH options, which are applied to every run:
+ * <pre>
+ *     java -Dthreads.max=16 -cp target/benchmarks.jar \
+ *         org.bitbucket.googolplex.devourer.benchmarks.ScalingBenchmark -p provider=TRIE,TWO_LEVEL_CACHING
+ * </pre>
+ */
+public class ScalingBenchmark {
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        int maxThreads = Math.max(1, Integer.getInteger("threads.max", Runtime.getRuntime().availableProcessors()));
+
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            new Runner(
+                new OptionsBuilder()
+                    .parent(options)
+                    .include(ParseBenchmark.class.getName() + ".parse")
+                    .threads(threads)
+                    .build()
+            ).run();
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.benchmarks;
+
+import org.bitbucket.googolplex.devourer.stacks.DefaultStacks;
+import org.bitbucket.googolplex.devourer.stacks.Stack;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DefaultStacks} operations as actions use them. Every benchmark leaves the stacks as it has
+ * found them, so the measurements do not depend on the number of invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StacksBenchmark {
+    private static final String STACK_NAME = "records";
+    private static final int LIST_SIZE = 8;
+
+    private final Object value = new Object();
+    private DefaultStacks stacks;
+
+    @Setup
+    public void setUp() {
+        stacks = new DefaultStacks();
+        // Named stacks are created on first access
+        stacks.get(STACK_NAME);
+    }
+
+    @Benchmark
+    public Stack getNamed() {
+        return stacks.get(STACK_NAME);
+    }
+
+    @Benchmark
+    public Object pushPopDefault() {
+        stacks.push(value);
+        return stacks.pop();
+    }
+
+    @Benchmark
+    public Object pushPopNamed() {
+        stacks.get(STACK_NAME).push(value);
+        return stacks.get(STACK_NAME).pop();
+    }
+
+    @Benchmark
+    public List<Object> pushPopList() {
+        Stacks stacks = this.stacks;
+        for (int i = 0; i < LIST_SIZE; ++i) {
+            stacks.push(value);
+        }
+        return stacks.popList();
+    }
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+
+/**
+ * Executes the actions found by {@link DocumentWalker}. The walker calls its methods only for elements with
+ * non-empty action bundles; for each such element {@link #before} and {@link #after} are always called in pairs,
+ * with {@link #at} calls between them, so calls for nested elements form a properly nested sequence.
+ *
+ * <p>The context and the body are valid only during the call; implementations which run the actions later
+ * must copy them.</p>
+ */
+interface ActionRunner {
+    void before(ActionBundle bundle, ElementContext context);
+
+    void at(ActionBundle bundle, ElementContext context, CharSequence body);
+
+    void after(ActionBundle bundle, ElementContext context);
+}
@@ -16,35 +16,50 @@
 
 package org.bitbucket.googolplex.devourer;
 
-import com.google.common.base.Optional;
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.bitbucket.googolplex.devourer.configuration.DevourerConfig;
+import org.bitbucket.googolplex.devourer.configuration.PipelineConfig;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
 import org.bitbucket.googolplex.devourer.configuration.annotated.MappingReflector;
 import org.bitbucket.googolplex.devourer.configuration.modular.MappingModule;
-import org.bitbucket.googolplex.devourer.contexts.DefaultElementContext;
 import org.bitbucket.googolplex.devourer.contexts.ElementContext;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
-import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
-import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
-import org.bitbucket.googolplex.devourer.exceptions.ActionException;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNameTable;
 import org.bitbucket.googolplex.devourer.exceptions.DevourerException;
 import org.bitbucket.googolplex.devourer.exceptions.ParsingException;
-import org.bitbucket.googolplex.devourer.paths.ExactPath;
-import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
 import org.bitbucket.googolplex.devourer.paths.mappings.PathMapping;
 import org.bitbucket.googolplex.devourer.stacks.DefaultStacks;
+import org.bitbucket.googolplex.devourer.stacks.Stack;
 import org.bitbucket.googolplex.devourer.stacks.Stacks;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Devourer pulls XML from the given source and executes preconfigured actions on it. These actions are defined
@@ -55,6 +70,9 @@ import java.util.Deque;
  * so it is possible to use Devourer instance across multiple threads simultaneously, that is,
  * Devourer should be thread-safe.</p>
  *
+ * <p>By default documents are read with StAX; another parser can be plugged in with
+ * {@link DevourerConfig.Builder#setParserBackend(ParserBackend)}, see {@link ParserBackends}.</p>
+ *
  * <p>Devourer parses XML document and executes series of actions on each node it encounters. Concrete actions are
  * configured by the user. Each action is set to be executed on certain <i>path</i> inside the document. A path
  * looks like very simple XPath expression or real path inside the filesystem, e.g. {@code /node/in/document}.
@@ -72,7 +90,9 @@ import java.util.Deque;
  * objects, e.g. builders, and it should contain results of the processing. This object is returned by
  * {@code parse()} family of methods. {@link ElementContext} object contains information about the element
  * currently being processed: name and namespace of the element, as well as its attributes.
- * {@link ActionAt}'s additional {@link String} parameter is set to the body of the element.</p>
+ * {@link ActionAt}'s additional {@link String} parameter is set to the body of the element. If creating a string
+ * for each body is too expensive, {@link ActionAtChars} can be used instead; it receives the body as a reusable
+ * {@link CharSequence} view over the parser buffer.</p>
  *
  * <p>So, the overall picture of Devourer processing looks as follows. First, you configure a number
  * of actions to be taken on the nodes of expected XML document. Then you ask Devourer to parse
@@ -87,14 +107,16 @@ import java.util.Deque;
  */
 public class Devourer {
     private final DevourerConfig config;
-    private final XMLInputFactory inputFactory;
+    private final ParserBackend parserBackend;
     private final PathMapping pathMapping;
     private final NamespaceContext namespaceContext;
+    // Element and attribute names are canonicalized across all documents parsed by this Devourer
+    private final QualifiedNameTable names = new QualifiedNameTable();
 
-    Devourer(DevourerConfig config, XMLInputFactory inputFactory, PathMapping pathMapping,
+    Devourer(DevourerConfig config, ParserBackend parserBackend, PathMapping pathMapping,
              NamespaceContext namespaceContext) {
         this.config = config;
-        this.inputFactory = inputFactory;
+        this.parserBackend = parserBackend;
         this.pathMapping = pathMapping;
         this.namespaceContext = namespaceContext;
     }
@@ -129,15 +151,46 @@ public class Devourer {
     }
 
     /**
-     * Parses an XML document contained inside the given array of bytes. The byte array is considered to contain
-     * a text encoded using default encoding.
+     * Parses an XML document contained inside the given array of bytes. The bytes are given to the parser
+     * as they are, and the parser detects the encoding from the byte order mark and the XML declaration,
+     * using UTF-8 if neither is present.
      *
      * @param bytes a byte array containing an XML document
      * @return stacks object with parsing results
      * @throws DevourerException in case of XML parsing errors or exceptions in actions
      */
     public Stacks parse(byte[] bytes) throws DevourerException {
-        return parse(bytes, Charset.defaultCharset());
+        Preconditions.checkNotNull(bytes, "Byte array is null");
+
+        return parse(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Parses an XML document contained in the remaining bytes of the given buffer. The position of the buffer
+     * is not changed. The encoding is detected by the parser, as in {@link #parse(byte[])}.
+     *
+     * @param buffer a byte buffer containing an XML document
+     * @return stacks object with parsing results
+     * @throws DevourerException in case of XML parsing errors or exceptions in actions
+     */
+    public Stacks parse(ByteBuffer buffer) throws DevourerException {
+        Preconditions.checkNotNull(buffer, "Byte buffer is null");
+
+        return parse(new ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * Parses an XML document read from the given channel. The encoding is detected by the parser, as in
+     * {@link #parse(byte[])}. The channel is not closed.
+     *
+     * @param channel a channel containing an XML document
+     * @return stacks object with parsing results
+     * @throws DevourerException in case of XML parsing errors, I/O errors or exceptions in actions
+     */
+    public Stacks parse(ReadableByteChannel channel) throws DevourerException {
+        Preconditions.checkNotNull(channel, "Channel is null");
+
+        return parse(Channels.newInputStream(channel));
     }
 
     /**
@@ -157,15 +210,23 @@ public class Devourer {
     }
 
     /**
-     * Parses an XML document contained within the given input stream. The stream is considered to be encoded using
-     * default encoding.
+     * Parses an XML document contained within the given input stream. The bytes are given to the parser
+     * as they are, and the parser detects the encoding from the byte order mark and the XML declaration,
+     * using UTF-8 if neither is present. This avoids a separate decoding layer, so it is usually faster than
+     * {@link #parse(InputStream, Charset)}.
      *
      * @param inputStream an input stream containing an XML document
      * @return stacks object with parsing results
      * @throws DevourerException in case of XML parsing errors or exceptions in actions
      */
     public Stacks parse(InputStream inputStream) throws DevourerException {
-        return parse(inputStream, Charset.defaultCharset());
+        Preconditions.checkNotNull(inputStream, "Input stream is null");
+
+        if (config.metrics.isPresent()) {
+            CountingInputStream countingStream = new CountingInputStream(inputStream);
+            return parse(createStreamReader(countingStream), countingStream);
+        }
+        return parse(createStreamReader(inputStream));
     }
 
     /**
@@ -178,106 +239,386 @@ public class Devourer {
     public Stacks parse(Reader reader) throws DevourerException {
         Preconditions.checkNotNull(reader, "Reader is null");
 
-        XMLStreamReader streamReader = null;
-        try {
-            streamReader = inputFactory.createXMLStreamReader(reader);
+        return parse(createStreamReader(reader));
+    }
 
-            Deque<ElementContext> contextStack = new ArrayDeque<ElementContext>();
-            Stacks stacks = new DefaultStacks();
-            ExactPath currentPath = ExactPath.root();
+    /**
+     * Parses an XML document contained in the file with the given path. The file is memory-mapped and its bytes
+     * are given to the parser directly, which detects the encoding from the XML declaration.
+     *
+     * @param path path to the file
+     * @return stacks object with parsing results
+     * @throws DevourerException in case of XML parsing errors, I/O errors or exceptions in actions
+     */
+    public Stacks parse(Path path) throws DevourerException {
+        Preconditions.checkNotNull(path, "Path is null");
 
-            while (streamReader.hasNext()) {
-                streamReader.next();  // We will ignore exact event value in favor of reader methods
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new DevourerException("Cannot open file " + path, e);
+        }
+        try {
+            return parse(channel);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Do nothing
+            }
+        }
+    }
 
-                if (streamReader.isStartElement()) {
-                    currentPath = currentPath.resolve(QualifiedNames.fromQName(streamReader.getName()));
-                    handleStartElement(streamReader, currentPath, stacks, contextStack);
+    /**
+     * Parses an XML document contained in the given file channel, starting from its current position. The file
+     * is memory-mapped and its bytes are given to the parser directly, which detects the encoding from the XML
+     * declaration. The channel is not closed.
+     *
+     * @param channel a file channel containing an XML document
+     * @return stacks object with parsing results
+     * @throws DevourerException in case of XML parsing errors, I/O errors or exceptions in actions
+     */
+    public Stacks parse(FileChannel channel) throws DevourerException {
+        Preconditions.checkNotNull(channel, "Channel is null");
 
-                } else if (streamReader.isCharacters() && !streamReader.isWhiteSpace()) {
-                    handleContent(streamReader, currentPath, stacks, contextStack);
+        InputStream inputStream;
+        try {
+            inputStream = new MappedFileInputStream(channel);
+        } catch (IOException e) {
+            throw new DevourerException("Cannot map file channel", e);
+        }
+        return parse(inputStream);
+    }
 
-                } else if (streamReader.isEndElement()) {
-                    handleEndElement(currentPath, stacks, contextStack);
-                    currentPath = currentPath.moveUp();
+    /**
+     * Opens an incremental parsing session for a UTF-8 encoded document which arrives in chunks.
+     * See {@link DevourerSession} for details.
+     *
+     * @return new session
+     */
+    public DevourerSession openSession() {
+        return openSession(Charsets.UTF_8);
+    }
 
-                }
-            }
+    /**
+     * Opens an incremental parsing session for a document which arrives in chunks and is encoded using
+     * the given charset. See {@link DevourerSession} for details.
+     *
+     * @param charset an encoding of the document
+     * @return new session
+     */
+    public DevourerSession openSession(Charset charset) {
+        Preconditions.checkNotNull(charset, "Charset is null");
 
-            streamReader.close();
+        // Text is split wherever the chunks end, so it is always coalesced to keep at-actions independent of that
+        DevourerConfig sessionConfig = DevourerConfig.builder(config).setCoalesceText(true).build();
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(charset);
+        return new DevourerSession(reader, new DocumentWalker(
+            sessionConfig, pathMapping, namespaceContext, names, reader, new DefaultStacks()
+        ));
+    }
 
-            return stacks;
+    private Stacks parse(XMLStreamReader streamReader) {
+        return parse(streamReader, null);
+    }
 
-        } catch (XMLStreamException e) {
-            throw new ParsingException("Error while parsing XML document", e);
+    // The counting stream is null when no bytes are counted
+    private Stacks parse(XMLStreamReader streamReader, CountingInputStream countingStream) {
+        if (config.pipelined) {
+            return parsePipelined(streamReader, countingStream);
+        }
 
-        } catch (RuntimeException e) {  // TODO: maybe move to action loops
-            throw new ActionException("An exception has occured in action", e);
+        DocumentWalker walker = new DocumentWalker(
+            config, pathMapping, namespaceContext, names, streamReader, new DefaultStacks()
+        );
+        if (countingStream != null) {
+            walker.countBytes(countingStream);
+        }
+        try {
+            walker.walk();
+            return walker.stacks();
+        } finally {
+            walker.close();
+        }
+    }
 
+    private Stacks parsePipelined(XMLStreamReader streamReader, CountingInputStream countingStream) {
+        Stacks stacks = new DefaultStacks();
+        PipelinedRunner runner = new PipelinedRunner(DocumentWalker.executingRunner(config, stacks));
+        DocumentWalker walker = new DocumentWalker(
+            config, pathMapping, namespaceContext, names, streamReader, stacks, runner
+        );
+        if (countingStream != null) {
+            walker.countBytes(countingStream);
+        }
+        boolean finished = false;
+        try {
+            walker.walk();
+            runner.finish();
+            finished = true;
+            return stacks;
         } finally {
-            if (streamReader != null) {
-                try {
-                    streamReader.close();
-                } catch (XMLStreamException e) {
-                    // Do nothing
-                }
+            // Errors must stop the action thread too, otherwise it would wait for more events forever
+            if (!finished) {
+                runner.abort();
             }
+            walker.close();
         }
     }
 
-    private void handleStartElement(XMLStreamReader streamReader, ExactPath currentPath, Stacks stacks,
-                                    Deque<ElementContext> contextStack) {
-        ElementContext context = assembleAttributesContext(streamReader);
-        contextStack.push(context);
+    /**
+     * Parses an XML file consisting of a flat sequence of records using several threads. The file is split
+     * into ranges at start tags of the record elements, the ranges are parsed concurrently, and the stacks
+     * produced for each range are merged in document order, so each stack contains the objects pushed to it
+     * in the order of the records which have produced them.
+     *
+     * <p>This method is intended for huge files like {@code <feed><entry>...</entry>...</feed>}, where all
+     * the work is done by the actions of the records. The following restrictions apply:</p>
+     * <ul>
+     *     <li>only the actions of the elements at the depth of the records and below are executed; the actions
+     *     of their ancestors are not, because every range sees the ancestors;</li>
+     *     <li>the actions must be thread-safe and must not rely on objects pushed while processing other records,
+     *     since the records of different ranges are processed with different stacks;</li>
+     *     <li>record start tags are looked up by their local names in raw bytes, so the file must use
+     *     an ASCII-compatible encoding like UTF-8, and the local name of the record element must not appear
+     *     as a start tag anywhere except the records, including comments and CDATA sections;</li>
+     *     <li>entities declared in the DTD of the document are available to the first range only.</li>
+     * </ul>
+     *
+     * @param path path to the file
+     * @param recordPath an absolute path to the record elements without wildcards, e.g. {@code /feed/entry}
+     * @param parallelism maximal number of ranges parsed concurrently
+     * @return stacks object with parsing results
+     * @throws DevourerException in case of XML parsing errors, I/O errors or exceptions in actions
+     */
+    public Stacks parseParallel(Path path, String recordPath, int parallelism) throws DevourerException {
+        Preconditions.checkNotNull(path, "Path is null");
+        Preconditions.checkNotNull(recordPath, "Record path is null");
+        Preconditions.checkArgument(parallelism > 0, "Parallelism is not positive: %s", parallelism);
+
+        return new ParallelParser(config, parserBackend, pathMapping, namespaceContext, names)
+            .parse(path, recordPath, parallelism);
+    }
+
+    /**
+     * Parses an XML document contained within the given reader lazily, returning objects pushed by the actions
+     * to the stack with the given name one by one. The document is read only as far as it is needed to produce
+     * the next object, so only the objects which have not been consumed yet are kept in memory.
+     *
+     * <p>Objects are removed from the stack as soon as the action which has pushed them returns, so actions
+     * cannot peek at them; the stack should be used for finished records only. Objects are returned
+     * in the order they were pushed.</p>
+     *
+     * <p>The iterator closes itself when the document is exhausted or when an exception is thrown; it should be
+     * closed explicitly if it is abandoned earlier.</p>
+     *
+     * @param reader a reader containing an XML document
+     * @param stackName name of the stack with the results
+     * @param <T> type of the objects in the stack
+     * @return an iterator over the objects pushed to the stack
+     * @throws DevourerException in case of XML parsing errors or exceptions in actions; thrown by the iterator
+     *                           methods as well
+     */
+    public <T> RecordIterator<T> iterate(Reader reader, String stackName) throws DevourerException {
+        Preconditions.checkNotNull(reader, "Reader is null");
+        Preconditions.checkNotNull(stackName, "Stack name is null");
+
+        return new WalkingIterator<T>(createWalker(reader, new DefaultStacks()), stackName);
+    }
 
-        Optional<ActionBundle> bundle = pathMapping.lookup(currentPath, namespaceContext);
-        if (bundle.isPresent()) {
-            for (ActionBefore action : bundle.get().befores) {
-                action.act(stacks, context);
+    /**
+     * Does the same as {@link #iterate(Reader, String)} but wraps the iterator into a sequential {@link Stream}.
+     * Closing the stream closes the underlying document.
+     *
+     * @param reader a reader containing an XML document
+     * @param stackName name of the stack with the results
+     * @param <T> type of the objects in the stack
+     * @return a stream of the objects pushed to the stack
+     * @throws DevourerException in case of XML parsing errors or exceptions in actions; thrown by the stream
+     *                           operations as well
+     */
+    public <T> Stream<T> stream(Reader reader, String stackName) throws DevourerException {
+        final RecordIterator<T> iterator = iterate(reader, stackName);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(
+            iterator, Spliterator.ORDERED | Spliterator.NONNULL
+        );
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                iterator.close();
             }
-        }
+        });
     }
 
-    private void handleContent(XMLStreamReader streamReader, ExactPath currentPath, Stacks stacks,
-                               Deque<ElementContext> contextStack) {
-        String body = streamReader.getText();
-        if (config.stripSpaces) {
-            body = body.trim();
-        }
-        ElementContext context = contextStack.peek();
+    /**
+     * Creates a publisher which parses an XML document contained within the given reader and delivers objects
+     * pushed by the actions to the stack with the given name to its subscriber, as {@link #iterate(Reader, String)}
+     * does. Parsing starts when the subscriber subscribes and advances only while the subscriber has outstanding
+     * demand; cancelling the subscription closes the document. Items are delivered in the thread which requests
+     * them.
+     *
+     * <p>The document can be read only once, so the publisher accepts only one subscriber; parsing and action
+     * errors are reported through {@link RecordFlow.Subscriber#onError(Throwable)}.</p>
+     *
+     * @param reader a reader containing an XML document
+     * @param stackName name of the stack with the results
+     * @param <T> type of the objects in the stack
+     * @return a publisher of the objects pushed to the stack
+     */
+    public <T> RecordFlow.Publisher<T> publish(Reader reader, String stackName) {
+        return publish(reader, stackName, MoreExecutors.sameThreadExecutor());
+    }
 
-        Optional<ActionBundle> bundle = pathMapping.lookup(currentPath, namespaceContext);
-        if (bundle.isPresent()) {
-            for (ActionAt action : bundle.get().ats) {
-                action.act(stacks, context, body);
+    /**
+     * Does the same as {@link #publish(Reader, String)}, but parses the document and delivers the items using
+     * the given executor. At most one task is running for the subscription at any time.
+     *
+     * @param reader a reader containing an XML document
+     * @param stackName name of the stack with the results
+     * @param executor an executor which runs parsing and delivery
+     * @param <T> type of the objects in the stack
+     * @return a publisher of the objects pushed to the stack
+     */
+    public <T> RecordFlow.Publisher<T> publish(final Reader reader, final String stackName, Executor executor) {
+        Preconditions.checkNotNull(reader, "Reader is null");
+        Preconditions.checkNotNull(stackName, "Stack name is null");
+        Preconditions.checkNotNull(executor, "Executor is null");
+
+        return new IteratorPublisher<T>(new Supplier<RecordIterator<T>>() {
+            @Override
+            public RecordIterator<T> get() {
+                return iterate(reader, stackName);
             }
-        }
+        }, executor);
     }
 
-    private void handleEndElement(ExactPath currentPath, Stacks stacks, Deque<ElementContext> contextStack) {
-        ElementContext context = contextStack.pop();
+    /**
+     * Parses an XML document contained within the given reader, handing objects pushed by the actions to the stack
+     * with the given name to the handler running in a pool of worker threads. Actions still run in the calling
+     * thread, so they should only assemble records; the expensive work belongs to the handler.
+     *
+     * <p>Each record is assigned to a worker by the key computed by the key function, so records with equal keys
+     * are handled sequentially in the order they were pushed; records with different keys may be handled
+     * concurrently. Parsing waits when the queue of the worker is full. As with {@link #iterate(Reader, String)},
+     * objects are removed from the stack as soon as the action which has pushed them returns.</p>
+     *
+     * <p>This method returns when all records have been handled. The first exception thrown by the handler or
+     * by the key function stops parsing and is rethrown wrapped into
+     * {@link org.bitbucket.googolplex.devourer.exceptions.ActionException}. When parsing fails, the workers are
+     * interrupted and the method waits for them to stop for a limited time only, so a handler which ignores
+     * interruption may still be running after the method has thrown.</p>
+     *
+     * @param reader a reader containing an XML document
+     * @param stackName name of the stack with the records
+     * @param keyFunction a function computing partitioning keys of records; it is called in the calling thread
+     * @param handler a handler for the records
+     * @param pipelineConfig configuration of the worker pool
+     * @param <T> type of the objects in the stack
+     * @return stacks objects with the rest of parsing results
+     * @throws DevourerException in case of XML parsing errors or exceptions in actions or in the handler
+     */
+    public <T> Stacks process(Reader reader, String stackName, Function<? super T, ?> keyFunction,
+                              RecordHandler<? super T> handler, PipelineConfig pipelineConfig)
+        throws DevourerException {
+        Preconditions.checkNotNull(reader, "Reader is null");
+        Preconditions.checkNotNull(stackName, "Stack name is null");
+        Preconditions.checkNotNull(keyFunction, "Key function is null");
+        Preconditions.checkNotNull(handler, "Handler is null");
+        Preconditions.checkNotNull(pipelineConfig, "Pipeline config is null");
+
+        DocumentWalker walker = createWalker(reader, new DefaultStacks());
+        KeyedDispatcher<T> dispatcher = new KeyedDispatcher<T>(keyFunction, handler, pipelineConfig);
+        boolean finished = false;
+        try {
+            Stack stack = walker.stacks().get(stackName);
+            boolean hasNext;
+            do {
+                hasNext = walker.step();
+                if (!stack.isEmpty()) {
+                    for (Object record : stack.popList()) {
+                        @SuppressWarnings("unchecked") T typed = (T) record;
+                        dispatcher.submit(typed);
+                    }
+                }
+            } while (hasNext);
 
-        Optional<ActionBundle> bundle = pathMapping.lookup(currentPath, namespaceContext);
-        if (bundle.isPresent()) {
-            for (ActionAfter action : bundle.get().afters) {
-                action.act(stacks, context);
+            dispatcher.finish();
+            finished = true;
+            return walker.stacks();
+        } finally {
+            // Errors must stop the workers too, otherwise they would wait for more records forever
+            if (!finished) {
+                dispatcher.abort();
             }
+            walker.close();
         }
     }
 
-    private ElementContext assembleAttributesContext(XMLStreamReader reader) {
-        DefaultElementContext.Builder builder = new DefaultElementContext.Builder();
+    private DocumentWalker createWalker(Reader reader, Stacks stacks) {
+        return new DocumentWalker(config, pathMapping, namespaceContext, names, createStreamReader(reader), stacks);
+    }
 
-        builder.setRealNamespaceContext(reader.getNamespaceContext());
-        builder.setCustomNamespaceContext(namespaceContext);
+    private XMLStreamReader createStreamReader(Reader reader) {
+        try {
+            return parserBackend.createReader(reader);
+        } catch (XMLStreamException e) {
+            throw new ParsingException("Error while parsing XML document", e);
+        }
+    }
+
+    private XMLStreamReader createStreamReader(InputStream inputStream) {
+        try {
+            return parserBackend.createReader(inputStream);
+        } catch (XMLStreamException e) {
+            throw new ParsingException("Error while parsing XML document", e);
+        }
+    }
+
+    /**
+     * Advances the document walker until the result stack becomes non-empty.
+     */
+    private static class WalkingIterator<T> extends AbstractIterator<T> implements RecordIterator<T> {
+        private final DocumentWalker walker;
+        private final Stack stack;
+        private final Queue<T> pending = new ArrayDeque<T>();
+        private boolean closed = false;
+
+        private WalkingIterator(DocumentWalker walker, String stackName) {
+            this.walker = walker;
+            this.stack = walker.stacks().get(stackName);
+        }
 
-        QualifiedName elementName = QualifiedNames.fromQName(reader.getName());
-        builder.setName(elementName);
+        @Override
+        protected T computeNext() {
+            try {
+                while (pending.isEmpty() && !closed) {
+                    if (!walker.step()) {
+                        close();
+                    }
+                    if (!stack.isEmpty()) {
+                        List<T> objects = stack.popList();
+                        pending.addAll(objects);
+                    }
+                }
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
 
-        for (int i = 0; i < reader.getAttributeCount(); ++i) {
-            QualifiedName attributeName = QualifiedNames.fromQName(reader.getAttributeName(i));
-            builder.addAttribute(attributeName, reader.getAttributeValue(i));
+            if (pending.isEmpty()) {
+                return endOfData();
+            } else {
+                return pending.remove();
+            }
         }
 
-        return builder.build();
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                walker.close();
+            }
+        }
     }
 }
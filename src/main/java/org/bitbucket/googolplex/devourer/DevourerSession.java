@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Preconditions;
+import org.bitbucket.googolplex.devourer.exceptions.DevourerException;
+import org.bitbucket.googolplex.devourer.exceptions.ParsingException;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * An incremental parsing session for a single XML document which arrives in chunks, e.g. from a non-blocking
+ * socket. Chunks of any size are given to the session with {@link #feed(ByteBuffer)}; the session parses
+ * as much of the document as the received bytes allow, executing the actions immediately, and then returns
+ * without waiting for more data. When all bytes have been fed, {@link #endOfInput()} completes the document
+ * and returns the stacks.
+ *
+ * <p>Sessions are created by {@link Devourer#openSession()}. Parsing is done by a tokenizer built into
+ * Devourer, so StAX configuration does not apply to sessions. The tokenizer supports namespaces, character
+ * and predefined entity references, CDATA sections, comments and processing instructions, but it does not
+ * process document type declarations. Actions are always executed in the thread which feeds the bytes.
+ * Element text is always coalesced (see
+ * {@link org.bitbucket.googolplex.devourer.configuration.DevourerConfig.Builder#setCoalesceText(boolean)}),
+ * so at-actions do not depend on how the document is split into chunks.</p>
+ *
+ * <p>A session is not thread-safe, but it does not hold any thread between calls, so a small number of threads
+ * can serve a lot of sessions. After an exception the session is closed and cannot be used anymore.</p>
+ */
+public class DevourerSession implements Closeable {
+    private final FeedXMLStreamReader reader;
+    private final DocumentWalker walker;
+    private boolean closed = false;
+
+    DevourerSession(FeedXMLStreamReader reader, DocumentWalker walker) {
+        this.reader = reader;
+        this.walker = walker;
+    }
+
+    /**
+     * Parses the remaining bytes of the given buffer as the next part of the document, executing the actions
+     * for all events which are complete. The buffer is consumed entirely.
+     *
+     * @param bytes next part of the document
+     * @throws DevourerException in case of XML parsing errors or exceptions in actions
+     * @throws IllegalStateException if the session has been closed or the end of input has been signalled
+     */
+    public void feed(ByteBuffer bytes) throws DevourerException {
+        Preconditions.checkNotNull(bytes, "Byte buffer is null");
+        Preconditions.checkState(!closed, "Session is closed");
+
+        try {
+            reader.feed(bytes);
+            drain();
+        } catch (XMLStreamException e) {
+            close();
+            throw new ParsingException("Error while parsing XML document", e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Signals that the whole document has been fed and processes its rest.
+     *
+     * @return stacks object with parsing results
+     * @throws DevourerException in case of XML parsing errors, e.g. if the document is incomplete, or exceptions
+     *                           in actions
+     * @throws IllegalStateException if the session has been closed
+     */
+    public Stacks endOfInput() throws DevourerException {
+        Preconditions.checkState(!closed, "Session is closed");
+
+        try {
+            reader.endOfInput();
+            drain();
+            return walker.stacks();
+        } catch (XMLStreamException e) {
+            throw new ParsingException("Error while parsing XML document", e);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Checks whether the session waits for more bytes. This is {@code false} only when the whole document
+     * has been parsed or the session has been closed.
+     *
+     * @return {@code true} if more bytes are needed to continue parsing
+     */
+    public boolean needsInput() {
+        if (closed) {
+            return false;
+        }
+        try {
+            return reader.needsInput();
+        } catch (XMLStreamException e) {
+            close();
+            throw new ParsingException("Error while parsing XML document", e);
+        }
+    }
+
+    /**
+     * Returns the stacks the actions work with. Results of the actions executed so far can be taken from them
+     * between the calls to {@link #feed(ByteBuffer)}.
+     *
+     * @return stacks object with parsing results
+     */
+    public Stacks stacks() {
+        return walker.stacks();
+    }
+
+    /**
+     * Closes the session, discarding the unprocessed input.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            walker.close();
+        }
+    }
+
+    private void drain() throws XMLStreamException {
+        while (reader.hasNext()) {
+            walker.step();
+        }
+    }
+}
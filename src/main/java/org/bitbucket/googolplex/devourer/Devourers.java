@@ -16,6 +16,7 @@
 
 package org.bitbucket.googolplex.devourer;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import org.bitbucket.googolplex.devourer.configuration.DevourerConfig;
 import org.bitbucket.googolplex.devourer.configuration.annotated.MappingReflector;
@@ -24,7 +25,11 @@ import org.bitbucket.googolplex.devourer.configuration.modular.binders.MappingBi
 import org.bitbucket.googolplex.devourer.configuration.modular.binders.impl.MappingBinderImpl;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
 import org.bitbucket.googolplex.devourer.exceptions.MappingException;
+import org.bitbucket.googolplex.devourer.paths.mappings.MapBackedPathMapping;
 import org.bitbucket.googolplex.devourer.paths.mappings.PathMapping;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCache;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroupProvider;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroups;
 
 import javax.xml.stream.XMLInputFactory;
 import java.util.Map;
@@ -53,10 +58,25 @@ public class Devourers {
      * @return new Devourer instance
      */
     public static Devourer create(DevourerConfig devourerConfig, MappingModule module) {
+        return create(devourerConfig, module, PatternGroups.trieGroupProvider());
+    }
+
+    /**
+     * Creates new {@link Devourer} with actions defined in the provided {@link MappingModule} using
+     * specified configuration and path patterns grouped by the given provider, see {@link PatternGroups}.
+     *
+     * @param devourerConfig configuration object
+     * @param module mapping module with configured actions
+     * @param patternGroupProvider provider of the group used to look up path patterns
+     * @return new Devourer instance
+     */
+    public static Devourer create(DevourerConfig devourerConfig, MappingModule module,
+                                  PatternGroupProvider patternGroupProvider) {
         Preconditions.checkNotNull(devourerConfig, "Devourer config is null");
         Preconditions.checkNotNull(module, "Module object is null");
+        Preconditions.checkNotNull(patternGroupProvider, "Pattern group provider is null");
 
-        MappingBinder binder = new MappingBinderImpl();
+        MappingBinder binder = new MappingBinderImpl(patternGroupProvider);
         try {
             module.configure(binder);
         } catch (RuntimeException e) {
@@ -66,7 +86,8 @@ public class Devourers {
         PathMapping pathMapping = binder.getMapping();
         NamespaceContext namespaceContext = binder.getNamespaceContext();
 
-        return new Devourer(devourerConfig, createXMLInputFactory(devourerConfig), pathMapping, namespaceContext);
+        registerPatternCache(devourerConfig, pathMapping);
+        return new Devourer(devourerConfig, createParserBackend(devourerConfig), pathMapping, namespaceContext);
     }
 
     /**
@@ -89,16 +110,49 @@ public class Devourers {
      * @return new Devourer instance
      */
     public static Devourer create(DevourerConfig devourerConfig, Object configObject) {
+        return create(devourerConfig, configObject, PatternGroups.trieGroupProvider());
+    }
+
+    /**
+     * Creates new {@link Devourer} with actions defined in the annotated class of the provided object using
+     * specified configuration and path patterns grouped by the given provider, see {@link PatternGroups}.
+     *
+     * @param devourerConfig configuration object
+     * @param configObject object of a class with annotated configuration
+     * @param patternGroupProvider provider of the group used to look up path patterns
+     * @return new Devourer instance
+     */
+    public static Devourer create(DevourerConfig devourerConfig, Object configObject,
+                                  PatternGroupProvider patternGroupProvider) {
         Preconditions.checkNotNull(devourerConfig, "Devourer config is null");
         Preconditions.checkNotNull(configObject, "Config object is null");
+        Preconditions.checkNotNull(patternGroupProvider, "Pattern group provider is null");
 
-        MappingReflector reflector = new MappingReflector();
+        MappingReflector reflector = new MappingReflector(patternGroupProvider);
         reflector.collectMappings(configObject);
 
         PathMapping pathMapping = reflector.getMapping();
         NamespaceContext namespaceContext = reflector.getNamespaceContext();
 
-        return new Devourer(devourerConfig, createXMLInputFactory(devourerConfig), pathMapping, namespaceContext);
+        registerPatternCache(devourerConfig, pathMapping);
+        return new Devourer(devourerConfig, createParserBackend(devourerConfig), pathMapping, namespaceContext);
+    }
+
+    private static void registerPatternCache(DevourerConfig devourerConfig, PathMapping pathMapping) {
+        if (devourerConfig.metrics.isPresent() && pathMapping instanceof MapBackedPathMapping) {
+            Optional<PatternCache> cache = ((MapBackedPathMapping) pathMapping).patternCache();
+            if (cache.isPresent()) {
+                devourerConfig.metrics.get().patternCacheCreated(cache.get());
+            }
+        }
+    }
+
+    private static ParserBackend createParserBackend(DevourerConfig devourerConfig) {
+        if (devourerConfig.parserBackend.isPresent()) {
+            return devourerConfig.parserBackend.get();
+        } else {
+            return ParserBackends.stax(createXMLInputFactory(devourerConfig));
+        }
     }
 
     private static XMLInputFactory createXMLInputFactory(DevourerConfig devourerConfig) {
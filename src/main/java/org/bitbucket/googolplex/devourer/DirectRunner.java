@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+import java.util.List;
+
+/**
+ * Executes the actions immediately in the calling thread. Action lists are walked by index, so that no iterators
+ * are allocated when the JIT fails to eliminate them.
+ */
+final class DirectRunner implements ActionRunner {
+    private final Stacks stacks;
+
+    DirectRunner(Stacks stacks) {
+        this.stacks = stacks;
+    }
+
+    @Override
+    public void before(ActionBundle bundle, ElementContext context) {
+        List<ActionBefore> actions = bundle.befores;
+        for (int i = 0, size = actions.size(); i < size; ++i) {
+            actions.get(i).act(stacks, context);
+        }
+    }
+
+    @Override
+    public void at(ActionBundle bundle, ElementContext context, CharSequence body) {
+        List<ActionAtChars> actions = bundle.bodyActions;
+        for (int i = 0, size = actions.size(); i < size; ++i) {
+            actions.get(i).act(stacks, context, body);
+        }
+    }
+
+    @Override
+    public void after(ActionBundle bundle, ElementContext context) {
+        List<ActionAfter> actions = bundle.afters;
+        for (int i = 0, size = actions.size(); i < size; ++i) {
+            actions.get(i).act(stacks, context);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Optional;
+import com.google.common.io.CountingInputStream;
+import org.bitbucket.googolplex.devourer.configuration.DevourerConfig;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNameTable;
+import org.bitbucket.googolplex.devourer.exceptions.ActionException;
+import org.bitbucket.googolplex.devourer.exceptions.ParsingException;
+import org.bitbucket.googolplex.devourer.metrics.DevourerMetrics;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+import org.bitbucket.googolplex.devourer.paths.mappings.PathMapping;
+import org.bitbucket.googolplex.devourer.paths.mappings.PathTracker;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.Arrays;
+
+/**
+ * Walks a single XML document available through a {@link XMLStreamReader} and executes the actions configured
+ * for its elements. The document can be walked either as a whole or one event at a time using {@link #step()},
+ * which allows the caller to inspect the stacks between events.
+ *
+ * <p>This class is not thread-safe; a new instance is created for each document.</p>
+ */
+class DocumentWalker {
+    private final DevourerConfig config;
+    private final XMLStreamReader streamReader;
+    private final Stacks stacks;
+    private final ActionRunner runner;
+    private final PathTracker tracker;
+    private final QualifiedNameTable names;
+    private final Frames frames;
+    // Null when metrics are not configured
+    private final DevourerMetrics metrics;
+    private final long startNanos;
+    private CountingInputStream countedInput;
+    private boolean reportDocument = true;
+    private long elementCount = 0;
+    private boolean finished = false;
+    private final TextView text = new TextView();
+    // Nesting level inside the element whose children are being skipped, 0 if nothing is skipped
+    private int skipLevel = 0;
+
+    DocumentWalker(DevourerConfig config, PathMapping pathMapping, NamespaceContext namespaceContext,
+                   QualifiedNameTable names, XMLStreamReader streamReader, Stacks stacks) {
+        this(config, pathMapping, namespaceContext, names, streamReader, stacks, executingRunner(config, stacks));
+    }
+
+    /**
+     * Creates a walker which hands the actions to the given runner instead of executing them immediately.
+     * The stacks are then owned by the runner and must not be looked at until it is done.
+     */
+    DocumentWalker(DevourerConfig config, PathMapping pathMapping, NamespaceContext namespaceContext,
+                   QualifiedNameTable names, XMLStreamReader streamReader, Stacks stacks, ActionRunner runner) {
+        this.config = config;
+        this.streamReader = streamReader;
+        this.stacks = stacks;
+        this.runner = runner;
+        this.tracker = pathMapping.tracker(namespaceContext);
+        this.names = names;
+        this.frames = new Frames(namespaceContext, names);
+        this.metrics = config.metrics.orNull();
+        this.startNanos = metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Creates a runner which executes the actions in the calling thread, timing them if metrics are configured.
+     */
+    static ActionRunner executingRunner(DevourerConfig config, Stacks stacks) {
+        ActionRunner runner = new DirectRunner(stacks);
+        if (config.metrics.isPresent()) {
+            runner = new MeasuringRunner(runner, config.metrics.get());
+        }
+        return runner;
+    }
+
+    /**
+     * Makes the walker report the number of bytes read from the given stream when the document is reported
+     * to the metrics.
+     */
+    void countBytes(CountingInputStream input) {
+        this.countedInput = input;
+    }
+
+    /**
+     * Stops the walker from reporting its document to the metrics; used when the walker processes only a part
+     * of a document.
+     */
+    void ignoreDocumentMetrics() {
+        this.reportDocument = false;
+    }
+
+    /**
+     * @return number of elements entered so far
+     */
+    long elementCount() {
+        return elementCount;
+    }
+
+    /**
+     * @return stacks object the actions work with
+     */
+    Stacks stacks() {
+        return stacks;
+    }
+
+    /**
+     * Walks the rest of the document.
+     *
+     * @throws ParsingException in case of XML parsing errors
+     * @throws ActionException in case of exceptions in actions
+     */
+    void walk() {
+        while (step()) {
+            // Keep going
+        }
+    }
+
+    /**
+     * Processes the next event of the document. Exactly one event is taken from the reader, so the reader
+     * may be an incremental one which has only a part of the document available.
+     *
+     * @return {@code false} if the document has been exhausted, {@code true} otherwise
+     * @throws ParsingException in case of XML parsing errors
+     * @throws ActionException in case of exceptions in actions
+     */
+    boolean step() {
+        try {
+            if (!streamReader.hasNext()) {
+                finished = true;
+                return false;
+            }
+            streamReader.next();  // We will ignore exact event value in favor of reader methods
+
+            if (skipLevel > 0) {
+                skipEvent(frames.current());
+
+            } else if (streamReader.isStartElement()) {
+                flushContent(frames.current());
+                ++elementCount;
+                QualifiedName name = names.get(
+                    streamReader.getLocalName(), streamReader.getNamespaceURI(), streamReader.getPrefix()
+                );
+                Optional<ActionBundle> bundle = tracker.push(name);
+                Frame frame = frames.push(bundle.or(ActionBundle.EMPTY));
+                frame.context.enter(streamReader, name);
+                handleStartElement(frame);
+
+                // Nothing inside this element is mapped, so its children are fast-forwarded over
+                if (!tracker.canMatchBelow()) {
+                    skipLevel = 1;
+                }
+
+            } else if (streamReader.isCharacters()) {
+                handleContent(frames.current());
+
+            } else if (streamReader.isEndElement()) {
+                flushContent(frames.current());
+                handleEndElement(frames.current());
+                frames.pop();
+                tracker.pop();
+
+            }
+            return true;
+
+        } catch (XMLStreamException e) {
+            throw new ParsingException("Error while parsing XML document", e);
+
+        } catch (RuntimeException e) {  // TODO: maybe move to action loops
+            throw new ActionException("An exception has occured in action", e);
+        }
+    }
+
+    /**
+     * Closes the underlying reader, ignoring any errors. A document which has been walked completely is reported
+     * to the metrics, if they are configured.
+     */
+    void close() {
+        if (metrics != null && finished && reportDocument) {
+            long byteCount = countedInput == null ? -1 : countedInput.getCount();
+            metrics.documentParsed(elementCount, byteCount, System.nanoTime() - startNanos);
+        }
+        try {
+            streamReader.close();
+        } catch (XMLStreamException e) {
+            // Do nothing
+        }
+    }
+
+    private void handleStartElement(Frame frame) {
+        // Nothing will ever look at the attributes of an element without actions
+        if (frame.bundle.isEmpty()) {
+            return;
+        }
+        frame.context.captureAttributes(streamReader);
+
+        runner.before(frame.bundle, frame.context);
+    }
+
+    private void handleContent(Frame frame) {
+        // The text is not even looked at when nobody is interested in it
+        if (frame.bundle.bodyActions.isEmpty()) {
+            return;
+        }
+        // Chunks are collected until the next tag, see flushContent()
+        if (config.coalesceText) {
+            text.append(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+            return;
+        }
+        if (streamReader.isWhiteSpace()) {
+            return;
+        }
+        // The view points directly into the reader buffer; a string is created only if some action asks for it
+        text.reset(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength(),
+                   config.stripSpaces);
+
+        runner.at(frame.bundle, frame.context, text);
+        text.clear();
+    }
+
+    /**
+     * Provides the text collected in coalescing mode to the at-actions of the given frame. Does nothing if
+     * there is no collected text.
+     */
+    private void flushContent(Frame frame) {
+        if (!text.hasBuffered()) {
+            return;
+        }
+        text.resetToBuffer(config.stripSpaces);
+        if (!text.isBlank()) {
+            runner.at(frame.bundle, frame.context, text);
+        }
+        text.clear();
+    }
+
+    /**
+     * Handles an event inside the element whose children are skipped. Only the direct text content of that
+     * element is processed; nested elements are passed over without resolving their paths or creating frames.
+     */
+    private void skipEvent(Frame frame) {
+        if (streamReader.isStartElement()) {
+            if (skipLevel == 1) {
+                flushContent(frame);
+            }
+            ++skipLevel;
+            ++elementCount;
+        } else if (streamReader.isEndElement()) {
+            if (--skipLevel == 0) {
+                flushContent(frame);
+                handleEndElement(frame);
+                frames.pop();
+                tracker.pop();
+            }
+        } else if (skipLevel == 1 && streamReader.isCharacters()) {
+            handleContent(frame);
+        }
+    }
+
+    private void handleEndElement(Frame frame) {
+        if (frame.bundle.isEmpty()) {
+            return;
+        }
+        runner.after(frame.bundle, frame.context);
+    }
+
+    /**
+     * Holds the state of an element which is currently open: its action bundle and its context. Attributes
+     * are copied into the context only if the bundle is not empty.
+     */
+    private static final class Frame {
+        private final LazyElementContext context;
+        private ActionBundle bundle = ActionBundle.EMPTY;
+
+        private Frame(LazyElementContext context) {
+            this.context = context;
+        }
+    }
+
+    /**
+     * A stack of frames for each depth of the document. Frame objects are reused between siblings, so walking
+     * a document allocates only as many frames as deep the document is.
+     */
+    private static final class Frames {
+        private final NamespaceContext namespaceContext;
+        private final QualifiedNameTable names;
+        private Frame[] frames = new Frame[16];
+        private int depth = 0;
+
+        private Frames(NamespaceContext namespaceContext, QualifiedNameTable names) {
+            this.namespaceContext = namespaceContext;
+            this.names = names;
+            frames[0] = new Frame(new LazyElementContext(null, namespaceContext, names));
+        }
+
+        private Frame push(ActionBundle bundle) {
+            if (++depth == frames.length) {
+                frames = Arrays.copyOf(frames, frames.length * 2);
+            }
+            Frame frame = frames[depth];
+            if (frame == null) {
+                frame = new Frame(new LazyElementContext(frames[depth-1].context, namespaceContext, names));
+                frames[depth] = frame;
+            }
+            frame.bundle = bundle;
+            return frame;
+        }
+
+        private Frame current() {
+            return frames[depth];
+        }
+
+        private void pop() {
+            Frame frame = frames[depth--];
+            frame.bundle = ActionBundle.EMPTY;
+            frame.context.leave();
+        }
+    }
+}
@@ -0,0 +1,1297 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A non-blocking {@link XMLStreamReader} which tokenizes a document given to it in arbitrary chunks of bytes.
+ * Bytes are supplied with {@link #feed(ByteBuffer)} and the end of the document is signalled with
+ * {@link #endOfInput()}; {@link #hasNext()} returns {@code false} when the next event cannot be produced from
+ * the bytes received so far, which can be told apart from the end of the document with {@link #needsInput()}.
+ * Text is reported in chunks as soon as it arrives, so long texts do not have to be buffered entirely.
+ *
+ * <p>Alternatively, the reader can pull the document from an {@link InputStream} or a {@link Reader} itself,
+ * blocking when it needs more input, like an ordinary StAX reader does.</p>
+ *
+ * <p>The reader supports namespaces, character and predefined entity references, CDATA sections, comments
+ * and processing instructions. Document type declarations are reported but not processed, so entities declared
+ * in them cannot be used. The encoding is fixed when the reader is created; a document which declares another
+ * encoding is rejected. CDATA sections are reported as {@link #CHARACTERS}. Like StAX parsers, the reader
+ * rejects {@code ]]>} in character data and {@code <} in attribute values.</p>
+ *
+ * <p>All data of the current event is copied out of the input buffer, so it stays valid when more bytes are
+ * fed. The reader is not thread-safe.</p>
+ */
+final class FeedXMLStreamReader implements XMLStreamReader {
+    // Result of scanning when the next event is not complete yet
+    private static final int INCOMPLETE = -1;
+    private static final int NONE = -2;
+
+    private static final int SYMBOL_TABLE_SIZE = 256;
+    private static final int PULL_SIZE = 64 * 1024;
+
+    private final CharsetDecoder decoder;
+    private final InputStream byteSource;
+    private final Reader charSource;
+    private byte[] pullBuffer;
+    private ByteBuffer carry;
+    private boolean endOfInput = false;
+
+    // Decoded characters which have not been consumed yet are buf[pos, limit)
+    private char[] buf = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+    private long offset = 0;  // Offset of buf[0] in the document
+    private int documentStart = -1;  // Offset of the first character after the byte order mark
+
+    // The next event as found by scan(): its type and the number of characters it occupies
+    private int pendingType = NONE;
+    private int pendingLength;
+
+    // Progress of scanning the incomplete markup which starts at document offset scanStart, so that scanning
+    // resumes where it has stopped when more input arrives instead of starting over
+    private long scanStart = -1;
+    private long scanResume;
+    private char scanQuote;
+    private int scanBrackets;
+
+    // Current event
+    private int eventType = START_DOCUMENT;
+    private String localName;
+    private String prefix;
+    private String namespaceUri;
+    private char[] text = new char[256];
+    private int textLength;
+    private String piTarget;
+    private String piData;
+    private String xmlVersion;
+    private String xmlEncoding;
+    private boolean emptyElement = false;
+
+    private int attributeCount;
+    private String[] attributeLocalNames = new String[8];
+    private String[] attributePrefixes = new String[8];
+    private String[] attributeNamespaces = new String[8];
+    private String[] attributeValues = new String[8];
+
+    // Namespace bindings in scope; bindingMarks[d] is the number of bindings before the element at depth d
+    private String[] bindingPrefixes = new String[16];
+    private String[] bindingUris = new String[16];
+    private int bindingCount = 0;
+    private int[] bindingMarks = new int[16];
+
+    // Raw names of the open elements
+    private String[] openNames = new String[16];
+    private int depth = 0;
+    private boolean rootSeen = false;
+    private boolean popPending = false;
+
+    private final String[] symbols = new String[SYMBOL_TABLE_SIZE];
+
+    /**
+     * Creates a reader which is fed by the caller.
+     */
+    FeedXMLStreamReader(Charset charset) {
+        this(charset, null, null);
+    }
+
+    /**
+     * Creates a reader which pulls bytes from the given stream when it needs them.
+     */
+    FeedXMLStreamReader(Charset charset, InputStream source) {
+        this(charset, Preconditions.checkNotNull(source, "Input stream is null"), null);
+    }
+
+    /**
+     * Creates a reader which pulls characters from the given reader when it needs them.
+     */
+    FeedXMLStreamReader(Reader source) {
+        this(Charsets.UTF_8, null, Preconditions.checkNotNull(source, "Reader is null"));
+    }
+
+    private FeedXMLStreamReader(Charset charset, InputStream byteSource, Reader charSource) {
+        this.decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.byteSource = byteSource;
+        this.charSource = charSource;
+    }
+
+    /**
+     * Decodes the remaining bytes of the buffer and appends them to the input. The buffer is consumed entirely;
+     * incomplete multi-byte sequences at its end are remembered until the next call.
+     *
+     * @throws XMLStreamException if the bytes cannot be decoded
+     * @throws IllegalStateException if the end of input has been signalled already
+     */
+    void feed(ByteBuffer bytes) throws XMLStreamException {
+        Preconditions.checkState(!endOfInput, "End of input has been signalled already");
+
+        ByteBuffer input = bytes;
+        if (carry != null) {
+            input = ByteBuffer.allocate(carry.remaining() + bytes.remaining());
+            input.put(carry).put(bytes).flip();
+            carry = null;
+        }
+        decode(input);
+        if (input.hasRemaining()) {
+            carry = ByteBuffer.allocate(input.remaining());
+            carry.put(input).flip();
+        }
+        bytes.position(bytes.limit());
+    }
+
+    /**
+     * Signals that there will be no more bytes.
+     *
+     * @throws XMLStreamException if the input ends with an incomplete character
+     */
+    void endOfInput() throws XMLStreamException {
+        if (endOfInput) {
+            return;
+        }
+        endOfInput = true;
+        ByteBuffer input = carry == null ? ByteBuffer.allocate(0) : carry;
+        carry = null;
+        decode(input);
+        if (pendingType == INCOMPLETE) {
+            pendingType = NONE;
+        }
+    }
+
+    /**
+     * @return {@code true} if the next event cannot be produced until more bytes are fed
+     * @throws XMLStreamException if the input is malformed
+     */
+    boolean needsInput() throws XMLStreamException {
+        return eventType != END_DOCUMENT && scan() == INCOMPLETE;
+    }
+
+    /**
+     * Reads the next portion of the input from the source, blocking if needed.
+     */
+    private void pull() throws XMLStreamException {
+        try {
+            if (byteSource != null) {
+                if (pullBuffer == null) {
+                    pullBuffer = new byte[PULL_SIZE];
+                }
+                int count = byteSource.read(pullBuffer);
+                if (count < 0) {
+                    endOfInput();
+                } else {
+                    feed(ByteBuffer.wrap(pullBuffer, 0, count));
+                }
+            } else {
+                compact();
+                if (buf.length - limit < PULL_SIZE) {
+                    buf = Arrays.copyOf(buf, Math.max(buf.length * 2, limit + PULL_SIZE));
+                }
+                int count = charSource.read(buf, limit, buf.length - limit);
+                if (count < 0) {
+                    endOfInput();
+                } else {
+                    limit += count;
+                    startDocument();
+                }
+            }
+        } catch (IOException e) {
+            throw new XMLStreamException("Cannot read the document", e);
+        }
+        pendingType = NONE;
+    }
+
+    private void decode(ByteBuffer input) throws XMLStreamException {
+        compact();
+        while (true) {
+            CharBuffer output = CharBuffer.wrap(buf, limit, buf.length - limit);
+            CoderResult result = decoder.decode(input, output, endOfInput);
+            if (!result.isOverflow() && endOfInput) {
+                result = decoder.flush(output);
+            }
+            limit = output.position();
+
+            if (result.isOverflow()) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            } else if (result.isError()) {
+                throw new XMLStreamException("Invalid byte sequence at character offset " + (offset + limit));
+            } else {
+                break;
+            }
+        }
+        startDocument();
+        if (pendingType == INCOMPLETE) {
+            pendingType = NONE;
+        }
+    }
+
+    /**
+     * Skips the byte order mark when the first characters arrive.
+     */
+    private void startDocument() {
+        if (documentStart < 0 && limit > 0) {
+            documentStart = buf[0] == '\uFEFF' ? 1 : 0;
+            pos = documentStart;
+        }
+    }
+
+    private void compact() {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            offset += pos;
+            pos = 0;
+        }
+    }
+
+    // ---- Scanning: finding the extent of the next event ----
+
+    /**
+     * Determines the type and the length of the next event without consuming it.
+     *
+     * @return the type of the next event or {@link #INCOMPLETE}
+     */
+    private int scan() throws XMLStreamException {
+        while (pendingType == NONE) {
+            findNext();
+            skipIgnorable();
+            if (pendingType == INCOMPLETE && (byteSource != null || charSource != null)) {
+                pull();
+            }
+        }
+        return pendingType;
+    }
+
+    private void findNext() throws XMLStreamException {
+        if (emptyElement) {
+            pendingLength = 0;
+            pendingType = END_ELEMENT;
+        } else if (pos == limit) {
+            if (!endOfInput) {
+                pendingType = INCOMPLETE;
+            } else if (openDepth() > 0) {
+                throw error("Unexpected end of document inside element " + openNames[openDepth() - 1]);
+            } else if (!rootSeen) {
+                throw error("Document has no root element");
+            } else {
+                pendingLength = 0;
+                pendingType = END_DOCUMENT;
+            }
+        } else if (buf[pos] == '<') {
+            pendingType = scanMarkup();
+        } else {
+            pendingType = scanText();
+        }
+    }
+
+    /**
+     * @return the number of elements which are open after the current event
+     */
+    private int openDepth() {
+        return popPending ? depth - 1 : depth;
+    }
+
+    /**
+     * Consumes the found event if it is not reported: the XML declaration and whitespace outside of the root
+     * element.
+     */
+    private void skipIgnorable() throws XMLStreamException {
+        if (openDepth() == 0 && (pendingType == CHARACTERS || pendingType == CDATA)) {
+            for (int i = pos; i < pos + pendingLength; ++i) {
+                if (!isSpace(buf[i])) {
+                    throw error("Text is not allowed outside of the root element");
+                }
+            }
+        } else if (pendingType == PROCESSING_INSTRUCTION && isXmlDeclaration()) {
+            if (offset + pos != documentStart) {
+                throw error("XML declaration is allowed only at the beginning of the document");
+            }
+            String data = new String(buf, pos + 5, pendingLength - 7);
+            xmlVersion = pseudoAttribute(data, "version");
+            xmlEncoding = pseudoAttribute(data, "encoding");
+            if (xmlEncoding != null && charSource == null) {
+                checkDeclaredEncoding();
+            }
+        } else {
+            return;
+        }
+        pos += pendingLength;
+        pendingType = NONE;
+    }
+
+    private void checkDeclaredEncoding() throws XMLStreamException {
+        Charset declared;
+        try {
+            declared = Charset.forName(xmlEncoding);
+        } catch (IllegalArgumentException e) {
+            throw error("Unsupported encoding " + xmlEncoding);
+        }
+        Charset actual = decoder.charset();
+        // ASCII documents are valid UTF-8 documents as well
+        if (!declared.equals(actual) && !(declared.equals(Charsets.US_ASCII) && actual.equals(Charsets.UTF_8))) {
+            throw error("Document declares encoding " + xmlEncoding + " but is read as " + actual.name());
+        }
+    }
+
+    private boolean isXmlDeclaration() {
+        return pendingLength >= 7 && regionMatches(pos, "<?xml") && isSpace(buf[pos + 5]);
+    }
+
+    private int scanMarkup() throws XMLStreamException {
+        if (pos + 1 >= limit) {
+            return incomplete();
+        }
+        char c = buf[pos + 1];
+        if (c == '/') {
+            return scanUntil(">", END_ELEMENT);
+        } else if (c == '?') {
+            return scanUntil("?>", PROCESSING_INSTRUCTION);
+        } else if (c == '!') {
+            int comment = matches("<!--");
+            int cdata = matches("<![CDATA[");
+            int doctype = matches("<!DOCTYPE");
+            if (comment > 0) {
+                return scanUntil("-->", COMMENT);
+            } else if (cdata > 0) {
+                return scanUntil("]]>", CDATA);
+            } else if (doctype > 0) {
+                return scanDoctype();
+            } else if (comment < 0 || cdata < 0 || doctype < 0) {
+                return incomplete();
+            } else {
+                throw error("Unexpected markup");
+            }
+        } else {
+            return scanStartTag();
+        }
+    }
+
+    /**
+     * @return 1 if the input at the current position starts with the string, 0 if it does not, -1 if there is
+     *         not enough input to decide
+     */
+    private int matches(String s) {
+        for (int i = 0; i < s.length(); ++i) {
+            if (pos + i >= limit) {
+                return endOfInput ? 0 : -1;
+            }
+            if (buf[pos + i] != s.charAt(i)) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Starts or resumes scanning of the markup at the current position.
+     *
+     * @param from the position to start from if the markup has not been scanned yet
+     * @return the position to continue scanning from
+     */
+    private int resumeScan(int from) {
+        if (scanStart != offset + pos) {
+            scanStart = offset + pos;
+            scanResume = offset + from;
+            scanQuote = 0;
+            scanBrackets = 0;
+        }
+        return (int) (scanResume - offset);
+    }
+
+    /**
+     * Remembers the position where scanning of the incomplete markup at the current position has stopped.
+     */
+    private int suspendScan(int at) throws XMLStreamException {
+        scanResume = offset + at;
+        return incomplete();
+    }
+
+    private int scanUntil(String terminator, int type) throws XMLStreamException {
+        char last = terminator.charAt(terminator.length() - 1);
+        int i = resumeScan(pos + terminator.length());
+        for (; i < limit; ++i) {
+            if (buf[i] == last && regionMatches(i + 1 - terminator.length(), terminator)) {
+                pendingLength = i + 1 - pos;
+                return type;
+            }
+        }
+        return suspendScan(i);
+    }
+
+    private boolean regionMatches(int start, String s) {
+        for (int i = 0; i < s.length(); ++i) {
+            if (buf[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int scanStartTag() throws XMLStreamException {
+        int i = resumeScan(pos + 1);
+        char quote = scanQuote;
+        for (; i < limit; ++i) {
+            char c = buf[i];
+            if (c == '<') {
+                throw error(quote != 0 ? "'<' is not allowed in attribute values" : "Unexpected '<' inside a tag");
+            } else if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                pendingLength = i + 1 - pos;
+                return START_ELEMENT;
+            }
+        }
+        scanQuote = quote;
+        return suspendScan(i);
+    }
+
+    private int scanDoctype() throws XMLStreamException {
+        int i = resumeScan(pos + 2);
+        char quote = scanQuote;
+        int brackets = scanBrackets;
+        for (; i < limit; ++i) {
+            char c = buf[i];
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[') {
+                ++brackets;
+            } else if (c == ']') {
+                --brackets;
+            } else if (c == '>' && brackets == 0) {
+                pendingLength = i + 1 - pos;
+                return DTD;
+            }
+        }
+        scanQuote = quote;
+        scanBrackets = brackets;
+        return suspendScan(i);
+    }
+
+    private int scanText() throws XMLStreamException {
+        int end = pos;
+        int ampersand = -1;
+        while (end < limit && buf[end] != '<') {
+            if (buf[end] == '&') {
+                ampersand = end;
+            } else if (buf[end] == ';') {
+                ampersand = -1;
+            } else if (buf[end] == '>' && end - pos >= 2 && buf[end - 1] == ']' && buf[end - 2] == ']') {
+                throw error("']]>' is not allowed in character data");
+            }
+            ++end;
+        }
+        if (end == limit && !endOfInput) {
+            // Only the text which cannot change with more input is reported; trailing brackets are kept
+            // so that ']]>' split between chunks is still found
+            if (ampersand >= 0) {
+                end = ampersand;
+            }
+            for (int brackets = 0; brackets < 2 && end > pos && buf[end - 1] == ']'; ++brackets) {
+                --end;
+            }
+            if (end > pos && buf[end - 1] == '\r') {
+                --end;
+            }
+            if (end == pos) {
+                return INCOMPLETE;
+            }
+        }
+        pendingLength = end - pos;
+        return CHARACTERS;
+    }
+
+    private int incomplete() throws XMLStreamException {
+        if (endOfInput) {
+            throw error("Unexpected end of document");
+        }
+        return INCOMPLETE;
+    }
+
+    // ---- Parsing: turning the scanned characters into the current event ----
+
+    @Override
+    public boolean hasNext() throws XMLStreamException {
+        return eventType != END_DOCUMENT && scan() != INCOMPLETE;
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        if (eventType == END_DOCUMENT) {
+            throw new NoSuchElementException("No more events");
+        }
+        if (!hasNext()) {
+            throw new IllegalStateException("More input is needed");
+        }
+        if (popPending) {
+            popElement();
+        }
+
+        int type = pendingType;
+        int start = pos;
+        int length = pendingLength;
+        pos += length;
+        pendingType = NONE;
+
+        parse(type, start, length);
+        return eventType;
+    }
+
+    /**
+     * Makes the event the current one.
+     */
+    private void parse(int type, int start, int length) throws XMLStreamException {
+        attributeCount = 0;
+        switch (type) {
+            case START_ELEMENT:
+                parseStartTag(start, length);
+                break;
+            case END_ELEMENT:
+                if (emptyElement) {
+                    emptyElement = false;
+                } else {
+                    parseEndTag(start, length);
+                }
+                popPending = true;
+                break;
+            case CHARACTERS:
+                decodeText(start, start + length);
+                break;
+            case CDATA:
+                copyText(start + 9, start + length - 3);
+                type = CHARACTERS;
+                break;
+            case COMMENT:
+                copyText(start + 4, start + length - 3);
+                break;
+            case PROCESSING_INSTRUCTION:
+                parseProcessingInstruction(start, length);
+                break;
+            case DTD:
+                copyText(start, start + length);
+                break;
+            case END_DOCUMENT:
+                break;
+            default:
+                throw new AssertionError("Unknown event " + type);
+        }
+        eventType = type;
+    }
+
+    private void parseStartTag(int start, int length) throws XMLStreamException {
+        if (depth == 0 && rootSeen) {
+            throw error("Only one root element is allowed");
+        }
+        int end = start + length - 1;  // Position of '>'
+        int i = start + 1;
+        int nameEnd = nameEnd(i, end);
+        if (nameEnd == i) {
+            throw error("Element name expected");
+        }
+        String rawName = symbol(i, nameEnd - i);
+        i = nameEnd;
+
+        if (depth + 1 >= bindingMarks.length) {
+            bindingMarks = Arrays.copyOf(bindingMarks, bindingMarks.length * 2);
+            openNames = Arrays.copyOf(openNames, openNames.length * 2);
+        }
+        bindingMarks[depth] = bindingCount;
+
+        while (true) {
+            int afterSpace = skipSpace(i, end);
+            if (afterSpace == end) {
+                break;
+            }
+            if (buf[afterSpace] == '/') {
+                if (afterSpace + 1 != end) {
+                    throw error("Expected '>' after '/'");
+                }
+                emptyElement = true;
+                break;
+            }
+            if (afterSpace == i) {
+                throw error("Whitespace expected between attributes");
+            }
+            i = parseAttribute(afterSpace, end);
+        }
+
+        openNames[depth++] = rawName;
+        rootSeen = true;
+
+        int colon = rawName.indexOf(':');
+        prefix = colon < 0 ? "" : rawName.substring(0, colon);
+        localName = colon < 0 ? rawName : rawName.substring(colon + 1);
+        namespaceUri = resolve(prefix, true);
+
+        for (int a = 0; a < attributeCount; ++a) {
+            String attributePrefix = attributePrefixes[a];
+            attributeNamespaces[a] = attributePrefix.isEmpty() ? "" : resolve(attributePrefix, false);
+            for (int b = 0; b < a; ++b) {
+                if (attributeLocalNames[a].equals(attributeLocalNames[b]) &&
+                    attributeNamespaces[a].equals(attributeNamespaces[b])) {
+                    throw error("Duplicate attribute " + attributeLocalNames[a]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a single attribute or namespace declaration starting at the given position.
+     *
+     * @return position after the closing quote of the value
+     */
+    private int parseAttribute(int start, int end) throws XMLStreamException {
+        int nameEnd = nameEnd(start, end);
+        if (nameEnd == start) {
+            throw error("Attribute name expected");
+        }
+        String rawName = symbol(start, nameEnd - start);
+        int i = skipSpace(nameEnd, end);
+        if (i == end || buf[i] != '=') {
+            throw error("Expected '=' after attribute " + rawName);
+        }
+        i = skipSpace(i + 1, end);
+        if (i == end || buf[i] != '"' && buf[i] != '\'') {
+            throw error("Expected quoted value of attribute " + rawName);
+        }
+        char quote = buf[i];
+        int valueStart = i + 1;
+        int valueEnd = valueStart;
+        while (buf[valueEnd] != quote) {
+            ++valueEnd;
+        }
+        decodeText(valueStart, valueEnd);
+        for (int k = 0; k < textLength; ++k) {
+            if (text[k] == '\t' || text[k] == '\n') {
+                text[k] = ' ';
+            }
+        }
+        String value = new String(text, 0, textLength);
+
+        if (rawName.equals("xmlns")) {
+            bind("", value);
+        } else if (rawName.startsWith("xmlns:")) {
+            String declared = rawName.substring(6);
+            if (value.isEmpty()) {
+                throw error("Prefix " + declared + " cannot be bound to an empty namespace");
+            }
+            bind(declared, value);
+        } else {
+            if (attributeCount == attributeLocalNames.length) {
+                int size = attributeCount * 2;
+                attributeLocalNames = Arrays.copyOf(attributeLocalNames, size);
+                attributePrefixes = Arrays.copyOf(attributePrefixes, size);
+                attributeNamespaces = Arrays.copyOf(attributeNamespaces, size);
+                attributeValues = Arrays.copyOf(attributeValues, size);
+            }
+            int colon = rawName.indexOf(':');
+            attributePrefixes[attributeCount] = colon < 0 ? "" : rawName.substring(0, colon);
+            attributeLocalNames[attributeCount] = colon < 0 ? rawName : rawName.substring(colon + 1);
+            attributeValues[attributeCount] = value;
+            ++attributeCount;
+        }
+        return valueEnd + 1;
+    }
+
+    private void parseEndTag(int start, int length) throws XMLStreamException {
+        int end = start + length - 1;
+        int nameEnd = nameEnd(start + 2, end);
+        if (skipSpace(nameEnd, end) != end) {
+            throw error("Unexpected characters in end tag");
+        }
+        if (depth == 0) {
+            throw error("Unexpected end tag");
+        }
+        String expected = openNames[depth - 1];
+        if (!regionEquals(start + 2, nameEnd, expected)) {
+            throw error("End tag " + new String(buf, start + 2, nameEnd - start - 2) +
+                        " does not match start tag " + expected);
+        }
+
+        int colon = expected.indexOf(':');
+        prefix = colon < 0 ? "" : expected.substring(0, colon);
+        localName = colon < 0 ? expected : expected.substring(colon + 1);
+        namespaceUri = resolve(prefix, true);
+    }
+
+    private void parseProcessingInstruction(int start, int length) throws XMLStreamException {
+        int end = start + length - 2;
+        int targetEnd = nameEnd(start + 2, end);
+        String target = new String(buf, start + 2, targetEnd - start - 2);
+        if (target.isEmpty()) {
+            throw error("Processing instruction target expected");
+        }
+        String data = new String(buf, skipSpace(targetEnd, end), end - skipSpace(targetEnd, end));
+
+        if (target.equalsIgnoreCase("xml")) {
+            throw error("Processing instruction target cannot be " + target);
+        }
+        piTarget = target;
+        piData = data;
+    }
+
+    private static String pseudoAttribute(String data, String name) {
+        int index = data.indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        int quote = index + name.length();
+        while (quote < data.length() && data.charAt(quote) != '"' && data.charAt(quote) != '\'') {
+            ++quote;
+        }
+        if (quote == data.length()) {
+            return null;
+        }
+        int close = data.indexOf(data.charAt(quote), quote + 1);
+        return close < 0 ? null : data.substring(quote + 1, close);
+    }
+
+    private void popElement() {
+        popPending = false;
+        --depth;
+        openNames[depth] = null;
+        int mark = bindingMarks[depth];
+        Arrays.fill(bindingPrefixes, mark, bindingCount, null);
+        Arrays.fill(bindingUris, mark, bindingCount, null);
+        bindingCount = mark;
+    }
+
+    private void bind(String boundPrefix, String uri) {
+        if (bindingCount == bindingPrefixes.length) {
+            bindingPrefixes = Arrays.copyOf(bindingPrefixes, bindingCount * 2);
+            bindingUris = Arrays.copyOf(bindingUris, bindingCount * 2);
+        }
+        bindingPrefixes[bindingCount] = boundPrefix;
+        bindingUris[bindingCount] = uri;
+        ++bindingCount;
+    }
+
+    private String resolve(String boundPrefix, boolean useDefault) throws XMLStreamException {
+        if (boundPrefix.isEmpty() && !useDefault) {
+            return "";
+        }
+        String uri = lookup(boundPrefix);
+        if (uri == null) {
+            if (boundPrefix.isEmpty()) {
+                return "";
+            }
+            throw error("Unbound namespace prefix " + boundPrefix);
+        }
+        return uri;
+    }
+
+    private String lookup(String boundPrefix) {
+        for (int i = bindingCount - 1; i >= 0; --i) {
+            if (bindingPrefixes[i].equals(boundPrefix)) {
+                return bindingUris[i];
+            }
+        }
+        if (boundPrefix.equals(XMLConstants.XML_NS_PREFIX)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        if (boundPrefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+            return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        }
+        return null;
+    }
+
+    /**
+     * Copies the characters into the text buffer, resolving references and normalizing line ends.
+     */
+    private void decodeText(int start, int end) throws XMLStreamException {
+        ensureTextCapacity(end - start);
+        int length = 0;
+        int i = start;
+        while (i < end) {
+            char c = buf[i];
+            if (c == '&') {
+                int semicolon = i + 1;
+                while (semicolon < end && buf[semicolon] != ';') {
+                    ++semicolon;
+                }
+                if (semicolon == end) {
+                    throw error("Unterminated reference");
+                }
+                length = appendReference(i + 1, semicolon, length);
+                i = semicolon + 1;
+            } else if (c == '\r') {
+                text[length++] = '\n';
+                i += i + 1 < end && buf[i + 1] == '\n' ? 2 : 1;
+            } else {
+                text[length++] = c;
+                ++i;
+            }
+        }
+        textLength = length;
+    }
+
+    private int appendReference(int start, int end, int length) throws XMLStreamException {
+        if (buf[start] == '#') {
+            int code;
+            try {
+                if (start + 1 < end && buf[start + 1] == 'x') {
+                    code = Integer.parseInt(new String(buf, start + 2, end - start - 2), 16);
+                } else {
+                    code = Integer.parseInt(new String(buf, start + 1, end - start - 1), 10);
+                }
+            } catch (NumberFormatException e) {
+                throw error("Invalid character reference");
+            }
+            if (!Character.isValidCodePoint(code) || code == 0) {
+                throw error("Invalid character reference");
+            }
+            return length + Character.toChars(code, text, length);
+        }
+
+        char c;
+        if (regionEquals(start, end, "lt")) {
+            c = '<';
+        } else if (regionEquals(start, end, "gt")) {
+            c = '>';
+        } else if (regionEquals(start, end, "amp")) {
+            c = '&';
+        } else if (regionEquals(start, end, "quot")) {
+            c = '"';
+        } else if (regionEquals(start, end, "apos")) {
+            c = '\'';
+        } else {
+            throw error("Undeclared entity " + new String(buf, start, end - start));
+        }
+        text[length] = c;
+        return length + 1;
+    }
+
+    private void copyText(int start, int end) {
+        ensureTextCapacity(end - start);
+        int length = 0;
+        for (int i = start; i < end; ++i) {
+            char c = buf[i];
+            if (c == '\r') {
+                text[length++] = '\n';
+                if (i + 1 < end && buf[i + 1] == '\n') {
+                    ++i;
+                }
+            } else {
+                text[length++] = c;
+            }
+        }
+        textLength = length;
+    }
+
+    private void ensureTextCapacity(int capacity) {
+        if (text.length < capacity) {
+            text = new char[Math.max(capacity, text.length * 2)];
+        }
+    }
+
+    private boolean regionEquals(int start, int end, String s) {
+        return end - start == s.length() && regionMatches(start, s);
+    }
+
+    private int nameEnd(int start, int end) {
+        int i = start;
+        while (i < end && !isSpace(buf[i]) && buf[i] != '/' && buf[i] != '=' && buf[i] != '>' && buf[i] != '?') {
+            ++i;
+        }
+        return i;
+    }
+
+    private int skipSpace(int start, int end) {
+        int i = start;
+        while (i < end && isSpace(buf[i])) {
+            ++i;
+        }
+        return i;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Returns a string with the given characters, reusing strings created for recently seen names.
+     */
+    private String symbol(int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; ++i) {
+            hash = 31 * hash + buf[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & (SYMBOL_TABLE_SIZE - 1);
+        String symbol = symbols[index];
+        if (symbol == null || !regionEquals(start, start + length, symbol)) {
+            symbol = new String(buf, start, length);
+            symbols[index] = symbol;
+        }
+        return symbol;
+    }
+
+    private XMLStreamException error(String message) {
+        return new XMLStreamException(message + " at character offset " + (offset + pos));
+    }
+
+    // ---- Current event accessors ----
+
+    @Override
+    public int getEventType() {
+        return eventType;
+    }
+
+    @Override
+    public boolean isStartElement() {
+        return eventType == START_ELEMENT;
+    }
+
+    @Override
+    public boolean isEndElement() {
+        return eventType == END_ELEMENT;
+    }
+
+    @Override
+    public boolean isCharacters() {
+        return eventType == CHARACTERS;
+    }
+
+    @Override
+    public boolean isWhiteSpace() {
+        if (eventType != CHARACTERS && eventType != SPACE) {
+            return false;
+        }
+        for (int i = 0; i < textLength; ++i) {
+            if (!isSpace(text[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public QName getName() {
+        checkElement();
+        return new QName(namespaceUri, localName, prefix);
+    }
+
+    @Override
+    public String getLocalName() {
+        checkElement();
+        return localName;
+    }
+
+    @Override
+    public boolean hasName() {
+        return eventType == START_ELEMENT || eventType == END_ELEMENT;
+    }
+
+    @Override
+    public String getNamespaceURI() {
+        checkElement();
+        return namespaceUri.isEmpty() ? null : namespaceUri;
+    }
+
+    @Override
+    public String getPrefix() {
+        checkElement();
+        return prefix;
+    }
+
+    private void checkElement() {
+        Preconditions.checkState(hasName(), "Current event is not an element");
+    }
+
+    @Override
+    public int getAttributeCount() {
+        Preconditions.checkState(eventType == START_ELEMENT, "Current event is not a start element");
+        return attributeCount;
+    }
+
+    @Override
+    public QName getAttributeName(int index) {
+        return new QName(attributeNamespaces[index], attributeLocalNames[index], attributePrefixes[index]);
+    }
+
+    @Override
+    public String getAttributeNamespace(int index) {
+        String namespace = attributeNamespaces[index];
+        return namespace.isEmpty() ? null : namespace;
+    }
+
+    @Override
+    public String getAttributeLocalName(int index) {
+        return attributeLocalNames[index];
+    }
+
+    @Override
+    public String getAttributePrefix(int index) {
+        return attributePrefixes[index];
+    }
+
+    @Override
+    public String getAttributeType(int index) {
+        return "CDATA";
+    }
+
+    @Override
+    public String getAttributeValue(int index) {
+        return attributeValues[index];
+    }
+
+    @Override
+    public boolean isAttributeSpecified(int index) {
+        return true;
+    }
+
+    @Override
+    public String getAttributeValue(String namespace, String name) {
+        for (int i = 0; i < attributeCount; ++i) {
+            if (attributeLocalNames[i].equals(name) &&
+                (namespace == null || attributeNamespaces[i].equals(namespace))) {
+                return attributeValues[i];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getNamespaceCount() {
+        checkElement();
+        return bindingCount - bindingMarks[depth - 1];
+    }
+
+    @Override
+    public String getNamespacePrefix(int index) {
+        String boundPrefix = bindingPrefixes[bindingMarks[depth - 1] + index];
+        return boundPrefix.isEmpty() ? null : boundPrefix;
+    }
+
+    @Override
+    public String getNamespaceURI(int index) {
+        String uri = bindingUris[bindingMarks[depth - 1] + index];
+        return uri.isEmpty() ? null : uri;
+    }
+
+    @Override
+    public String getNamespaceURI(String boundPrefix) {
+        Preconditions.checkNotNull(boundPrefix, "Prefix is null");
+        return lookup(boundPrefix);
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return new NamespaceContext() {
+            @Override
+            public String getNamespaceURI(String boundPrefix) {
+                String uri = lookup(boundPrefix);
+                return uri == null ? XMLConstants.NULL_NS_URI : uri;
+            }
+
+            @Override
+            public String getPrefix(String uri) {
+                for (int i = bindingCount - 1; i >= 0; --i) {
+                    if (bindingUris[i].equals(uri) && lookup(bindingPrefixes[i]).equals(uri)) {
+                        return bindingPrefixes[i];
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(String uri) {
+                String found = getPrefix(uri);
+                return found == null ? Collections.<String>emptyIterator() : Collections.singleton(found).iterator();
+            }
+        };
+    }
+
+    @Override
+    public boolean hasText() {
+        return eventType == CHARACTERS || eventType == COMMENT || eventType == SPACE || eventType == DTD;
+    }
+
+    @Override
+    public String getText() {
+        Preconditions.checkState(hasText(), "Current event has no text");
+        return new String(text, 0, textLength);
+    }
+
+    @Override
+    public char[] getTextCharacters() {
+        Preconditions.checkState(hasText(), "Current event has no text");
+        return text;
+    }
+
+    @Override
+    public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) {
+        Preconditions.checkState(hasText(), "Current event has no text");
+        int count = Math.max(0, Math.min(length, textLength - sourceStart));
+        System.arraycopy(text, sourceStart, target, targetStart, count);
+        return count;
+    }
+
+    @Override
+    public int getTextStart() {
+        return 0;
+    }
+
+    @Override
+    public int getTextLength() {
+        return textLength;
+    }
+
+    @Override
+    public String getPITarget() {
+        return eventType == PROCESSING_INSTRUCTION ? piTarget : null;
+    }
+
+    @Override
+    public String getPIData() {
+        return eventType == PROCESSING_INSTRUCTION ? piData : null;
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException {
+        Preconditions.checkState(eventType == START_ELEMENT, "Current event is not a start element");
+        StringBuilder builder = new StringBuilder();
+        while (next() != END_ELEMENT) {
+            if (eventType == CHARACTERS) {
+                builder.append(text, 0, textLength);
+            } else if (eventType == START_ELEMENT) {
+                throw error("Element text cannot contain elements");
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        while (true) {
+            int type = next();
+            if (type == START_ELEMENT || type == END_ELEMENT) {
+                return type;
+            }
+            if (type == CHARACTERS && !isWhiteSpace() || type == END_DOCUMENT) {
+                throw error("Expected start or end tag");
+            }
+        }
+    }
+
+    @Override
+    public void require(int type, String namespace, String name) throws XMLStreamException {
+        if (type != eventType ||
+            namespace != null && !namespace.equals(getNamespaceURI()) ||
+            name != null && !name.equals(getLocalName())) {
+            throw error("Required event is not the current one");
+        }
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return null;
+    }
+
+    @Override
+    public Location getLocation() {
+        final long characterOffset = offset + pos;
+        return new Location() {
+            @Override
+            public int getLineNumber() {
+                return -1;
+            }
+
+            @Override
+            public int getColumnNumber() {
+                return -1;
+            }
+
+            @Override
+            public int getCharacterOffset() {
+                return (int) Math.min(characterOffset, Integer.MAX_VALUE);
+            }
+
+            @Override
+            public String getPublicId() {
+                return null;
+            }
+
+            @Override
+            public String getSystemId() {
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public String getEncoding() {
+        return decoder.charset().name();
+    }
+
+    @Override
+    public String getVersion() {
+        return xmlVersion;
+    }
+
+    @Override
+    public boolean isStandalone() {
+        return false;
+    }
+
+    @Override
+    public boolean standaloneSet() {
+        return false;
+    }
+
+    @Override
+    public String getCharacterEncodingScheme() {
+        return xmlEncoding;
+    }
+
+    @Override
+    public void close() {
+        buf = new char[0];
+        pos = 0;
+        limit = 0;
+        carry = null;
+    }
+}
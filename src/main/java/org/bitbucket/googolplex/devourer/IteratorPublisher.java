@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Supplier;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single-subscriber {@link RecordFlow.Publisher} which pulls items from a {@link RecordIterator}. The
+ * iterator is advanced only while the subscriber has outstanding demand, so parsing pauses when the demand
+ * drops to zero and resumes on the next request. Items are delivered by the given executor; requests made
+ * while items are being delivered do not cause recursion, they just extend the current delivery loop.
+ *
+ * @param <T> type of the items
+ */
+class IteratorPublisher<T> implements RecordFlow.Publisher<T> {
+    private final Supplier<RecordIterator<T>> iteratorSupplier;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+    IteratorPublisher(Supplier<RecordIterator<T>> iteratorSupplier, Executor executor) {
+        this.iteratorSupplier = iteratorSupplier;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(RecordFlow.Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber is null");
+        }
+
+        // The underlying document can be read only once
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new RecordFlow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("This publisher supports only one subscriber"));
+            return;
+        }
+
+        IteratorSubscription<T> subscription = new IteratorSubscription<T>(subscriber, executor);
+        subscriber.onSubscribe(subscription);
+        subscription.start(iteratorSupplier);
+    }
+
+    private static final class IteratorSubscription<T> implements RecordFlow.Subscription, Runnable {
+        private final RecordFlow.Subscriber<? super T> subscriber;
+        private final Executor executor;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile RecordIterator<T> iterator;
+        private volatile boolean cancelled = false;
+        private volatile Throwable invalidRequest;
+        private boolean done = false;
+
+        private IteratorSubscription(RecordFlow.Subscriber<? super T> subscriber, Executor executor) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        private void start(Supplier<RecordIterator<T>> iteratorSupplier) {
+            try {
+                iterator = iteratorSupplier.get();
+            } catch (RuntimeException e) {
+                cancelled = true;
+                subscriber.onError(e);
+                return;
+            }
+            // Requests could have arrived from onSubscribe before the iterator was ready
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (iterator != null && wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * The delivery loop; only one instance of it runs at any time.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                if (done) {
+                    return;
+                }
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    finish();
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand && !cancelled) {
+                    T item;
+                    try {
+                        if (!iterator.hasNext()) {
+                            finish();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        item = iterator.next();
+                    } catch (RuntimeException e) {
+                        finish();
+                        subscriber.onError(e);
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    ++emitted;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void finish() {
+            done = true;
+            cancelled = true;
+            iterator.close();
+        }
+    }
+}
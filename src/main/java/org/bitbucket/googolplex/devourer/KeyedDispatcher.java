@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Function;
+import org.bitbucket.googolplex.devourer.configuration.PipelineConfig;
+import org.bitbucket.googolplex.devourer.exceptions.ActionException;
+import org.bitbucket.googolplex.devourer.exceptions.DevourerException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Distributes records among a fixed number of worker threads. Each worker owns a bounded queue; the worker for
+ * a record is chosen by the hash code of the record key, so records with equal keys are processed by the same
+ * worker in the order they were submitted. Submission blocks while the queue of the chosen worker is full.
+ *
+ * <p>When a handler fails, the failure is remembered and all workers keep draining their queues without
+ * processing anything, so the submitting thread never blocks forever; the failure is rethrown from the next
+ * {@link #submit(Object)} or from {@link #finish()}.</p>
+ *
+ * <p>{@link #abort()} waits for the workers to stop for a limited time only, so a handler which ignores
+ * interruption may still be running when it returns.</p>
+ *
+ * @param <T> type of the records
+ */
+class KeyedDispatcher<T> {
+    // Signals the end of records to the workers
+    private static final Object END = new Object();
+    // How long abort() waits for the workers to stop
+    private static final long ABORT_TIMEOUT_MILLIS = 1000;
+
+    private final Function<? super T, ?> keyFunction;
+    private final RecordHandler<? super T> handler;
+    private final List<Worker> workers;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    KeyedDispatcher(Function<? super T, ?> keyFunction, RecordHandler<? super T> handler, PipelineConfig config) {
+        this.keyFunction = keyFunction;
+        this.handler = handler;
+        this.workers = new ArrayList<Worker>(config.workers);
+        for (int i = 0; i < config.workers; ++i) {
+            workers.add(new Worker(config.queueCapacity));
+        }
+        for (Worker worker : workers) {
+            worker.thread = config.threadFactory.newThread(worker);
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Hands the record to its worker, waiting for a free place in the worker queue if needed.
+     *
+     * @throws ActionException if some record has failed to be processed or if the key function has failed
+     */
+    void submit(T record) {
+        checkFailure();
+
+        Object key;
+        try {
+            key = keyFunction.apply(record);
+        } catch (RuntimeException e) {
+            throw new ActionException("An exception has occured in key function", e);
+        }
+        int index = key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE) % workers.size();
+        try {
+            workers.get(index).queue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DevourerException("Interrupted while submitting a record", e);
+        }
+    }
+
+    /**
+     * Waits until all submitted records are processed and stops the workers.
+     *
+     * @throws ActionException if some record has failed to be processed
+     */
+    void finish() {
+        try {
+            for (Worker worker : workers) {
+                worker.queue.put(END);
+            }
+            for (Worker worker : workers) {
+                worker.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new DevourerException("Interrupted while waiting for records to be processed", e);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Stops the workers as soon as possible, dropping all records which have not been processed yet, and waits
+     * a bounded time until they stop.
+     */
+    void abort() {
+        failure.compareAndSet(null, new DevourerException("Processing has been aborted"));
+        for (Worker worker : workers) {
+            worker.queue.clear();
+            // Stops the worker even if its handler swallows the interruption; the queue has just been emptied,
+            // so there is a place for the marker
+            worker.queue.offer(END);
+            worker.thread.interrupt();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ABORT_TIMEOUT_MILLIS);
+        try {
+            for (Worker worker : workers) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedJoin(worker.thread, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() {
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new ActionException("An exception has occured in record handler", cause);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final BlockingQueue<Object> queue;
+        private Thread thread;
+
+        private Worker(int capacity) {
+            this.queue = new ArrayBlockingQueue<Object>(capacity);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            try {
+                while (true) {
+                    Object record = queue.take();
+                    if (record == END) {
+                        return;
+                    }
+                    // After a failure records are only drained
+                    if (failure.get() == null) {
+                        try {
+                            handler.handle((T) record);
+                        } catch (Throwable e) {
+                            // Errors are recorded too, otherwise the queue of a dead worker would block submission
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Aborted
+            }
+        }
+    }
+}
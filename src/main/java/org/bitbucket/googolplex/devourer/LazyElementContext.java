@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.bitbucket.googolplex.devourer.contexts.DefaultElementContext;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNameTable;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A reusable {@link ElementContext} which belongs to a single depth of the document. Devourer refills it with
+ * the data of each element it enters on that depth, so its contents are valid only while the element is open;
+ * use {@link #detach()} to obtain an independent copy.
+ *
+ * <p>Attributes are kept as plain strings copied from the reader; {@link QualifiedName}s for them are created
+ * only when somebody asks for {@link #attributeNames()}. The reader's own namespace context is not retained:
+ * each context remembers the namespace declarations of its element and resolves prefixes by walking up
+ * through the contexts of its ancestors.</p>
+ */
+final class LazyElementContext implements ElementContext {
+    private final LazyElementContext parent;
+    private final NamespaceContext customNamespaceContext;
+    private final QualifiedNameTable names;
+    private final javax.xml.namespace.NamespaceContext realNamespaceContext = new RealNamespaceContext();
+
+    private QualifiedName name;
+
+    private int attributeCount = 0;
+    private String[] attributeLocalNames = new String[4];
+    private String[] attributeNamespaces = new String[4];
+    private String[] attributePrefixes = new String[4];
+    private String[] attributeValues = new String[4];
+    private List<QualifiedName> attributeNames;
+
+    private int namespaceCount = 0;
+    private String[] namespacePrefixes = new String[2];
+    private String[] namespaceUris = new String[2];
+
+    LazyElementContext(LazyElementContext parent, NamespaceContext customNamespaceContext,
+                       QualifiedNameTable names) {
+        this.parent = parent;
+        this.customNamespaceContext = customNamespaceContext;
+        this.names = names;
+    }
+
+    /**
+     * Remembers the name and the namespace declarations of the element the reader is positioned at.
+     */
+    void enter(XMLStreamReader reader, QualifiedName name) {
+        this.name = name;
+
+        int count = reader.getNamespaceCount();
+        if (count > namespacePrefixes.length) {
+            namespacePrefixes = new String[count];
+            namespaceUris = new String[count];
+        }
+        for (int i = 0; i < count; ++i) {
+            namespacePrefixes[i] = nullToEmpty(reader.getNamespacePrefix(i));
+            namespaceUris[i] = nullToEmpty(reader.getNamespaceURI(i));
+        }
+        namespaceCount = count;
+    }
+
+    /**
+     * Copies the attributes of the element the reader is positioned at.
+     */
+    void captureAttributes(XMLStreamReader reader) {
+        int count = reader.getAttributeCount();
+        if (count > attributeLocalNames.length) {
+            attributeLocalNames = new String[count];
+            attributeNamespaces = new String[count];
+            attributePrefixes = new String[count];
+            attributeValues = new String[count];
+        }
+        for (int i = 0; i < count; ++i) {
+            attributeLocalNames[i] = reader.getAttributeLocalName(i);
+            attributeNamespaces[i] = nullToEmpty(reader.getAttributeNamespace(i));
+            attributePrefixes[i] = nullToEmpty(reader.getAttributePrefix(i));
+            attributeValues[i] = reader.getAttributeValue(i);
+        }
+        attributeCount = count;
+    }
+
+    /**
+     * Forgets everything about the current element.
+     */
+    void leave() {
+        Arrays.fill(attributeLocalNames, 0, attributeCount, null);
+        Arrays.fill(attributeNamespaces, 0, attributeCount, null);
+        Arrays.fill(attributePrefixes, 0, attributeCount, null);
+        Arrays.fill(attributeValues, 0, attributeCount, null);
+        attributeCount = 0;
+        attributeNames = null;
+
+        Arrays.fill(namespacePrefixes, 0, namespaceCount, null);
+        Arrays.fill(namespaceUris, 0, namespaceCount, null);
+        namespaceCount = 0;
+
+        name = null;
+    }
+
+    @Override
+    public QualifiedName elementName() {
+        return name;
+    }
+
+    @Override
+    public javax.xml.namespace.NamespaceContext realNamespaceContext() {
+        return realNamespaceContext;
+    }
+
+    @Override
+    public NamespaceContext customNamespaceContext() {
+        return customNamespaceContext;
+    }
+
+    @Override
+    public Collection<QualifiedName> attributeNames() {
+        if (attributeNames == null) {
+            ImmutableList.Builder<QualifiedName> builder = ImmutableList.builder();
+            for (int i = 0; i < attributeCount; ++i) {
+                builder.add(attributeName(i));
+            }
+            attributeNames = builder.build();
+        }
+        return attributeNames;
+    }
+
+    @Override
+    public Optional<String> attribute(String localName) {
+        checkNotNull(localName, "Local name is null");
+
+        return find(localName, XMLConstants.NULL_NS_URI);
+    }
+
+    @Override
+    public Optional<String> attribute(String localName, String namespace) {
+        checkNotNull(localName, "Local name is null");
+        checkNotNull(namespace, "Namespace is null");
+
+        return find(localName, namespace);
+    }
+
+    @Override
+    public Optional<String> attributeWithPrefix(String localName, String prefix) {
+        checkNotNull(localName, "Local name is null");
+        checkNotNull(prefix, "Prefix is null");
+
+        Optional<String> namespace = customNamespaceContext.namespace(prefix);
+        if (namespace.isPresent()) {
+            return find(localName, namespace.get());
+        } else {
+            return Optional.absent();
+        }
+    }
+
+    @Override
+    public Optional<String> attribute(QualifiedName name) {
+        checkNotNull(name, "Name is null");
+
+        return find(name.localName, name.namespace.or(XMLConstants.NULL_NS_URI));
+    }
+
+    @Override
+    public ElementContext detach() {
+        DefaultElementContext.Builder builder = new DefaultElementContext.Builder();
+
+        builder.setName(name);
+        builder.setRealNamespaceContext(new SnapshotNamespaceContext(namespaceBindings()));
+        builder.setCustomNamespaceContext(customNamespaceContext);
+        for (int i = 0; i < attributeCount; ++i) {
+            builder.addAttribute(attributeName(i), attributeValues[i]);
+        }
+
+        return builder.build();
+    }
+
+    private Optional<String> find(String localName, String namespace) {
+        for (int i = 0; i < attributeCount; ++i) {
+            if (attributeLocalNames[i].equals(localName) && attributeNamespaces[i].equals(namespace)) {
+                return Optional.of(attributeValues[i]);
+            }
+        }
+        return Optional.absent();
+    }
+
+    private QualifiedName attributeName(int i) {
+        return names.get(attributeLocalNames[i], attributeNamespaces[i], attributePrefixes[i]);
+    }
+
+    /**
+     * @return namespace URI bound to the given prefix at this element, or {@code null} if there is no binding
+     */
+    private String lookupNamespace(String prefix) {
+        for (LazyElementContext context = this; context != null; context = context.parent) {
+            for (int i = 0; i < context.namespaceCount; ++i) {
+                if (context.namespacePrefixes[i].equals(prefix)) {
+                    return context.namespaceUris[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return all prefix bindings visible at this element; inner declarations shadow outer ones
+     */
+    private Map<String, String> namespaceBindings() {
+        Map<String, String> bindings = Maps.newLinkedHashMap();
+        for (LazyElementContext context = this; context != null; context = context.parent) {
+            for (int i = 0; i < context.namespaceCount; ++i) {
+                if (!bindings.containsKey(context.namespacePrefixes[i])) {
+                    bindings.put(context.namespacePrefixes[i], context.namespaceUris[i]);
+                }
+            }
+        }
+        return bindings;
+    }
+
+    private static String nullToEmpty(String string) {
+        return string == null ? "" : string;
+    }
+
+    /**
+     * A view of the namespace bindings of the element this context currently describes.
+     */
+    private final class RealNamespaceContext implements javax.xml.namespace.NamespaceContext {
+        @Override
+        public String getNamespaceURI(String prefix) {
+            checkNotNull(prefix, "Prefix is null");
+
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                return XMLConstants.XML_NS_URI;
+            } else if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+                return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+            String namespace = lookupNamespace(prefix);
+            return namespace == null ? XMLConstants.NULL_NS_URI : namespace;
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            return new SnapshotNamespaceContext(namespaceBindings()).getPrefix(namespaceURI);
+        }
+
+        @Override
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            return new SnapshotNamespaceContext(namespaceBindings()).getPrefixes(namespaceURI);
+        }
+    }
+
+    /**
+     * An immutable namespace context over a fixed set of prefix bindings.
+     */
+    private static final class SnapshotNamespaceContext implements javax.xml.namespace.NamespaceContext {
+        private final Map<String, String> bindings;
+
+        private SnapshotNamespaceContext(Map<String, String> bindings) {
+            this.bindings = ImmutableMap.copyOf(bindings);
+        }
+
+        @Override
+        public String getNamespaceURI(String prefix) {
+            checkNotNull(prefix, "Prefix is null");
+
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                return XMLConstants.XML_NS_URI;
+            } else if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+                return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+            String namespace = bindings.get(prefix);
+            return namespace == null ? XMLConstants.NULL_NS_URI : namespace;
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            Iterator<String> prefixes = getPrefixes(namespaceURI);
+            return prefixes.hasNext() ? prefixes.next() : null;
+        }
+
+        @Override
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            checkNotNull(namespaceURI, "Namespace URI is null");
+
+            if (XMLConstants.XML_NS_URI.equals(namespaceURI)) {
+                return ImmutableList.of(XMLConstants.XML_NS_PREFIX).iterator();
+            } else if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespaceURI)) {
+                return ImmutableList.of(XMLConstants.XMLNS_ATTRIBUTE).iterator();
+            } else if (XMLConstants.NULL_NS_URI.equals(namespaceURI)) {
+                // Elements without a namespace can use the default prefix only if there is no default namespace
+                String defaultNamespace = bindings.get(XMLConstants.DEFAULT_NS_PREFIX);
+                if (defaultNamespace == null || defaultNamespace.isEmpty()) {
+                    return ImmutableList.of(XMLConstants.DEFAULT_NS_PREFIX).iterator();
+                } else {
+                    return ImmutableList.<String>of().iterator();
+                }
+            }
+
+            List<String> prefixes = Lists.newArrayList();
+            for (Map.Entry<String, String> entry : bindings.entrySet()) {
+                if (entry.getValue().equals(namespaceURI)) {
+                    prefixes.add(entry.getKey());
+                }
+            }
+            return prefixes.iterator();
+        }
+    }
+}
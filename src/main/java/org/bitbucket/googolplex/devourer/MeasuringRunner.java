@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.metrics.ActionPhase;
+import org.bitbucket.googolplex.devourer.metrics.DevourerMetrics;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+
+/**
+ * Times the actions executed by another runner and reports them to {@link DevourerMetrics}. It is installed only
+ * when metrics are configured, so unmeasured parsing does not pay for the timing. Actions which throw
+ * an exception are not reported.
+ */
+final class MeasuringRunner implements ActionRunner {
+    private final ActionRunner delegate;
+    private final DevourerMetrics metrics;
+
+    MeasuringRunner(ActionRunner delegate, DevourerMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void before(ActionBundle bundle, ElementContext context) {
+        if (bundle.befores.isEmpty()) {
+            delegate.before(bundle, context);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.before(bundle, context);
+        metrics.actionsExecuted(bundle, ActionPhase.BEFORE, bundle.befores.size(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void at(ActionBundle bundle, ElementContext context, CharSequence body) {
+        long start = System.nanoTime();
+        delegate.at(bundle, context, body);
+        metrics.actionsExecuted(bundle, ActionPhase.AT, bundle.bodyActions.size(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void after(ActionBundle bundle, ElementContext context) {
+        if (bundle.afters.isEmpty()) {
+            delegate.after(bundle, context);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.after(bundle, context);
+        metrics.actionsExecuted(bundle, ActionPhase.AFTER, bundle.afters.size(), System.nanoTime() - start);
+    }
+}
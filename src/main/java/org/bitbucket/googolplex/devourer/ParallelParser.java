@@ -0,0 +1,523 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.bitbucket.googolplex.devourer.configuration.DevourerConfig;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNameTable;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.exceptions.DevourerException;
+import org.bitbucket.googolplex.devourer.exceptions.ParsingException;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+import org.bitbucket.googolplex.devourer.paths.mappings.PathMapping;
+import org.bitbucket.googolplex.devourer.paths.mappings.PathTracker;
+import org.bitbucket.googolplex.devourer.stacks.DefaultStacks;
+import org.bitbucket.googolplex.devourer.stacks.Stack;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses a single file consisting of a flat sequence of records in several threads. The file is split into byte
+ * ranges which start at start tags of record elements; each range is parsed by its own {@link DocumentWalker}
+ * as a separate document, and the resulting stacks are merged in document order.
+ *
+ * <p>To make a range a well-formed document, the start tags of the ancestors of the records, together with their
+ * namespace declarations, are prepended to it, and the corresponding end tags are appended. The first range
+ * keeps the original beginning of the file and the last one keeps its original end.</p>
+ *
+ * <p>Since the ancestors of the records are seen by every range, their actions are never executed; only
+ * the actions of the elements at the depth of the records and below are.</p>
+ */
+class ParallelParser {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    // Record start tags closer than this to the end of a block are looked for in the next block
+    private static final int MAX_NAME_LENGTH = 512;
+
+    private final DevourerConfig config;
+    private final ParserBackend parserBackend;
+    private final PathMapping pathMapping;
+    private final NamespaceContext namespaceContext;
+    private final QualifiedNameTable names;
+    // Elements walked by all ranges, reported to the metrics as a single document
+    private final AtomicLong elementCount = new AtomicLong();
+
+    ParallelParser(DevourerConfig config, ParserBackend parserBackend, PathMapping pathMapping,
+                   NamespaceContext namespaceContext, QualifiedNameTable names) {
+        this.config = config;
+        this.parserBackend = parserBackend;
+        this.pathMapping = pathMapping;
+        this.namespaceContext = namespaceContext;
+        this.names = names;
+    }
+
+    Stacks parse(Path path, String recordPath, int parallelism) {
+        List<String> segments = ImmutableList.copyOf(Splitter.on('/').omitEmptyStrings().split(recordPath));
+        Preconditions.checkArgument(recordPath.startsWith("/") && !segments.isEmpty(),
+                                    "Record path is not an absolute path of an element: %s", recordPath);
+        for (String segment : segments) {
+            Preconditions.checkArgument(!segment.contains("*"), "Record path contains wildcards: %s", recordPath);
+        }
+        String recordName = segments.get(segments.size() - 1);
+        byte[] recordLocalName = recordName.substring(recordName.indexOf(':') + 1).getBytes(Charsets.UTF_8);
+        int recordDepth = segments.size();
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new DevourerException("Cannot open file " + path, e);
+        }
+        try {
+            return parse(channel, recordLocalName, recordDepth, parallelism);
+        } catch (IOException e) {
+            throw new DevourerException("Cannot read file " + path, e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Do nothing
+            }
+        }
+    }
+
+    private Stacks parse(FileChannel channel, byte[] recordName, int recordDepth, int parallelism)
+        throws IOException {
+        long startNanos = System.nanoTime();
+        long size = channel.size();
+        List<Range> ranges = new ArrayList<Range>();
+
+        long first = findRecordStart(channel, 0, size, recordName);
+        if (first < 0) {
+            // Nothing to split
+            ranges.add(new Range(channel, 0, size, new byte[0], new byte[0]));
+        } else {
+            Prologue prologue = readPrologue(channel, first, recordDepth);
+            List<Long> boundaries = splitPoints(channel, first, size, recordName, parallelism);
+            for (int i = 0; i < boundaries.size(); ++i) {
+                boolean isFirst = i == 0;
+                boolean isLast = i == boundaries.size() - 1;
+                ranges.add(new Range(
+                    channel,
+                    isFirst ? 0 : boundaries.get(i),
+                    isLast ? size : boundaries.get(i + 1),
+                    isFirst ? new byte[0] : prologue.startTags,
+                    isLast ? new byte[0] : prologue.endTags
+                ));
+            }
+        }
+
+        Stacks result = merge(parseRanges(ranges, new RecordScopedMapping(pathMapping, recordDepth)));
+        if (config.metrics.isPresent()) {
+            config.metrics.get().documentParsed(elementCount.get(), size, System.nanoTime() - startNanos);
+        }
+        return result;
+    }
+
+    private List<Long> splitPoints(FileChannel channel, long first, long size, byte[] recordName, int parallelism)
+        throws IOException {
+        List<Long> points = new ArrayList<Long>();
+        points.add(first);
+        for (int i = 1; i < parallelism; ++i) {
+            long last = points.get(points.size() - 1);
+            long target = Math.max(first + (size - first) / parallelism * i, last + 1);
+            long point = findRecordStart(channel, target, size, recordName);
+            if (point < 0) {
+                break;
+            }
+            points.add(point);
+        }
+        return points;
+    }
+
+    private List<Stacks> parseRanges(List<Range> ranges, final PathMapping mapping) {
+        if (ranges.size() == 1) {
+            return ImmutableList.of(parseRange(ranges.get(0), mapping));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+            ranges.size(), new ThreadFactoryBuilder().setNameFormat("devourer-parallel-%d").setDaemon(true).build()
+        );
+        try {
+            List<Future<Stacks>> futures = new ArrayList<Future<Stacks>>();
+            for (final Range range : ranges) {
+                futures.add(executor.submit(new Callable<Stacks>() {
+                    @Override
+                    public Stacks call() {
+                        return parseRange(range, mapping);
+                    }
+                }));
+            }
+
+            List<Stacks> results = new ArrayList<Stacks>();
+            for (Future<Stacks> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DevourerException("Interrupted while parsing a file", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Stacks parseRange(Range range, PathMapping mapping) {
+        XMLStreamReader streamReader;
+        try {
+            streamReader = parserBackend.createReader(range.open());
+        } catch (XMLStreamException e) {
+            throw new ParsingException("Error while parsing XML document", e);
+        }
+
+        DocumentWalker walker = new DocumentWalker(
+            config, mapping, namespaceContext, names, streamReader, new DefaultStacks()
+        );
+        walker.ignoreDocumentMetrics();
+        try {
+            walker.walk();
+            elementCount.addAndGet(walker.elementCount());
+            return walker.stacks();
+        } finally {
+            walker.close();
+        }
+    }
+
+    private static Stacks merge(List<Stacks> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+
+        DefaultStacks result = new DefaultStacks();
+        for (Stacks part : parts) {
+            DefaultStacks stacks = (DefaultStacks) part;
+            for (String name : stacks.stackNames()) {
+                Stack target = result.get(name);
+                for (Object object : stacks.get(name).popList()) {
+                    target.push(object);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the part of the file before the first record and reconstructs the start and end tags
+     * of the ancestors of the records.
+     */
+    private Prologue readPrologue(FileChannel channel, long length, int recordDepth) throws IOException {
+        Preconditions.checkArgument(length <= Integer.MAX_VALUE, "The part before the first record is too large");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        readFully(channel, buffer, 0);
+
+        Deque<AncestorTag> open = new ArrayDeque<AncestorTag>();
+        String encoding = null;
+        try {
+            XMLStreamReader reader = parserBackend.createReader(new ByteArrayInputStream(buffer.array()));
+            try {
+                while (reader.hasNext()) {
+                    reader.next();
+                    if (reader.isStartElement()) {
+                        open.push(new AncestorTag(reader));
+                    } else if (reader.isEndElement()) {
+                        open.pop();
+                    }
+                }
+            } catch (XMLStreamException e) {
+                // The prologue is not a complete document, so the parser always fails at its end
+            }
+            // Some parsers read the XML declaration lazily, so it is only known after the first event
+            encoding = reader.getCharacterEncodingScheme();
+        } catch (XMLStreamException e) {
+            throw new ParsingException("Error while parsing XML document", e);
+        }
+
+        if (open.size() != recordDepth - 1) {
+            throw new ParsingException(
+                "The first record element is found at depth " + (open.size() + 1) + " instead of " + recordDepth,
+                null
+            );
+        }
+
+        Charset charset = encoding == null ? Charsets.UTF_8 : Charset.forName(encoding);
+        if (!"<".equals(new String("<".getBytes(charset), Charsets.US_ASCII))) {
+            throw new DevourerException("Parallel parsing requires an ASCII-compatible encoding, got " + charset);
+        }
+
+        StringBuilder startTags = new StringBuilder("<?xml version=\"1.0\" encoding=\"")
+            .append(charset.name()).append("\"?>");
+        StringBuilder endTags = new StringBuilder();
+        for (AncestorTag tag : ImmutableList.copyOf(open.descendingIterator())) {
+            tag.appendStart(startTags);
+        }
+        for (AncestorTag tag : open) {
+            tag.appendEnd(endTags);
+        }
+        return new Prologue(startTags.toString().getBytes(charset), endTags.toString().getBytes(charset));
+    }
+
+    /**
+     * Finds the position of the next start tag of a record element, comparing only local names.
+     *
+     * @return the position of {@code <} of the tag, or -1 if there are no more records
+     */
+    private static long findRecordStart(FileChannel channel, long from, long size, byte[] recordName)
+        throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        byte[] bytes = buffer.array();
+
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int length = readFully(channel, buffer, position);
+            boolean isLast = position + length >= size;
+            int limit = isLast ? length : length - MAX_NAME_LENGTH;
+
+            for (int i = 0; i < limit; ++i) {
+                if (bytes[i] == '<' && isRecordName(bytes, i + 1, length, recordName)) {
+                    return position + i;
+                }
+            }
+            position += limit;
+        }
+        return -1;
+    }
+
+    private static boolean isRecordName(byte[] bytes, int start, int length, byte[] recordName) {
+        int localStart = start;
+        int i = start;
+        while (i < length && !isNameEnd(bytes[i])) {
+            if (bytes[i] == ':') {
+                localStart = i + 1;
+            }
+            ++i;
+        }
+        // The name must be followed by something that terminates it
+        if (i == length || i - localStart != recordName.length) {
+            return false;
+        }
+        for (int j = 0; j < recordName.length; ++j) {
+            if (bytes[localStart + j] != recordName[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static final class Prologue {
+        private final byte[] startTags;
+        private final byte[] endTags;
+
+        private Prologue(byte[] startTags, byte[] endTags) {
+            this.startTags = startTags;
+            this.endTags = endTags;
+        }
+    }
+
+    /**
+     * A start tag of an ancestor of the records, with namespace declarations but without attributes.
+     */
+    private static final class AncestorTag {
+        private final String name;
+        private final List<String> namespacePrefixes = new ArrayList<String>();
+        private final List<String> namespaceUris = new ArrayList<String>();
+
+        private AncestorTag(XMLStreamReader reader) {
+            String prefix = reader.getPrefix();
+            String localName = reader.getLocalName();
+            this.name = prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+            for (int i = 0; i < reader.getNamespaceCount(); ++i) {
+                namespacePrefixes.add(reader.getNamespacePrefix(i));
+                namespaceUris.add(reader.getNamespaceURI(i));
+            }
+        }
+
+        private void appendStart(StringBuilder builder) {
+            builder.append('<').append(name);
+            for (int i = 0; i < namespacePrefixes.size(); ++i) {
+                String prefix = namespacePrefixes.get(i);
+                builder.append(prefix == null || prefix.isEmpty() ? " xmlns" : " xmlns:" + prefix).append("=\"");
+                String uri = namespaceUris.get(i) == null ? "" : namespaceUris.get(i);
+                builder.append(uri.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;")).append('"');
+            }
+            builder.append('>');
+        }
+
+        private void appendEnd(StringBuilder builder) {
+            builder.append("</").append(name).append('>');
+        }
+    }
+
+    /**
+     * A part of the file surrounded by extra bytes.
+     */
+    private static final class Range {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final byte[] head;
+        private final byte[] tail;
+
+        private Range(FileChannel channel, long start, long end, byte[] head, byte[] tail) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.head = head;
+            this.tail = tail;
+        }
+
+        private InputStream open() {
+            InputStream body = new ChannelRangeInputStream(channel, start, end);
+            return new SequenceInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(head), body), new ByteArrayInputStream(tail)
+            );
+        }
+    }
+
+    /**
+     * Reads a part of a file channel using positional reads, so several streams can share the same channel.
+     */
+    private static final class ChannelRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private ChannelRangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int toRead = (int) Math.min(length, end - position);
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, toRead), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Hides the actions of the elements above the records, because they are seen by every range.
+     */
+    private static final class RecordScopedMapping implements PathMapping {
+        private final PathMapping delegate;
+        private final int recordDepth;
+
+        private RecordScopedMapping(PathMapping delegate, int recordDepth) {
+            this.delegate = delegate;
+            this.recordDepth = recordDepth;
+        }
+
+        @Override
+        public Optional<ActionBundle> lookup(ExactPath path, NamespaceContext namespaceContext) {
+            if (path.parts.size() < recordDepth) {
+                return Optional.absent();
+            }
+            return delegate.lookup(path, namespaceContext);
+        }
+
+        @Override
+        public PathTracker tracker(NamespaceContext namespaceContext) {
+            final PathTracker tracker = delegate.tracker(namespaceContext);
+            return new PathTracker() {
+                private int depth = 0;
+
+                @Override
+                public Optional<ActionBundle> push(QualifiedName name) {
+                    Optional<ActionBundle> bundle = tracker.push(name);
+                    return ++depth < recordDepth ? Optional.<ActionBundle>absent() : bundle;
+                }
+
+                @Override
+                public Optional<ActionBundle> current() {
+                    return depth < recordDepth ? Optional.<ActionBundle>absent() : tracker.current();
+                }
+
+                @Override
+                public boolean canMatchBelow() {
+                    return tracker.canMatchBelow();
+                }
+
+                @Override
+                public void pop() {
+                    tracker.pop();
+                    --depth;
+                }
+            };
+        }
+    }
+}
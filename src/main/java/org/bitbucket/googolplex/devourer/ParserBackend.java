@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * A source of XML parsers for Devourer. Devourer walks documents through the {@link XMLStreamReader} interface,
+ * using only a small part of it: element names, namespace declarations, attributes and text; a backend
+ * provides readers for byte and character input. See {@link ParserBackends} for the available backends.
+ *
+ * <p>Implementations must be thread-safe, since a single Devourer may parse several documents
+ * simultaneously.</p>
+ */
+public interface ParserBackend {
+    /**
+     * Creates a reader for a document available as bytes. The reader should detect the encoding of the document
+     * itself.
+     *
+     * @param inputStream a stream with the document
+     * @return new reader positioned at the start of the document
+     * @throws XMLStreamException if the reader cannot be created
+     */
+    XMLStreamReader createReader(InputStream inputStream) throws XMLStreamException;
+
+    /**
+     * Creates a reader for a document available as characters.
+     *
+     * @param reader a reader with the document
+     * @return new reader positioned at the start of the document
+     * @throws XMLStreamException if the reader cannot be created
+     */
+    XMLStreamReader createReader(Reader reader) throws XMLStreamException;
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Contains factory methods for {@link ParserBackend}s.
+ */
+public final class ParserBackends {
+    private ParserBackends() {
+    }
+
+    /**
+     * Returns a backend which creates readers with the given StAX input factory. This is what Devourer uses
+     * by default, with a factory configured according to
+     * {@link org.bitbucket.googolplex.devourer.configuration.DevourerConfig#staxConfig}.
+     *
+     * @param inputFactory configured input factory; it must be safe to create readers from several threads
+     * @return StAX backend
+     */
+    public static ParserBackend stax(XMLInputFactory inputFactory) {
+        Preconditions.checkNotNull(inputFactory, "Input factory is null");
+
+        return new StaxBackend(inputFactory);
+    }
+
+    /**
+     * Returns a backend which uses the reader behind {@link DevourerSession}, so that documents parsed at once
+     * and documents fed to a session are accepted and reported in exactly the same way. The reader supports
+     * well-formed UTF-8 documents without DTDs: documents declaring an encoding other than UTF-8 (or US-ASCII)
+     * are rejected, and entities declared in a DTD are not supported. It is not faster than StAX in general.
+     *
+     * <p>StAX configuration does not apply to this backend.</p>
+     *
+     * @return backend using the built-in reader
+     */
+    public static ParserBackend builtInUtf8() {
+        return BuiltInBackend.INSTANCE;
+    }
+
+    private static final class StaxBackend implements ParserBackend {
+        private final XMLInputFactory inputFactory;
+
+        private StaxBackend(XMLInputFactory inputFactory) {
+            this.inputFactory = inputFactory;
+        }
+
+        @Override
+        public XMLStreamReader createReader(InputStream inputStream) throws XMLStreamException {
+            return inputFactory.createXMLStreamReader(inputStream);
+        }
+
+        @Override
+        public XMLStreamReader createReader(Reader reader) throws XMLStreamException {
+            return inputFactory.createXMLStreamReader(reader);
+        }
+    }
+
+    private static final class BuiltInBackend implements ParserBackend {
+        private static final BuiltInBackend INSTANCE = new BuiltInBackend();
+
+        @Override
+        public XMLStreamReader createReader(InputStream inputStream) {
+            return new FeedXMLStreamReader(Charsets.UTF_8, inputStream);
+        }
+
+        @Override
+        public XMLStreamReader createReader(Reader reader) {
+            return new FeedXMLStreamReader(reader);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Throwables;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.exceptions.ActionException;
+import org.bitbucket.googolplex.devourer.exceptions.DevourerException;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An {@link ActionRunner} which executes the actions in a separate thread. The walking thread turns each call
+ * into an event record and puts it into a bounded single-producer/single-consumer ring; the action thread takes
+ * the events in the same order and passes them to the executing runner, so the results are the same as
+ * with sequential execution. Only the calls which have some actions to execute produce events.
+ *
+ * <p>An element context is detached once per element, when the element is entered, and the copy is used for all
+ * actions of the element. Bodies are copied into strings.</p>
+ *
+ * <p>When an action throws an exception, the action thread stops executing actions but keeps draining the ring,
+ * so the walking thread never waits forever; the exception is rethrown in the walking thread from the next
+ * call or from {@link #finish()}.</p>
+ */
+final class PipelinedRunner implements ActionRunner {
+    private static final int CAPACITY = 1024;  // Must be a power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final int SPINS = 100;
+    private static final int YIELDS = 200;
+    private static final long PARK_NANOS = 20000;
+
+    private static final int BEFORE = 0;
+    private static final int AT = 1;
+    private static final int AFTER = 2;
+    private static final int END = 3;
+
+    private final ActionRunner executor;
+    private final Thread thread;
+
+    // Event slots; the slot of event number n is n & MASK
+    private final int[] kinds = new int[CAPACITY];
+    private final ActionBundle[] bundles = new ActionBundle[CAPACITY];
+    private final ElementContext[] contexts = new ElementContext[CAPACITY];
+    private final String[] bodies = new String[CAPACITY];
+
+    // Number of events published by the walking thread and consumed by the action thread
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    // Walking thread state
+    private long tail = 0;
+    private long cachedHead = 0;
+    private ElementContext[] openContexts = new ElementContext[16];
+    private int depth = 0;
+
+    private volatile Throwable failure;
+    private volatile boolean aborted = false;
+
+    /**
+     * @param executor a runner which executes the actions in the action thread
+     */
+    PipelinedRunner(ActionRunner executor) {
+        this.executor = executor;
+        this.thread = new Thread(new Consumer(), "devourer-actions");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void before(ActionBundle bundle, ElementContext context) {
+        checkFailure();
+
+        ElementContext detached = context.detach();
+        if (depth == openContexts.length) {
+            openContexts = Arrays.copyOf(openContexts, depth * 2);
+        }
+        openContexts[depth++] = detached;
+
+        if (!bundle.befores.isEmpty()) {
+            publish(BEFORE, bundle, detached, null);
+        }
+    }
+
+    @Override
+    public void at(ActionBundle bundle, ElementContext context, CharSequence body) {
+        checkFailure();
+
+        publish(AT, bundle, openContexts[depth - 1], body.toString());
+    }
+
+    @Override
+    public void after(ActionBundle bundle, ElementContext context) {
+        checkFailure();
+
+        ElementContext detached = openContexts[--depth];
+        openContexts[depth] = null;
+
+        if (!bundle.afters.isEmpty()) {
+            publish(AFTER, bundle, detached, null);
+        }
+    }
+
+    /**
+     * Waits until all published events are processed and stops the action thread. After this method returns
+     * the stacks can be used by the calling thread.
+     *
+     * @throws ActionException if some action has thrown an exception
+     */
+    void finish() {
+        publish(END, null, null, null);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new DevourerException("Interrupted while waiting for actions to complete", e);
+        }
+
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new ActionException("An exception has occured in action", cause);
+        }
+    }
+
+    /**
+     * Stops the action thread as soon as it finishes the current action; the rest of the events are dropped.
+     */
+    void abort() {
+        aborted = true;
+    }
+
+    private void checkFailure() {
+        Throwable cause = failure;
+        if (cause != null) {
+            // The walker wraps it just like the exceptions from sequentially executed actions
+            throw Throwables.propagate(cause);
+        }
+    }
+
+    private void publish(int kind, ActionBundle bundle, ElementContext context, String body) {
+        if (tail - cachedHead == CAPACITY) {
+            int attempt = 0;
+            while (tail - (cachedHead = consumed.get()) == CAPACITY) {
+                idle(attempt++);
+            }
+        }
+
+        int slot = (int) tail & MASK;
+        kinds[slot] = kind;
+        bundles[slot] = bundle;
+        contexts[slot] = context;
+        bodies[slot] = body;
+        published.lazySet(++tail);
+    }
+
+    private static void idle(int attempt) {
+        if (attempt < SPINS) {
+            // Busy spin, the other side is usually just a bit behind
+        } else if (attempt < YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private final class Consumer implements Runnable {
+        private long head = 0;
+        private long cachedTail = 0;
+
+        @Override
+        public void run() {
+            while (true) {
+                if (head == cachedTail) {
+                    int attempt = 0;
+                    while (head == (cachedTail = published.get())) {
+                        if (aborted) {
+                            return;
+                        }
+                        idle(attempt++);
+                    }
+                }
+
+                int slot = (int) head & MASK;
+                int kind = kinds[slot];
+                ActionBundle bundle = bundles[slot];
+                ElementContext context = contexts[slot];
+                String body = bodies[slot];
+                bundles[slot] = null;
+                contexts[slot] = null;
+                bodies[slot] = null;
+                consumed.lazySet(++head);
+
+                if (kind == END || aborted) {
+                    return;
+                }
+                // After a failure events are only drained
+                if (failure == null) {
+                    try {
+                        execute(kind, bundle, context, body);
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+
+        private void execute(int kind, ActionBundle bundle, ElementContext context, String body) {
+            switch (kind) {
+                case BEFORE:
+                    executor.before(bundle, context);
+                    break;
+                case AT:
+                    executor.at(bundle, context, body);
+                    break;
+                case AFTER:
+                    executor.after(bundle, context);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+/**
+ * Interfaces for push-based delivery of parsing results with backpressure. They mirror
+ * {@code java.util.concurrent.Flow} interfaces (and Reactive Streams ones) method by method, so adapting them
+ * to any of these libraries is a matter of trivial delegation; separate interfaces are used because Devourer
+ * is compatible with Java 8, where {@code Flow} is not available.
+ *
+ * <p>The usual Reactive Streams rules apply: {@link Subscriber#onSubscribe(Subscription)} is called first,
+ * then {@link Subscriber#onNext(Object)} is called at most as many times as requested through
+ * {@link Subscription#request(long)}, and then either {@link Subscriber#onComplete()} or
+ * {@link Subscriber#onError(Throwable)} is called, unless the subscription is cancelled.</p>
+ */
+public final class RecordFlow {
+    private RecordFlow() {
+    }
+
+    /**
+     * A producer of items which are delivered to subscribers on demand.
+     *
+     * @param <T> type of the items
+     */
+    public interface Publisher<T> {
+        /**
+         * Adds the given subscriber. If the publisher cannot accept it, the subscriber receives
+         * {@link Subscriber#onError(Throwable)} right after {@link Subscriber#onSubscribe(Subscription)}.
+         *
+         * @param subscriber the subscriber
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items.
+     *
+     * @param <T> type of the items
+     */
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * A link between a publisher and a subscriber.
+     */
+    public interface Subscription {
+        /**
+         * Adds the given number of items to the demand of the subscriber.
+         *
+         * @param n a positive number of items
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of items and releases the resources held by the publisher.
+         */
+        void cancel();
+    }
+}
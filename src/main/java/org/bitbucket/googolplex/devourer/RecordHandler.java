@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+/**
+ * Processes records produced by Devourer in worker threads, see {@link Devourer#process}.
+ *
+ * @param <T> type of the records
+ */
+public interface RecordHandler<T> {
+    /**
+     * Processes a single record. Exceptions thrown by this method stop the processing of the whole document.
+     *
+     * @param record the record
+     * @throws Exception if the record cannot be processed
+     */
+    void handle(T record) throws Exception;
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An iterator over the results produced while a document is being parsed. It holds the underlying document
+ * open until it is exhausted or closed.
+ *
+ * @param <T> type of the results
+ */
+public interface RecordIterator<T> extends Iterator<T>, Closeable {
+    /**
+     * Closes the underlying document. After this method is called the iterator returns only the results
+     * which had been produced before. This method never throws.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * A reusable {@link CharSequence} view over a region of a character array, used to pass element bodies to
+ * {@link org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars}. The string representation is
+ * created on the first call to {@link #toString()} and cached until the view is reset.
+ *
+ * <p>The view also owns a growable buffer which is used to join chunks of text split by the parser; after all
+ * chunks are appended, the view can be pointed to the buffer with {@link #resetToBuffer(boolean)}.</p>
+ */
+final class TextView implements CharSequence {
+    private char[] characters;
+    private int start;
+    private int length;
+    private String string;
+
+    private char[] buffer;
+    private int buffered = 0;
+
+    /**
+     * Points this view to the given region of the array, optionally skipping leading and trailing whitespace
+     * in the same way as {@link String#trim()} does.
+     */
+    void reset(char[] characters, int start, int length, boolean trim) {
+        int end = start + length;
+        if (trim) {
+            while (start < end && characters[start] <= ' ') {
+                ++start;
+            }
+            while (start < end && characters[end - 1] <= ' ') {
+                --end;
+            }
+        }
+
+        this.characters = characters;
+        this.start = start;
+        this.length = end - start;
+        this.string = null;
+    }
+
+    /**
+     * Appends a chunk of text to the buffer.
+     */
+    void append(char[] characters, int start, int length) {
+        if (buffer == null) {
+            buffer = new char[Math.max(length, 256)];
+        } else if (buffered + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffered + length, buffer.length * 2));
+        }
+        System.arraycopy(characters, start, buffer, buffered, length);
+        buffered += length;
+    }
+
+    /**
+     * @return {@code true} if some text has been appended to the buffer since the last reset to it
+     */
+    boolean hasBuffered() {
+        return buffered > 0;
+    }
+
+    /**
+     * Points this view to the text accumulated in the buffer and empties the buffer for the next text.
+     */
+    void resetToBuffer(boolean trim) {
+        int length = buffered;
+        buffered = 0;
+        reset(buffer, 0, length, trim);
+    }
+
+    /**
+     * @return {@code true} if this view contains whitespace characters only
+     */
+    boolean isBlank() {
+        for (int i = start; i < start + length; ++i) {
+            if (characters[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases the array this view points to.
+     */
+    void clear() {
+        this.characters = null;
+        this.start = 0;
+        this.length = 0;
+        this.string = null;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Preconditions.checkElementIndex(index, length);
+
+        return characters[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Preconditions.checkPositionIndexes(start, end, length);
+
+        // The array is reused by the parser, so the subsequence must not share it
+        return new String(characters, this.start + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        if (string == null) {
+            string = new String(characters, start, length);
+        }
+        return string;
+    }
+}
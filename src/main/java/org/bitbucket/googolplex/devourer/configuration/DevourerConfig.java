@@ -16,7 +16,10 @@
 
 package org.bitbucket.googolplex.devourer.configuration;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import org.bitbucket.googolplex.devourer.ParserBackend;
+import org.bitbucket.googolplex.devourer.metrics.DevourerMetrics;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,20 +29,43 @@ import java.util.Map;
  * <ul>
  *     <li>an option whether the Devourer should trim side spaces of body content before providing it
  *     to the actions - {@code true} by default;</li>
- *     <li>StAX parser parameters, as defined in {@link javax.xml.stream.XMLInputFactory} documentation.</li>
+ *     <li>an option whether the Devourer should join adjacent chunks of element text before providing it
+ *     to the actions - {@code false} by default;</li>
+ *     <li>an option whether the Devourer should execute actions in a separate thread while parsing
+ *     the document - {@code false} by default;</li>
+ *     <li>StAX parser parameters, as defined in {@link javax.xml.stream.XMLInputFactory} documentation;</li>
+ *     <li>a parser backend to read documents with - StAX configured with the above parameters by default;</li>
+ *     <li>a metrics listener which receives measurements of parsing and actions - none by default.</li>
  * </ul>
  *
  * <p>A {@link Builder} can be used to construct instances of this class.</p>
  */
 public class DevourerConfig {
     public final boolean stripSpaces;
+    public final boolean coalesceText;
+    public final boolean pipelined;
     public final Map<String, Object> staxConfig;
+    public final Optional<ParserBackend> parserBackend;
+    public final Optional<DevourerMetrics> metrics;
 
     public DevourerConfig(boolean stripSpaces, Map<String, Object> staxConfig) {
+        this(stripSpaces, false, false, staxConfig, Optional.<ParserBackend>absent(),
+             Optional.<DevourerMetrics>absent());
+    }
+
+    private DevourerConfig(boolean stripSpaces, boolean coalesceText, boolean pipelined,
+                           Map<String, Object> staxConfig, Optional<ParserBackend> parserBackend,
+                           Optional<DevourerMetrics> metrics) {
         Preconditions.checkNotNull(staxConfig, "StAX config map is null");
+        Preconditions.checkNotNull(parserBackend, "Parser backend is null");
+        Preconditions.checkNotNull(metrics, "Metrics are null");
 
         this.stripSpaces = stripSpaces;
+        this.coalesceText = coalesceText;
+        this.pipelined = pipelined;
         this.staxConfig = staxConfig;
+        this.parserBackend = parserBackend;
+        this.metrics = metrics;
     }
 
     /**
@@ -51,9 +77,32 @@ public class DevourerConfig {
         return new Builder();
     }
 
+    /**
+     * Creates a new {@link Builder} initialized with the values of the given configuration.
+     *
+     * @param config configuration to copy the values from
+     * @return new {@link Builder} instance
+     */
+    public static Builder builder(DevourerConfig config) {
+        Preconditions.checkNotNull(config, "Config is null");
+
+        Builder builder = new Builder();
+        builder.stripSpaces = config.stripSpaces;
+        builder.coalesceText = config.coalesceText;
+        builder.pipelined = config.pipelined;
+        builder.staxConfig.putAll(config.staxConfig);
+        builder.parserBackend = config.parserBackend;
+        builder.metrics = config.metrics;
+        return builder;
+    }
+
     public static class Builder {
         private boolean stripSpaces = true;
+        private boolean coalesceText = false;
+        private boolean pipelined = false;
         private Map<String, Object> staxConfig = new HashMap<String, Object>();
+        private Optional<ParserBackend> parserBackend = Optional.absent();
+        private Optional<DevourerMetrics> metrics = Optional.absent();
 
         private Builder() {
         }
@@ -62,7 +111,7 @@ public class DevourerConfig {
          * @return new configuration instance created from the accumulated values
          */
         public DevourerConfig build() {
-            return new DevourerConfig(stripSpaces, staxConfig);
+            return new DevourerConfig(stripSpaces, coalesceText, pipelined, staxConfig, parserBackend, metrics);
         }
 
         /**
@@ -76,6 +125,41 @@ public class DevourerConfig {
             return this;
         }
 
+        /**
+         * Sets whether Devourer should join all text of an element between two adjacent tags before providing
+         * it to the actions. StAX parsers are free to split text into several chunks (e.g. around entity
+         * references or CDATA sections, or just when the text is long), and without this option at-actions
+         * are invoked for each chunk separately. False by default.
+         *
+         * <p>This is usually cheaper than setting {@link javax.xml.stream.XMLInputFactory#IS_COALESCING} StAX
+         * property, because the text is collected into a reusable buffer and only for the elements which have
+         * at-actions.</p>
+         *
+         * @return this object
+         */
+        public Builder setCoalesceText(boolean coalesceText) {
+            this.coalesceText = coalesceText;
+            return this;
+        }
+
+        /**
+         * Sets whether Devourer should execute actions in a separate thread when parsing documents with
+         * {@code parse()} methods. The parsing thread only reads the document and queues the actions with
+         * copies of their element contexts and bodies; a dedicated thread executes them in the same order,
+         * so the results are the same as with sequential execution. False by default.
+         *
+         * <p>This pays off for large documents whose actions do a noticeable amount of work, provided
+         * that a spare processor core is available. Lazy parsing methods like
+         * {@link org.bitbucket.googolplex.devourer.Devourer#iterate} always execute actions in the parsing
+         * thread.</p>
+         *
+         * @return this object
+         */
+        public Builder setPipelined(boolean pipelined) {
+            this.pipelined = pipelined;
+            return this;
+        }
+
         /**
          * Sets StAX property given its name and value. See {@link javax.xml.stream.XMLInputFactory} documentation
          * for the list of available properties.
@@ -91,5 +175,35 @@ public class DevourerConfig {
             this.staxConfig.put(name, value);
             return this;
         }
+
+        /**
+         * Sets the parser backend used to read documents. By default Devourer uses StAX configured with
+         * the properties set by {@link #setStaxProperty(String, Object)}; these properties are ignored
+         * when another backend is set. See {@link org.bitbucket.googolplex.devourer.ParserBackends} for
+         * the available backends.
+         *
+         * @param parserBackend parser backend
+         * @return this object
+         */
+        public Builder setParserBackend(ParserBackend parserBackend) {
+            Preconditions.checkNotNull(parserBackend, "Parser backend is null");
+
+            this.parserBackend = Optional.of(parserBackend);
+            return this;
+        }
+
+        /**
+         * Sets the listener which receives measurements of parsed documents and executed actions. By default
+         * nothing is measured; {@link DevourerMetrics#NONE} restores this default.
+         *
+         * @param metrics metrics listener
+         * @return this object
+         */
+        public Builder setMetrics(DevourerMetrics metrics) {
+            Preconditions.checkNotNull(metrics, "Metrics are null");
+
+            this.metrics = metrics == DevourerMetrics.NONE ? Optional.<DevourerMetrics>absent() : Optional.of(metrics);
+            return this;
+        }
     }
 }
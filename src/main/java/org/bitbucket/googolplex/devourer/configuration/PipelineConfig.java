@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.configuration;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A container class for the configuration of record processing pipelines, see
+ * {@link org.bitbucket.googolplex.devourer.Devourer#process}. The following parameters can be configured:
+ * <ul>
+ *     <li>the number of worker threads - the number of available processors by default;</li>
+ *     <li>the capacity of the queue of each worker - 1024 records by default; when a queue is full,
+ *     parsing waits until the worker takes a record from it;</li>
+ *     <li>the factory for worker threads - daemon threads named {@code devourer-worker-N} by default.</li>
+ * </ul>
+ *
+ * <p>A {@link Builder} can be used to construct instances of this class.</p>
+ */
+public class PipelineConfig {
+    public final int workers;
+    public final int queueCapacity;
+    public final ThreadFactory threadFactory;
+
+    public PipelineConfig(int workers, int queueCapacity, ThreadFactory threadFactory) {
+        Preconditions.checkArgument(workers > 0, "Number of workers is not positive: %s", workers);
+        Preconditions.checkArgument(queueCapacity > 0, "Queue capacity is not positive: %s", queueCapacity);
+        Preconditions.checkNotNull(threadFactory, "Thread factory is null");
+
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Creates a new {@link Builder} with default values.
+     *
+     * @return new {@link Builder} instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 1024;
+        private ThreadFactory threadFactory =
+            new ThreadFactoryBuilder().setNameFormat("devourer-worker-%d").setDaemon(true).build();
+
+        private Builder() {
+        }
+
+        /**
+         * @return new configuration instance created from the accumulated values
+         */
+        public PipelineConfig build() {
+            return new PipelineConfig(workers, queueCapacity, threadFactory);
+        }
+
+        /**
+         * Sets the number of worker threads. Records with the same key are always processed by the same worker.
+         *
+         * @return this object
+         */
+        public Builder setWorkers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Sets the capacity of the queue of each worker.
+         *
+         * @return this object
+         */
+        public Builder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the factory which creates worker threads.
+         *
+         * @return this object
+         */
+        public Builder setThreadFactory(ThreadFactory threadFactory) {
+            Preconditions.checkNotNull(threadFactory, "Thread factory is null");
+
+            this.threadFactory = threadFactory;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.configuration.actions;
+
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+/**
+ * A variant of {@link ActionAt} which receives the body of the element as a {@link CharSequence} instead of
+ * a {@link String}. The sequence is a view over the parser's internal buffer, so no string is created unless
+ * the action calls {@link CharSequence#toString()} itself; this is useful for actions which parse the body
+ * into numbers or other values right away.
+ *
+ * <p>The sequence object is reused and its contents are valid only during the action call. Do not retain
+ * it anywhere; call {@link CharSequence#toString()} if the text itself has to be kept.</p>
+ */
+public interface ActionAtChars {
+    void act(Stacks stacks, ElementContext context, CharSequence body);
+}
@@ -91,6 +91,11 @@ public abstract class EnhancedAction implements ActionBefore, ActionAt, ActionAf
         return state.get().context.elementName();
     }
 
+    @Override
+    public ElementContext detach() {
+        return state.get().context.detach();
+    }
+
     @Override
     public Stack get(String name) {
         return state.get().stacks.get(name);
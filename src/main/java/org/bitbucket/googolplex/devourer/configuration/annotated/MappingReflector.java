@@ -30,6 +30,8 @@ import org.bitbucket.googolplex.devourer.paths.mappings.MappingBuilder;
 import org.bitbucket.googolplex.devourer.paths.mappings.PathMapping;
 import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
 import org.bitbucket.googolplex.devourer.paths.patterns.PathPatterns;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroupProvider;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroups;
 import org.bitbucket.googolplex.devourer.stacks.Stacks;
 
 import java.lang.annotation.Annotation;
@@ -75,6 +77,10 @@ import java.util.List;
  * field is annotated with {@code Peek*} annotation, the object will be retained on the top of the stack.
  * Consequently, the number and the order of annotations matter.</p>
  *
+ * <p>If argument type is {@link CharSequence}, textual body of the current element will be injected into it
+ * as a reusable view over the parser buffer (again, only applicable to at-actions). The view is valid only during
+ * the method call; this avoids creation of a string when the method parses the body right away.</p>
+ *
  * <p>The arguments of the method are inspected in declaration order, and actions on the stacks object during the
  * processing are taken exactly in this order too. So, if you have e.g. the following declaration:
  * <pre>
@@ -135,9 +141,23 @@ import java.util.List;
  * code.</p>
  */
 public class MappingReflector {
+    private final PatternGroupProvider patternGroupProvider;
     private Optional<PathMapping> mapping = Optional.absent();
     private NamespaceContext namespaceContext = NamespaceContext.empty();
 
+    public MappingReflector() {
+        this(PatternGroups.trieGroupProvider());
+    }
+
+    /**
+     * @param patternGroupProvider provider of the pattern group used by the collected mapping
+     */
+    public MappingReflector(PatternGroupProvider patternGroupProvider) {
+        Preconditions.checkNotNull(patternGroupProvider, "Provider is null");
+
+        this.patternGroupProvider = patternGroupProvider;
+    }
+
     public PathMapping getMapping() {
         return mapping.get();
     }
@@ -153,7 +173,7 @@ public class MappingReflector {
         Class<?> clazz = object.getClass();
 
         // Prepare mapping builder
-        MappingBuilder mappingBuilder = MappingBuilder.create();
+        MappingBuilder mappingBuilder = MappingBuilder.create().withPatternGroupProvider(patternGroupProvider);
 
         // Retrieve namespace context annotation, if it is present
         if (clazz.isAnnotationPresent(CustomNamespaceContext.class)) {
@@ -181,7 +201,8 @@ public class MappingReflector {
                 if (method.isAnnotationPresent(Before.class)) {
                     mappingBuilder.add(pattern, new ReflectedActions.Before(object, method, stack, parameterInfos));
                 } else if (method.isAnnotationPresent(At.class)) {
-                    mappingBuilder.add(pattern, new ReflectedActions.At(object, method, stack, parameterInfos));
+                    // Registered as a char sequence action, so the body is materialized only for String parameters
+                    mappingBuilder.addChars(pattern, new ReflectedActions.At(object, method, stack, parameterInfos));
                 } else {
                     mappingBuilder.add(pattern, new ReflectedActions.After(object, method, stack, parameterInfos));
                 }
@@ -190,7 +211,7 @@ public class MappingReflector {
             }
         }
 
-        this.mapping = Optional.of(mappingBuilder.build());
+        this.mapping = Optional.of(mappingBuilder.withNamespaceContext(namespaceContext).build());
     }
 
     /**
@@ -237,6 +258,14 @@ public class MappingReflector {
             }
             return new ParameterInfo(ParameterKind.BODY);
 
+        // Parameter is of char sequence type -- body without materialization
+        } else if (type == CharSequence.class) {
+            // Applicable only for at-actions
+            if (!method.isAnnotationPresent(At.class)) {
+                throw new MappingException("Requested body not in @At method");
+            }
+            return new ParameterInfo(ParameterKind.BODY_CHARS);
+
         // Otherwise it can only be a stack checking operation or an attribute
         } else {
             // At least one annotation should be present
@@ -250,7 +279,7 @@ public class MappingReflector {
                 Class<? extends Annotation> annotationClass = annotation.annotationType();
                 if (annotationClass == Pop.class) {
                     parameter = Stacks.DEFAULT_STACK;
-                    if (type == Optional.class) {
+                    if (isOptional(type)) {
                         kind = ParameterKind.TRY_POP;
                     } else {
                         kind = ParameterKind.POP;
@@ -258,7 +287,7 @@ public class MappingReflector {
 
                 } else if (annotationClass == PopFrom.class) {
                     parameter = ((PopFrom) annotation).value();
-                    if (type == Optional.class) {
+                    if (isOptional(type)) {
                         kind = ParameterKind.TRY_POP;
                     } else {
                         kind = ParameterKind.POP;
@@ -266,7 +295,7 @@ public class MappingReflector {
 
                 } else if (annotationClass == Peek.class) {
                     parameter = Stacks.DEFAULT_STACK;
-                    if (type == Optional.class) {
+                    if (isOptional(type)) {
                         kind = ParameterKind.TRY_PEEK;
                     } else {
                         kind = ParameterKind.PEEK;
@@ -274,7 +303,7 @@ public class MappingReflector {
 
                 } else if (annotationClass == PeekFrom.class) {
                     parameter = ((PeekFrom) annotation).value();
-                    if (type == Optional.class) {
+                    if (isOptional(type)) {
                         kind = ParameterKind.TRY_PEEK;
                     } else {
                         kind = ParameterKind.PEEK;
@@ -408,6 +437,17 @@ public class MappingReflector {
         }
     }
 
+    /**
+     * @return {@code true} if {@code type} is {@link Optional}, either raw or parameterized
+     */
+    private boolean isOptional(Type type) {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).getRawType() == Optional.class;
+        } else {
+            return type == Optional.class;
+        }
+    }
+
     /**
      * @return {@code true} if an annotation of one of {@code what} classes is present in {@code annotations} array
      */
@@ -33,7 +33,7 @@ public class AbstractReflectedAction {
         };
     }
 
-    private void fillArguments(Stacks stacks, ElementContext context, Optional<String> body) {
+    private void fillArguments(Stacks stacks, ElementContext context, Optional<? extends CharSequence> body) {
         for (int i = 0; i < parameterInfos.size(); ++i) {
             ParameterInfo parameterInfo = parameterInfos.get(i);
             switch (parameterInfo.kind) {
@@ -56,6 +56,9 @@ public class AbstractReflectedAction {
                     arguments.get()[i] = stacks.get(parameterInfo.argument.get()).peekList();
                     break;
                 case BODY:
+                    arguments.get()[i] = body.get().toString();
+                    break;
+                case BODY_CHARS:
                     arguments.get()[i] = body.get();
                     break;
                 case CONTEXT:
@@ -76,7 +79,7 @@ public class AbstractReflectedAction {
         }
     }
 
-    public void invokeMethod(Stacks stacks, ElementContext context, Optional<String> body) {
+    public void invokeMethod(Stacks stacks, ElementContext context, Optional<? extends CharSequence> body) {
         fillArguments(stacks, context, body);
         Object result;
         try {
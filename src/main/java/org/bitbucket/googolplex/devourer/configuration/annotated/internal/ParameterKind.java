@@ -4,5 +4,5 @@ package org.bitbucket.googolplex.devourer.configuration.annotated.internal;
  * All possible types of annotated parameters.
  */
 public enum ParameterKind {
-    POP, TRY_POP, PEEK, TRY_PEEK, POP_LIST, PEEK_LIST, BODY, CONTEXT, STACKS, ATTRIBUTE, TRY_ATTRIBUTE
+    POP, TRY_POP, PEEK, TRY_PEEK, POP_LIST, PEEK_LIST, BODY, BODY_CHARS, CONTEXT, STACKS, ATTRIBUTE, TRY_ATTRIBUTE
 }
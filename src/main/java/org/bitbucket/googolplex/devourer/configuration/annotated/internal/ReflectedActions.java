@@ -3,6 +3,7 @@ package org.bitbucket.googolplex.devourer.configuration.annotated.internal;
 import com.google.common.base.Optional;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
 import org.bitbucket.googolplex.devourer.contexts.ElementContext;
 import org.bitbucket.googolplex.devourer.stacks.Stacks;
@@ -14,7 +15,7 @@ import java.util.List;
  * Action interfaces implementations delegating their {@code act} method to annotated configuration object.
  */
 public final class ReflectedActions {
-    public static class At extends AbstractReflectedAction implements ActionAt {
+    public static class At extends AbstractReflectedAction implements ActionAt, ActionAtChars {
         public At(Object object, Method method, Optional<String> stack, List<ParameterInfo> parameterInfos) {
             super(object, method, stack, parameterInfos);
         }
@@ -23,6 +24,11 @@ public final class ReflectedActions {
         public void act(Stacks stacks, ElementContext context, String body) {
             invokeMethod(stacks, context, Optional.of(body));
         }
+
+        @Override
+        public void act(Stacks stacks, ElementContext context, CharSequence body) {
+            invokeMethod(stacks, context, Optional.of(body));
+        }
     }
 
     public static class After extends AbstractReflectedAction implements ActionAfter {
@@ -18,6 +18,7 @@ package org.bitbucket.googolplex.devourer.configuration.modular.binders;
 
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
 
 /**
@@ -37,6 +38,16 @@ public interface ActionBindingBuilder {
      */
     ActionBindingBuilder doAt(ActionAt action);
 
+    /**
+     * Binds an at-action which receives the body of the element as a reusable {@link CharSequence} view instead
+     * of a {@link String}. This is a separate method rather than an overload of {@link #doAt(ActionAt)} so that
+     * lambda expressions passed to the latter stay unambiguous.
+     *
+     * See DSL usage examples in {@link org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule}
+     * documentation.
+     */
+    ActionBindingBuilder doAtChars(ActionAtChars action);
+
     /**
      * See DSL usage examples in {@link org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule}
      * documentation.
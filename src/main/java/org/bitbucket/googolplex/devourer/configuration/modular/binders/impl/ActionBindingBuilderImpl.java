@@ -18,6 +18,7 @@ package org.bitbucket.googolplex.devourer.configuration.modular.binders.impl;
 
 import com.google.common.base.Preconditions;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
 import org.bitbucket.googolplex.devourer.configuration.modular.binders.ActionBindingBuilder;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
@@ -49,6 +50,14 @@ public class ActionBindingBuilderImpl implements ActionBindingBuilder {
         return this;
     }
 
+    @Override
+    public ActionBindingBuilderImpl doAtChars(ActionAtChars action) {
+        Preconditions.checkNotNull(action, "Action is null");
+
+        this.mappingBuilder.addChars(PathPatterns.fromString(route), action);
+        return this;
+    }
+
     @Override
     public ActionBindingBuilderImpl doAfter(ActionAfter action) {
         Preconditions.checkNotNull(action, "Action is null");
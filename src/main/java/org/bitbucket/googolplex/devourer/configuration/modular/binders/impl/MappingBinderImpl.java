@@ -22,6 +22,7 @@ import org.bitbucket.googolplex.devourer.configuration.modular.binders.Namespace
 import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
 import org.bitbucket.googolplex.devourer.paths.mappings.MappingBuilder;
 import org.bitbucket.googolplex.devourer.paths.mappings.PathMapping;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroupProvider;
 
 public class MappingBinderImpl implements MappingBinder {
     protected final MappingBuilder mappingBuilder;
@@ -36,6 +37,13 @@ public class MappingBinderImpl implements MappingBinder {
         this(MappingBuilder.create(), NamespaceContext.builder());
     }
 
+    /**
+     * @param patternGroupProvider provider of the pattern group used by the configured mapping
+     */
+    public MappingBinderImpl(PatternGroupProvider patternGroupProvider) {
+        this(MappingBuilder.create().withPatternGroupProvider(patternGroupProvider), NamespaceContext.builder());
+    }
+
     @Override
     public ActionBindingBuilder on(String route) {
         return new ActionBindingBuilderImpl(mappingBuilder, route);
@@ -109,6 +109,16 @@ public class DefaultElementContext implements ElementContext {
         return Optional.fromNullable(attributes.get(name));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Default element contexts are immutable already, so this method returns the context itself.</p>
+     */
+    @Override
+    public ElementContext detach() {
+        return this;
+    }
+
     public static class Builder {
         private final HashMap<QualifiedName, String> attributes = Maps.newHashMap();
         private javax.xml.namespace.NamespaceContext realNamespaceContext;
@@ -28,7 +28,9 @@ import java.util.Collection;
  * annotated configuration object.
  *
  * <p>Element context is transient; you should never hold instances of this interface neither in
- * {@link org.bitbucket.googolplex.devourer.stacks.Stacks} nor somewhere else.</p>
+ * {@link org.bitbucket.googolplex.devourer.stacks.Stacks} nor somewhere else. Devourer reuses context objects
+ * for different elements, so a context is valid only during the action call it was passed to. If you really need
+ * to retain the information about an element, use {@link #detach()} to get an independent copy.</p>
  *
  * <h3>Several notes regarding namespace contexts</h3>
  *
@@ -137,4 +139,28 @@ public interface ElementContext {
      * @return an attribute with {@code name} full name, if present
      */
     Optional<String> attribute(QualifiedName name);
+
+    /**
+     * Returns an immutable copy of this context which is not tied to the current position inside the document
+     * and which can be safely retained after the action call is over. Real namespace context of the copy
+     * contains the namespace bindings which are in effect for the current element.
+     *
+     * <p>The default implementation copies the name and the attributes of this context into
+     * a {@link DefaultElementContext}, keeping its real and custom namespace contexts as they are. Implementations
+     * whose real namespace context changes while the document is read should override this method.</p>
+     *
+     * @return an independent copy of this context
+     */
+    default ElementContext detach() {
+        DefaultElementContext.Builder builder = new DefaultElementContext.Builder();
+
+        builder.setName(elementName());
+        builder.setRealNamespaceContext(realNamespaceContext());
+        builder.setCustomNamespaceContext(customNamespaceContext());
+        for (QualifiedName name : attributeNames()) {
+            builder.addAttribute(name, attribute(name).get());
+        }
+
+        return builder.build();
+    }
 }
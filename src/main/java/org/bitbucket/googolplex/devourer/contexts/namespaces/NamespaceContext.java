@@ -119,6 +119,25 @@ public class NamespaceContext {
         return namespaceMap.values();
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        NamespaceContext that = (NamespaceContext) o;
+
+        return namespaceMap.equals(that.namespaceMap);
+    }
+
+    @Override
+    public int hashCode() {
+        return namespaceMap.hashCode();
+    }
+
     /**
      * Creates new namespace context from pairwise mapping in the arguments. Example:
      * <pre>
@@ -31,11 +31,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>This class is very similar to {@link QName} from standard library but provides more convenient interface.
  * It also does not support empty local names, and absence of namespace and prefix is modelled using
  * {@link Optional}s.</p>
+ *
+ * <p>Names are compared by local name and namespace only, prefixes are not taken into account. The hash code
+ * is computed once on creation; names obtained from a {@link QualifiedNameTable} are canonical and are usually
+ * compared by identity.</p>
  */
 public class QualifiedName {
     public final String localName;
     public final Optional<String> namespace;
     public final Optional<String> prefix;
+    private final int hash;
 
     QualifiedName(String localName, Optional<String> namespace, Optional<String> prefix) {
         checkNotNull(localName, "Local name is null");
@@ -46,6 +51,7 @@ public class QualifiedName {
         this.localName = localName;
         this.namespace = namespace;
         this.prefix = prefix;
+        this.hash = localName.hashCode() ^ namespace.hashCode();
     }
 
     public QName asQName() {
@@ -79,11 +85,11 @@ public class QualifiedName {
 
         QualifiedName that = (QualifiedName) o;
 
-        return localName.equals(that.localName) && namespace.equals(that.namespace);
+        return hash == that.hash && localName.equals(that.localName) && namespace.equals(that.namespace);
     }
 
     @Override
     public int hashCode() {
-        return localName.hashCode() ^ namespace.hashCode();
+        return hash;
     }
 }
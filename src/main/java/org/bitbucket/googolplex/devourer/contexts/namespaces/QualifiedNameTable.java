@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.contexts.namespaces;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A symbol table which canonicalizes {@link QualifiedName}s. A document usually contains only a handful
+ * of distinct names, so looking them up here instead of creating new instances for every element saves
+ * allocations, and lets equality checks between names from the same table succeed on identity.
+ *
+ * <p>The table is bounded. When all slots a name can occupy are taken by other names, one of them is replaced,
+ * so names which are no longer used, e.g. the ones of a single document with lots of distinct names, are
+ * displaced by the names requested later. It is thread-safe and lock-free, so it can be shared by the parses
+ * running simultaneously.</p>
+ */
+public final class QualifiedNameTable {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    // Number of slots inspected before replacing one of them, must be a power of two
+    private static final int MAX_PROBES = 8;
+
+    private final AtomicReferenceArray<QualifiedName> slots;
+    private final int mask;
+
+    /**
+     * Creates a table with {@link #DEFAULT_CAPACITY} slots.
+     */
+    public QualifiedNameTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a table with the given number of slots.
+     *
+     * @param capacity maximum number of cached names, must be a power of two
+     */
+    public QualifiedNameTable(int capacity) {
+        checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "Capacity is not a power of two: %s", capacity);
+
+        this.slots = new AtomicReferenceArray<QualifiedName>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns a canonical qualified name with the given components. Null and empty namespace and prefix mean
+     * that the component is absent, which is how StAX parsers report them; a prefix is ignored when there is
+     * no namespace.
+     *
+     * @param localName local name, cannot be null or empty
+     * @param namespace namespace, may be null or empty
+     * @param prefix prefix, may be null or empty
+     * @return qualified name, the same instance for the same arguments as long as it is not replaced by
+     *         other names
+     */
+    public QualifiedName get(String localName, String namespace, String prefix) {
+        checkNotNull(localName, "Local name is null");
+        if (namespace == null) {
+            namespace = "";
+        }
+        if (prefix == null || namespace.isEmpty()) {
+            prefix = "";
+        }
+
+        int hash = spread((localName.hashCode() * 31 + namespace.hashCode()) * 31 + prefix.hashCode());
+        for (int i = 0; i < MAX_PROBES; ++i) {
+            int index = (hash + i) & mask;
+            QualifiedName name = slots.get(index);
+            if (name == null) {
+                QualifiedName created = create(localName, namespace, prefix);
+                if (slots.compareAndSet(index, null, created)) {
+                    return created;
+                }
+                // Somebody has taken the slot in the meantime, possibly with the same name
+                name = slots.get(index);
+            }
+            if (matches(name, localName, namespace, prefix)) {
+                return name;
+            }
+        }
+
+        // The victim depends on other hash bits than the first slot, so names sharing slots replace different ones
+        QualifiedName created = create(localName, namespace, prefix);
+        slots.set((hash + ((hash >>> 16) & (MAX_PROBES - 1))) & mask, created);
+        return created;
+    }
+
+    private static boolean matches(QualifiedName name, String localName, String namespace, String prefix) {
+        return name.localName.equals(localName) && name.namespace.or("").equals(namespace) &&
+               name.prefix.or("").equals(prefix);
+    }
+
+    private static QualifiedName create(String localName, String namespace, String prefix) {
+        if (namespace.isEmpty()) {
+            return QualifiedNames.localOnly(localName);
+        } else if (prefix.isEmpty()) {
+            return QualifiedNames.withNamespace(localName, namespace);
+        } else {
+            return QualifiedNames.full(localName, namespace, prefix);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
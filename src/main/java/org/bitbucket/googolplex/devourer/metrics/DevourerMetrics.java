@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.metrics;
+
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCache;
+
+/**
+ * A listener which receives measurements of Devourer work. It is configured with
+ * {@link org.bitbucket.googolplex.devourer.configuration.DevourerConfig.Builder#setMetrics(DevourerMetrics)};
+ * see {@link JmxDevourerMetrics} for an implementation which exports the measurements over JMX.
+ *
+ * <p>Methods of the listener are called from the parsing threads (and from the action thread when actions
+ * are pipelined), possibly simultaneously, so implementations must be thread-safe. They are called on the hot
+ * path and should return quickly.</p>
+ *
+ * <p>When no listener is configured, Devourer does not measure anything. {@link #NONE} is treated the same way:
+ * it is never installed, so it costs nothing.</p>
+ */
+public interface DevourerMetrics {
+    /**
+     * A listener which ignores everything.
+     */
+    DevourerMetrics NONE = new DevourerMetrics() {
+        @Override
+        public void patternCacheCreated(PatternCache cache) {
+        }
+
+        @Override
+        public void documentParsed(long elementCount, long byteCount, long elapsedNanos) {
+        }
+
+        @Override
+        public void actionsExecuted(ActionBundle bundle, ActionPhase phase, int actionCount, long elapsedNanos) {
+        }
+    };
+
+    /**
+     * Called when a Devourer whose path mapping caches pattern lookups is created. The listener may query
+     * the statistics of the cache at any time afterwards.
+     *
+     * @param cache caching pattern group of the mapping
+     */
+    void patternCacheCreated(PatternCache cache);
+
+    /**
+     * Called when a document has been parsed completely. Documents which fail to parse are not reported.
+     *
+     * @param elementCount number of elements in the document
+     * @param byteCount number of bytes read by the parser, or {@code -1} if the document was read as characters
+     * @param elapsedNanos time taken to parse the document, including the actions, in nanoseconds
+     */
+    void documentParsed(long elementCount, long byteCount, long elapsedNanos);
+
+    /**
+     * Called when the actions of one phase of a bundle have been executed for an element.
+     *
+     * @param bundle bundle of the actions; bundles of path mappings created by Devourer have their patterns set
+     * @param phase kind of the executed actions
+     * @param actionCount number of executed actions
+     * @param elapsedNanos time taken by the actions, in nanoseconds
+     */
+    void actionsExecuted(ActionBundle bundle, ActionPhase phase, int actionCount, long elapsedNanos);
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.metrics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.MapMaker;
+import org.bitbucket.googolplex.devourer.exceptions.DevourerException;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCache;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCacheStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link DevourerMetrics} implementation which accumulates the measurements in memory and exposes them as
+ * a JMX MBean, see {@link JmxDevourerMetricsMBean} for the list of attributes. Actions are accounted per
+ * pattern of their bundle.
+ *
+ * <p>Counters are striped, so a single instance can be shared by several Devourers used from many threads.
+ * Path lookup caches and action bundles of the Devourers are referenced weakly, so metrics do not keep them
+ * alive; when a Devourer is garbage collected, its cache hit rate and action statistics are dropped.</p>
+ */
+public class JmxDevourerMetrics implements DevourerMetrics, JmxDevourerMetricsMBean {
+    public static final String DOMAIN = "org.bitbucket.googolplex.devourer";
+
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder elements = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final ConcurrentMap<ActionBundle, BundleStats> bundleStats =
+        new MapMaker().weakKeys().makeMap();
+    private final Set<PatternCache> caches =
+        Collections.newSetFromMap(new MapMaker().weakKeys().<PatternCache, Boolean>makeMap());
+    private volatile long startNanos = System.nanoTime();
+
+    private ObjectName objectName;
+
+    /**
+     * Creates metrics and registers them in the platform MBean server under the name
+     * {@code org.bitbucket.googolplex.devourer:type=DevourerMetrics,name=<name>}.
+     *
+     * @param name name distinguishing these metrics from the ones of other Devourers
+     * @return registered metrics
+     */
+    public static JmxDevourerMetrics register(String name) {
+        Preconditions.checkNotNull(name, "Name is null");
+
+        JmxDevourerMetrics metrics = new JmxDevourerMetrics();
+        try {
+            ObjectName objectName = new ObjectName(
+                DOMAIN + ":type=DevourerMetrics,name=" + ObjectName.quote(name)
+            );
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+            metrics.objectName = objectName;
+        } catch (JMException e) {
+            throw new DevourerException("Cannot register metrics MBean " + name, e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if they have been registered there by
+     * {@link #register(String)}.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new DevourerException("Cannot unregister metrics MBean " + objectName, e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public void patternCacheCreated(PatternCache cache) {
+        caches.add(cache);
+    }
+
+    @Override
+    public void documentParsed(long elementCount, long byteCount, long elapsedNanos) {
+        documents.increment();
+        elements.add(elementCount);
+        if (byteCount > 0) {
+            bytes.add(byteCount);
+        }
+    }
+
+    @Override
+    public void actionsExecuted(ActionBundle bundle, ActionPhase phase, int actionCount, long elapsedNanos) {
+        BundleStats stats = bundleStats.get(bundle);
+        if (stats == null) {
+            BundleStats created = new BundleStats();
+            stats = bundleStats.putIfAbsent(bundle, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        stats.invocations[phase.ordinal()].add(actionCount);
+        stats.nanos[phase.ordinal()].add(elapsedNanos);
+    }
+
+    @Override
+    public long getDocumentCount() {
+        return documents.sum();
+    }
+
+    @Override
+    public long getElementCount() {
+        return elements.sum();
+    }
+
+    @Override
+    public long getByteCount() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getDocumentsPerSecond() {
+        return perSecond(documents.sum());
+    }
+
+    @Override
+    public double getElementsPerSecond() {
+        return perSecond(elements.sum());
+    }
+
+    @Override
+    public double getPathCacheHitRate() {
+        long hits = 0;
+        long requests = 0;
+        for (PatternCache cache : caches) {
+            PatternCacheStats stats = cache.stats();
+            hits += stats.localHitCount + stats.sharedHitCount;
+            requests += stats.requestCount();
+        }
+        return requests == 0 ? Double.NaN : (double) hits / requests;
+    }
+
+    @Override
+    public String[] getActionStatistics() {
+        List<String> lines = new ArrayList<String>();
+        for (Map.Entry<ActionBundle, BundleStats> entry : bundleStats.entrySet()) {
+            ActionBundle bundle = entry.getKey();
+            String pattern = bundle.pattern.isPresent()
+                             ? bundle.pattern.get().toString()
+                             : "bundle@" + Integer.toHexString(System.identityHashCode(bundle));
+            for (ActionPhase phase : ActionPhase.values()) {
+                long invocations = entry.getValue().invocations[phase.ordinal()].sum();
+                if (invocations > 0) {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(entry.getValue().nanos[phase.ordinal()].sum());
+                    lines.add(pattern + " " + phase + " invocations=" + invocations + " totalMillis=" + millis);
+                }
+            }
+        }
+        Collections.sort(lines);
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Resets all counters. Statistics of the path lookup caches are kept by the caches themselves and are not
+     * affected.
+     */
+    @Override
+    public void reset() {
+        documents.reset();
+        elements.reset();
+        bytes.reset();
+        bundleStats.clear();
+        startNanos = System.nanoTime();
+    }
+
+    private double perSecond(long count) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0.0 : count * 1e9 / elapsed;
+    }
+
+    private static final class BundleStats {
+        private final LongAdder[] invocations = new LongAdder[ActionPhase.values().length];
+        private final LongAdder[] nanos = new LongAdder[ActionPhase.values().length];
+
+        private BundleStats() {
+            for (int i = 0; i < invocations.length; ++i) {
+                invocations[i] = new LongAdder();
+                nanos[i] = new LongAdder();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.metrics;
+
+/**
+ * Management interface of {@link JmxDevourerMetrics}. Rates are averaged over the time since the metrics
+ * were created or last reset.
+ */
+public interface JmxDevourerMetricsMBean {
+    long getDocumentCount();
+
+    long getElementCount();
+
+    long getByteCount();
+
+    double getDocumentsPerSecond();
+
+    double getElementsPerSecond();
+
+    /**
+     * @return ratio of path lookups answered by the caches of all registered mappings, or {@code NaN} if there
+     *         have been no cached lookups
+     */
+    double getPathCacheHitRate();
+
+    /**
+     * @return one line per pattern and action phase with the number of invocations and their total time
+     */
+    String[] getActionStatistics();
+
+    void reset();
+}
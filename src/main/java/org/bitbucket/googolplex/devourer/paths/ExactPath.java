@@ -21,16 +21,42 @@ import com.google.common.collect.ImmutableList;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Represents a path inside XML document. Essentially this is a list of {@link QualifiedName}s of XML nodes.
+ *
+ * <p>Paths are persistent: each path holds a reference to its parent path, its last name, its length and its
+ * precomputed hash code, so {@link #resolve(QualifiedName)} and {@link #moveUp()} take constant time and
+ * allocate nothing proportional to the length of the path. The list of names is available through
+ * {@link #parts}; it is materialized lazily when an element other than the last one is requested for
+ * the first time.</p>
  */
 public class ExactPath {
+    private static final ExactPath ROOT = new ExactPath(null, null);
+
     public final List<QualifiedName> parts;
 
+    // Absent for the root path only
+    private final ExactPath parent;
+    private final QualifiedName name;
+    private final int depth;
+    // Computed in the same way as List.hashCode(), so it is the same as the hash code of parts
+    private final int hash;
+
     ExactPath(List<QualifiedName> parts) {
-        this.parts = parts;
+        this(parts.isEmpty() ? null : fromList(parts.subList(0, parts.size()-1)),
+             parts.isEmpty() ? null : parts.get(parts.size()-1));
+    }
+
+    private ExactPath(ExactPath parent, QualifiedName name) {
+        this.parent = parent;
+        this.name = name;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+        this.hash = parent == null ? 1 : 31*parent.hash + name.hashCode();
+        this.parts = new Parts();
     }
 
     /**
@@ -42,8 +68,7 @@ public class ExactPath {
     public ExactPath resolve(QualifiedName name) {
         Preconditions.checkNotNull(name, "Name is null");
 
-        ImmutableList.Builder<QualifiedName> result = ImmutableList.builder();
-        return new ExactPath(result.addAll(this.parts).add(name).build());
+        return new ExactPath(this, name);
     }
 
     /**
@@ -53,10 +78,10 @@ public class ExactPath {
      * @return new exact path which is one element shorter than this object, if it is possible
      */
     public ExactPath moveUp() {
-        if (parts.isEmpty()) {
+        if (parent == null) {
             return this;
         } else {
-            return new ExactPath(parts.subList(0, parts.size()-1));
+            return parent;
         }
     }
 
@@ -76,19 +101,33 @@ public class ExactPath {
 
         ExactPath exactPath = (ExactPath) o;
 
-        return parts.equals(exactPath.parts);
+        if (depth != exactPath.depth || hash != exactPath.hash) {
+            return false;
+        }
+        // Walk both paths up until they converge to the same node or reach their roots; paths built from
+        // an empty list have their own root instance, which has no name
+        ExactPath left = this;
+        ExactPath right = exactPath;
+        while (left != right && left.depth > 0) {
+            if (!left.name.equals(right.name)) {
+                return false;
+            }
+            left = left.parent;
+            right = right.parent;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return parts.hashCode();
+        return hash;
     }
 
     /**
      * @return a path representing root node, i.e. {@code "/"}.
      */
     public static ExactPath root() {
-        return new ExactPath(ImmutableList.<QualifiedName>of());
+        return ROOT;
     }
 
     /**
@@ -100,14 +139,74 @@ public class ExactPath {
     public static ExactPath fromString(String string) {
         Preconditions.checkNotNull(string, "String is null");
 
-        ImmutableList.Builder<QualifiedName> result = ImmutableList.builder();
+        ExactPath result = ROOT;
 
         Iterable<String> parts = PathsConstants.PATH_SPLITTER.split(string);
         for (String part : parts) {
             QualifiedName name = QualifiedNames.fromString(part);
-            result.add(name);
+            result = result.resolve(name);
+        }
+
+        return result;
+    }
+
+    private static ExactPath fromList(List<QualifiedName> names) {
+        ExactPath result = ROOT;
+        for (QualifiedName name : names) {
+            result = result.resolve(name);
+        }
+        return result;
+    }
+
+    /**
+     * A list view over the names of this path. The last name is available directly; the others require
+     * walking the parent chain, so they are collected into an array once and then reused.
+     */
+    private final class Parts extends AbstractList<QualifiedName> implements RandomAccess {
+        // Immutable lists are safe to publish through a data race
+        private List<QualifiedName> names;
+
+        @Override
+        public QualifiedName get(int index) {
+            Preconditions.checkElementIndex(index, depth);
+
+            if (index == depth-1) {
+                return name;
+            }
+            List<QualifiedName> names = this.names;
+            if (names == null) {
+                QualifiedName[] array = new QualifiedName[depth];
+                ExactPath current = ExactPath.this;
+                for (int i = depth-1; i >= 0; --i) {
+                    array[i] = current.name;
+                    current = current.parent;
+                }
+                names = ImmutableList.copyOf(array);
+                this.names = names;
+            }
+            return names.get(index);
+        }
+
+        @Override
+        public int size() {
+            return depth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Parts) {
+                return ExactPath.this.equals(((Parts) o).path());
+            }
+            return super.equals(o);
         }
 
-        return new ExactPath(result.build());
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private ExactPath path() {
+            return ExactPath.this;
+        }
     }
 }
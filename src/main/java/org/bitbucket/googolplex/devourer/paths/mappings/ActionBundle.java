@@ -16,10 +16,16 @@
 
 package org.bitbucket.googolplex.devourer.paths.mappings;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
 
 import java.util.List;
 
@@ -28,17 +34,72 @@ import java.util.List;
  * Time: 10:53
  */
 public class ActionBundle {
+    /**
+     * A bundle without any actions.
+     */
+    public static final ActionBundle EMPTY = new ActionBundle(
+        ImmutableList.<ActionBefore>of(), ImmutableList.<ActionAt>of(), ImmutableList.<ActionAfter>of()
+    );
+
     public final List<ActionBefore> befores;
     public final List<ActionAt> ats;
     public final List<ActionAfter> afters;
+    /**
+     * All at-actions in the order they should be invoked, including the ones from {@link #ats}, which are
+     * adapted to accept {@link CharSequence}s.
+     */
+    public final List<ActionAtChars> bodyActions;
+    /**
+     * The pattern this bundle is mapped to, if known; it is used to identify the bundle in metrics.
+     */
+    public final Optional<PathPattern> pattern;
 
     public ActionBundle(List<ActionBefore> befores, List<ActionAt> ats, List<ActionAfter> afters) {
+        this(befores, ats, afters, adapt(ats), Optional.<PathPattern>absent());
+    }
+
+    // Bundles with char sequence actions and known patterns are constructed by MappingBuilder
+    ActionBundle(List<ActionBefore> befores, List<ActionAt> ats, List<ActionAfter> afters,
+                 List<ActionAtChars> bodyActions, Optional<PathPattern> pattern) {
         Preconditions.checkNotNull(befores, "ActionBefore list is null");
         Preconditions.checkNotNull(ats, "ActionAt list is null");
         Preconditions.checkNotNull(afters, "ActionAfter list is null");
+        Preconditions.checkNotNull(bodyActions, "Body action list is null");
+        Preconditions.checkNotNull(pattern, "Pattern is null");
 
         this.befores = befores;
         this.ats = ats;
         this.afters = afters;
+        this.bodyActions = bodyActions;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @return {@code true} if this bundle does not contain any actions, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return befores.isEmpty() && bodyActions.isEmpty() && afters.isEmpty();
+    }
+
+    private static List<ActionAtChars> adapt(List<ActionAt> ats) {
+        Preconditions.checkNotNull(ats, "ActionAt list is null");
+
+        ImmutableList.Builder<ActionAtChars> result = ImmutableList.builder();
+        for (ActionAt action : ats) {
+            result.add(adapt(action));
+        }
+        return result.build();
+    }
+
+    /**
+     * Wraps an {@link ActionAt} into an {@link ActionAtChars} which materializes the body as a string.
+     */
+    static ActionAtChars adapt(final ActionAt action) {
+        return new ActionAtChars() {
+            @Override
+            public void act(Stacks stacks, ElementContext context, CharSequence body) {
+                action.act(stacks, context, body.toString());
+            }
+        };
     }
 }
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.mappings;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default {@link PathTracker} for mappings which only provide
+ * {@link PathMapping#lookup(ExactPath, NamespaceContext)}. It maintains current {@link ExactPath} and looks
+ * it up in the mapping on each descent.
+ */
+class LookupPathTracker implements PathTracker {
+    private final PathMapping mapping;
+    private final NamespaceContext namespaceContext;
+    private final List<Optional<ActionBundle>> bundles = new ArrayList<Optional<ActionBundle>>();
+    private ExactPath path = ExactPath.root();
+
+    LookupPathTracker(PathMapping mapping, NamespaceContext namespaceContext) {
+        this.mapping = Preconditions.checkNotNull(mapping, "Mapping is null");
+        this.namespaceContext = namespaceContext;
+        this.bundles.add(Optional.<ActionBundle>absent());
+    }
+
+    @Override
+    public Optional<ActionBundle> push(QualifiedName name) {
+        Preconditions.checkNotNull(name, "Name is null");
+
+        path = path.resolve(name);
+        Optional<ActionBundle> bundle = mapping.lookup(path, namespaceContext);
+        bundles.add(bundle);
+        return bundle;
+    }
+
+    @Override
+    public Optional<ActionBundle> current() {
+        return bundles.get(bundles.size() - 1);
+    }
+
+    @Override
+    public void pop() {
+        Preconditions.checkState(bundles.size() > 1, "Cannot move up from the root");
+
+        path = path.moveUp();
+        bundles.remove(bundles.size() - 1);
+    }
+}
@@ -17,11 +17,18 @@
 package org.bitbucket.googolplex.devourer.paths.mappings;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
 import org.bitbucket.googolplex.devourer.paths.ExactPath;
 import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.IncrementalPatternGroup;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCache;
 import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroup;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternMatcher;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -31,21 +38,115 @@ import java.util.Map;
  * @author Vladimir Matveev
  */
 public class MapBackedPathMapping implements PathMapping {
-    private final Map<PathPattern, ActionBundle> actionBundleMap;
+    // Bundles are wrapped once, so that looking them up during parsing does not allocate
+    private final Map<PathPattern, Optional<ActionBundle>> actionBundleMap;
     private final PatternGroup patternGroup;
 
     MapBackedPathMapping(Map<PathPattern, ActionBundle> actionBundleMap, PatternGroup patternGroup) {
-        this.actionBundleMap = actionBundleMap;
+        this.actionBundleMap = Maps.newHashMapWithExpectedSize(actionBundleMap.size());
+        for (Map.Entry<PathPattern, ActionBundle> entry : actionBundleMap.entrySet()) {
+            this.actionBundleMap.put(entry.getKey(), Optional.of(entry.getValue()));
+        }
         this.patternGroup = patternGroup;
     }
 
     @Override
     public Optional<ActionBundle> lookup(ExactPath path, NamespaceContext namespaceContext) {
-        Optional<PathPattern> pattern = patternGroup.lookup(path, namespaceContext);
-        if (pattern.isPresent()) {
-            return Optional.fromNullable(actionBundleMap.get(pattern.get()));
+        return bundleFor(patternGroup.lookup(path, namespaceContext));
+    }
+
+    @Override
+    public PathTracker tracker(NamespaceContext namespaceContext) {
+        if (patternGroup instanceof IncrementalPatternGroup) {
+            return new Tracker(((IncrementalPatternGroup) patternGroup).matcher(namespaceContext), namespaceContext);
+        } else {
+            return new Tracker(null, namespaceContext);
+        }
+    }
+
+    /**
+     * @return the pattern group of this mapping if it caches lookups, absent value otherwise
+     */
+    public Optional<PatternCache> patternCache() {
+        if (patternGroup instanceof PatternCache) {
+            return Optional.of((PatternCache) patternGroup);
         } else {
             return Optional.absent();
         }
     }
+
+    private Optional<ActionBundle> bundleFor(Optional<PathPattern> pattern) {
+        if (pattern.isPresent()) {
+            Optional<ActionBundle> bundle = actionBundleMap.get(pattern.get());
+            if (bundle != null) {
+                return bundle;
+            }
+        }
+        return Optional.absent();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<ActionBundle>[] newBundleArray(int size) {
+        return (Optional<ActionBundle>[]) new Optional<?>[size];
+    }
+
+    /**
+     * Uses pattern group matcher when it is available; otherwise maintains current {@link ExactPath} and
+     * looks it up in the pattern group on each descent.
+     */
+    private class Tracker implements PathTracker {
+        private final PatternMatcher matcher;
+        private final NamespaceContext namespaceContext;
+        private ExactPath path = ExactPath.root();
+        private Optional<ActionBundle>[] bundles = newBundleArray(16);
+        private int depth = 0;
+
+        private Tracker(PatternMatcher matcher, NamespaceContext namespaceContext) {
+            this.matcher = matcher;
+            this.namespaceContext = namespaceContext;
+            this.bundles[0] = Optional.absent();
+        }
+
+        @Override
+        public Optional<ActionBundle> push(QualifiedName name) {
+            Preconditions.checkNotNull(name, "Name is null");
+
+            Optional<PathPattern> pattern;
+            if (matcher != null) {
+                pattern = matcher.push(name);
+            } else {
+                path = path.resolve(name);
+                pattern = patternGroup.lookup(path, namespaceContext);
+            }
+
+            if (++depth == bundles.length) {
+                bundles = Arrays.copyOf(bundles, bundles.length * 2);
+            }
+            bundles[depth] = bundleFor(pattern);
+            return bundles[depth];
+        }
+
+        @Override
+        public Optional<ActionBundle> current() {
+            return bundles[depth];
+        }
+
+        @Override
+        public boolean canMatchBelow() {
+            // Arbitrary pattern groups give no way to know it
+            return matcher == null || matcher.canMatchBelow();
+        }
+
+        @Override
+        public void pop() {
+            Preconditions.checkState(depth > 0, "Cannot move up from the root");
+
+            if (matcher != null) {
+                matcher.pop();
+            } else {
+                path = path.moveUp();
+            }
+            bundles[depth--] = null;
+        }
+    }
 }
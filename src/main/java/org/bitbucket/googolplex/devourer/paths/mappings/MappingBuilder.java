@@ -16,12 +16,16 @@
 
 package org.bitbucket.googolplex.devourer.paths.mappings;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.*;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
 import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.IncrementalPatternGroup;
 import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroup;
 import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroupProvider;
 import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroups;
@@ -39,8 +43,11 @@ public class MappingBuilder {
     private ListMultimap<PathPattern, ActionBefore> beforeMappings = ArrayListMultimap.create();
     private ListMultimap<PathPattern, ActionAt> atMappings = ArrayListMultimap.create();
     private ListMultimap<PathPattern, ActionAfter> afterMappings = ArrayListMultimap.create();
-    private PatternGroupProvider patternGroupProvider = PatternGroups.cachingGroupProvider();
+    // All at-actions, both plain and accepting char sequences, in the order of addition
+    private ListMultimap<PathPattern, ActionAtChars> bodyMappings = ArrayListMultimap.create();
+    private PatternGroupProvider patternGroupProvider = PatternGroups.trieGroupProvider();
     private LinkedHashSet<PathPattern> patterns = new LinkedHashSet<PathPattern>();
+    private Optional<NamespaceContext> namespaceContext = Optional.absent();
 
     protected MappingBuilder() {
     }
@@ -56,6 +63,21 @@ public class MappingBuilder {
         return this;
     }
 
+    /**
+     * Sets the namespace context the mapping will be used with. When it is known, pattern groups which support it
+     * compile their patterns for this context once, when the mapping is built, instead of doing it when
+     * the mapping is first used. The mapping still works with other contexts.
+     *
+     * @param namespaceContext namespace context
+     * @return this object
+     */
+    public MappingBuilder withNamespaceContext(NamespaceContext namespaceContext) {
+        Preconditions.checkNotNull(namespaceContext, "Namespace context is null");
+
+        this.namespaceContext = Optional.of(namespaceContext);
+        return this;
+    }
+
     private <T> MappingBuilder add(ListMultimap<PathPattern, T> map, PathPattern pattern, T action) {
         Preconditions.checkNotNull(pattern, "Pattern is null");
         Preconditions.checkNotNull(action, "Action is null");
@@ -70,7 +92,12 @@ public class MappingBuilder {
     }
 
     public MappingBuilder add(PathPattern pattern, ActionAt actionAt) {
-        return add(atMappings, pattern, actionAt);
+        add(atMappings, pattern, actionAt);
+        return add(bodyMappings, pattern, ActionBundle.adapt(actionAt));
+    }
+
+    public MappingBuilder addChars(PathPattern pattern, ActionAtChars actionAt) {
+        return add(bodyMappings, pattern, actionAt);
     }
 
     public MappingBuilder add(PathPattern pattern, ActionAfter actionAfter) {
@@ -80,7 +107,7 @@ public class MappingBuilder {
     private Map<PathPattern, ActionBundle> buildMap() {
         Set<PathPattern> allKeys = Sets.newHashSet();
         allKeys.addAll(beforeMappings.keys());
-        allKeys.addAll(atMappings.keys());
+        allKeys.addAll(bodyMappings.keys());
         allKeys.addAll(afterMappings.keys());
 
         Map<PathPattern, ActionBundle> result = Maps.newHashMap();
@@ -89,8 +116,9 @@ public class MappingBuilder {
             List<ActionBefore> befores = ImmutableList.copyOf(beforeMappings.get(path));
             List<ActionAt> ats = ImmutableList.copyOf(atMappings.get(path));
             List<ActionAfter> afters = ImmutableList.copyOf(afterMappings.get(path));
+            List<ActionAtChars> bodyActions = ImmutableList.copyOf(bodyMappings.get(path));
 
-            ActionBundle mapping = new ActionBundle(befores, ats, afters);
+            ActionBundle mapping = new ActionBundle(befores, ats, afters, bodyActions, Optional.of(path));
             result.put(path, mapping);
         }
 
@@ -104,6 +132,10 @@ public class MappingBuilder {
 
     public PathMapping build() {
         Map<PathPattern, ActionBundle> map = buildMap();
-        return createPathMapping(map, patternGroupProvider.create(patterns));
+        PatternGroup patternGroup = patternGroupProvider.create(patterns);
+        if (namespaceContext.isPresent() && patternGroup instanceof IncrementalPatternGroup) {
+            ((IncrementalPatternGroup) patternGroup).prepare(namespaceContext.get());
+        }
+        return createPathMapping(map, patternGroup);
     }
 }
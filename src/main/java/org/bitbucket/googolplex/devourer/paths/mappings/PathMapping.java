@@ -26,4 +26,19 @@ import org.bitbucket.googolplex.devourer.paths.ExactPath;
  */
 public interface PathMapping {
     Optional<ActionBundle> lookup(ExactPath path, NamespaceContext namespaceContext);
+
+    /**
+     * Creates new {@link PathTracker} positioned at the root path. The tracker resolves the same bundles
+     * as {@link #lookup(ExactPath, NamespaceContext)} would for the path it follows, but it may reuse the work
+     * done for parent elements.
+     * <p>
+     * The default implementation looks up the full current path with {@link #lookup(ExactPath, NamespaceContext)}
+     * on each descent.
+     *
+     * @param namespaceContext namespace context used for prefixes resolution
+     * @return new path tracker
+     */
+    default PathTracker tracker(NamespaceContext namespaceContext) {
+        return new LookupPathTracker(this, namespaceContext);
+    }
 }
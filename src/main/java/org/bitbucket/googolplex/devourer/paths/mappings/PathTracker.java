@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.mappings;
+
+import com.google.common.base.Optional;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+
+/**
+ * Follows the current position inside an XML document and resolves {@link ActionBundle}s for it. Trackers are
+ * created by {@link PathMapping#tracker(org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext)}
+ * for each document walk and are not thread-safe.
+ */
+public interface PathTracker {
+    /**
+     * Descends into a child element with the given name.
+     *
+     * @param name qualified name of the child element
+     * @return an action bundle for the new current path, if present
+     */
+    Optional<ActionBundle> push(QualifiedName name);
+
+    /**
+     * @return an action bundle for the current path, if present
+     */
+    Optional<ActionBundle> current();
+
+    /**
+     * Checks whether an action bundle could be found for any descendant of the current element. The answer
+     * may be conservative, i.e. {@code true} may be returned even if there are no such bundles. The default
+     * implementation always returns {@code true}, so no subtrees are skipped.
+     *
+     * @return {@code false} if no descendant of the current element can have actions, {@code true} otherwise
+     */
+    default boolean canMatchBelow() {
+        return true;
+    }
+
+    /**
+     * Returns to the parent of the current element.
+     *
+     * @throws IllegalStateException if the tracker is at the root path
+     */
+    void pop();
+}
@@ -21,8 +21,10 @@ import com.google.common.collect.ImmutableList;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
 import org.bitbucket.googolplex.devourer.paths.PathsConstants;
+import org.bitbucket.googolplex.devourer.paths.patterns.elements.LiteralName;
 import org.bitbucket.googolplex.devourer.paths.patterns.elements.PatternElement;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -30,9 +32,19 @@ import java.util.List;
  */
 public class AdvancedPathPattern implements PathPattern {
     private final List<PatternElement> elements;
+    // Patterns are looked up in hash maps for each matched element, so the hash is computed once
+    private final int hash;
 
     private AdvancedPathPattern(List<PatternElement> elements) {
         this.elements = elements;
+        this.hash = elements.hashCode();
+    }
+
+    /**
+     * @return a list of pattern elements this pattern consists of
+     */
+    public List<PatternElement> elements() {
+        return elements;
     }
 
     @Override
@@ -48,56 +60,68 @@ public class AdvancedPathPattern implements PathPattern {
         return matches(elements, names, context);
     }
 
+    /**
+     * Simulates the pattern as a nondeterministic automaton whose states are positions in the pattern.
+     * State {@code i} means that the first {@code i} pattern elements have been matched; a global wildcard
+     * may be skipped without consuming a name or may consume any name and stay in place. All live states
+     * are advanced at once for each name, so the running time is bounded by the product of the path length
+     * and the pattern length regardless of the number of global wildcards.
+     */
     private boolean matches(List<PatternElement> elements, List<QualifiedName> names, NamespaceContext context) {
-        int idx = 0;
-        // Loop until either pattern or path is exhausted or until global wildcard is found
-        for (; idx < elements.size() && idx < names.size(); ++idx) {
-            // Exit from the loop if global wildcard was found
-            if (elements.get(idx).isGlobalWildcard()) {
-                break;
+        int size = elements.size();
+        boolean[] current = new boolean[size + 1];
+        boolean[] next = new boolean[size + 1];
+
+        current[0] = true;
+        skipGlobalWildcards(elements, current);
+
+        for (QualifiedName name : names) {
+            boolean alive = false;
+            for (int i = 0; i < size; ++i) {
+                if (!current[i]) {
+                    continue;
+                }
+                PatternElement element = elements.get(i);
+                if (element.isGlobalWildcard()) {
+                    next[i] = true;
+                    alive = true;
+                } else if (matches(element, name, context)) {
+                    next[i + 1] = true;
+                    alive = true;
+                }
             }
-            // Exit with failure if path part does not match pattern element
-            if (!elements.get(idx).matches(ImmutableList.of(names.get(idx)), context)) {
+            // No state can consume the name - the path cannot match
+            if (!alive) {
                 return false;
             }
-        }
+            skipGlobalWildcards(elements, next);
 
-        // Both pattern and path are exhausted and no conflicts was found - path matches
-        if (idx == elements.size() && idx == names.size()) {
-            return true;
-        }
-
-        // Pattern is at its last element and it is global wildcard; the rest of the path is considered
-        // matching, and true is returned
-        if (idx == elements.size()-1 && idx <= names.size() && elements.get(idx).isGlobalWildcard()) {
-            return true;
+            boolean[] tmp = current;
+            current = next;
+            next = tmp;
+            Arrays.fill(next, false);
         }
 
-        // Pattern is exhausted but path is not - path does not match
-        if (idx == elements.size() && idx < names.size()) {
-            return false;
-        }
-
-        // Pattern is not exhausted but path is; there can be no global wildcard in this branch, so
-        // path does not match
-        if (idx < elements.size() && idx == names.size()) {
-            return false;
-        }
+        return current[size];
+    }
 
-        // Neither pattern nor path are exhausted; this can happen only if a global wildcard has been found
-        // in the middle of the pattern (it is at idx index). We have to try to match all tail parts against
-        // the pattern
-        List<PatternElement> subpattern = elements.subList(idx+1, elements.size());
-        for (int j = idx; j < names.size(); ++j) {
-            // Try for the next possible tail of the path
-            List<QualifiedName> subpath = names.subList(j, names.size());
-            if (matches(subpattern, subpath, context)) {  // If it matches, then the whole path matches
-                return true;
+    /**
+     * Marks states reachable from already marked ones without consuming a name, that is, through global
+     * wildcards matching zero names.
+     */
+    private static void skipGlobalWildcards(List<PatternElement> elements, boolean[] states) {
+        for (int i = 0; i < elements.size(); ++i) {
+            if (states[i] && elements.get(i).isGlobalWildcard()) {
+                states[i + 1] = true;
             }
         }
+    }
 
-        // None of the subpaths have matched, return failure
-        return false;
+    private static boolean matches(PatternElement element, QualifiedName name, NamespaceContext context) {
+        if (element instanceof LiteralName) {
+            return ((LiteralName) element).matches(name, context);
+        }
+        return element.matches(ImmutableList.of(name), context);
     }
 
     @Override
@@ -111,12 +135,12 @@ public class AdvancedPathPattern implements PathPattern {
 
         AdvancedPathPattern that = (AdvancedPathPattern) o;
 
-        return elements.equals(that.elements);
+        return hash == that.hash && elements.equals(that.elements);
     }
 
     @Override
     public int hashCode() {
-        return elements.hashCode();
+        return hash;
     }
 
     /**
@@ -69,8 +69,19 @@ public class LiteralName extends PatternElement {
         if (names.size() != 1) {
             return false;
         }
-        QualifiedName name = names.get(0);
+        return matches(names.get(0), context);
+    }
 
+    /**
+     * Checks whether given qualified name matches this literal name in the provided {@code context}. This is
+     * the same as {@link #matches(List, NamespaceContext)} called with a singleton list, but it does not require
+     * the list to be allocated.
+     *
+     * @param name a qualified name to check
+     * @param context mapping between prefixes and namespaces
+     * @return {@code true} when {@code name} matches {@code this}, {@code false} otherwise
+     */
+    public boolean matches(QualifiedName name, NamespaceContext context) {
         // This literal name's local name is wildcard or is equal to the qualified name's local name
         if (PathsConstants.WILDCARD.equals(this.name) || this.name.equals(name.localName)) {
             // When literal name's prefix is present
@@ -87,6 +98,32 @@ public class LiteralName extends PatternElement {
         }
     }
 
+    /**
+     * Resolves the prefix of this literal name in the provided {@code context}. The result matches exactly
+     * the same qualified names as {@link #matches(QualifiedName, NamespaceContext)} does with this context,
+     * but without looking anything up in the context.
+     *
+     * @param context mapping between prefixes and namespaces
+     * @return this literal name compiled for {@code context}
+     */
+    public ResolvedName resolve(NamespaceContext context) {
+        Preconditions.checkNotNull(context, "Context is null");
+
+        String localName = PathsConstants.WILDCARD.equals(name) ? null : name;
+        if (!prefix.isPresent()) {
+            return ResolvedName.noNamespace(localName);
+        } else if (PathsConstants.WILDCARD.equals(prefix.get())) {
+            return ResolvedName.anyNamespace(localName);
+        }
+
+        Optional<String> namespace = context.namespace(prefix.get());
+        if (namespace.isPresent()) {
+            return ResolvedName.exactNamespace(localName, namespace.get());
+        } else {
+            return ResolvedName.unboundPrefix(localName);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.elements;
+
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+
+/**
+ * A {@link LiteralName} compiled for a particular {@link NamespaceContext}. The prefix of the literal name
+ * is resolved to a namespace once, so matching a qualified name against it only compares strings; names and
+ * namespaces are interned, so with parsers which intern them too the comparison usually succeeds on identity.
+ *
+ * <p>Instances are created by {@link LiteralName#resolve(NamespaceContext)} and are immutable.</p>
+ */
+public final class ResolvedName {
+    private static final int ANY_NAMESPACE = 0;
+    private static final int NO_NAMESPACE = 1;
+    private static final int EXACT_NAMESPACE = 2;
+    // The prefix is not bound in the context, so nothing can match
+    private static final int UNBOUND_PREFIX = 3;
+
+    // Null when any local name matches
+    private final String localName;
+    private final int namespaceKind;
+    private final String namespace;
+
+    private ResolvedName(String localName, int namespaceKind, String namespace) {
+        this.localName = localName;
+        this.namespaceKind = namespaceKind;
+        this.namespace = namespace;
+    }
+
+    /**
+     * Checks whether the given qualified name matches the literal name this object was resolved from. This is
+     * equivalent to {@link LiteralName#matches(QualifiedName, NamespaceContext)} called with the context this name
+     * was resolved in.
+     *
+     * @param name a qualified name to check
+     * @return {@code true} when {@code name} matches {@code this}, {@code false} otherwise
+     */
+    public boolean matches(QualifiedName name) {
+        if (localName != null && !localName.equals(name.localName)) {
+            return false;
+        }
+        switch (namespaceKind) {
+            case ANY_NAMESPACE:
+                return true;
+            case NO_NAMESPACE:
+                return !name.namespace.isPresent();
+            case EXACT_NAMESPACE:
+                return name.namespace.isPresent() && namespace.equals(name.namespace.get());
+            default:
+                return false;
+        }
+    }
+
+    static ResolvedName anyNamespace(String localName) {
+        return new ResolvedName(intern(localName), ANY_NAMESPACE, null);
+    }
+
+    static ResolvedName noNamespace(String localName) {
+        return new ResolvedName(intern(localName), NO_NAMESPACE, null);
+    }
+
+    static ResolvedName exactNamespace(String localName, String namespace) {
+        return new ResolvedName(intern(localName), EXACT_NAMESPACE, namespace.intern());
+    }
+
+    static ResolvedName unboundPrefix(String localName) {
+        return new ResolvedName(intern(localName), UNBOUND_PREFIX, null);
+    }
+
+    private static String intern(String localName) {
+        return localName == null ? null : localName.intern();
+    }
+}
@@ -19,6 +19,7 @@ package org.bitbucket.googolplex.devourer.paths.patterns.groups;
 import com.google.common.base.Optional;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
 import org.bitbucket.googolplex.devourer.paths.ExactPath;
 import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
@@ -32,11 +33,12 @@ import java.util.concurrent.ExecutionException;
  *
  * @author Vladimir Matveev
  */
-public class CachingPatternGroup implements PatternGroup {
+public class CachingPatternGroup implements PatternCache {
     private final PatternGroup inner;
     private final Cache<ExactPath, Optional<PathPattern>> cache =
         CacheBuilder.newBuilder()
             .maximumSize(500)
+            .recordStats()
             .build();
 
     CachingPatternGroup(PatternGroup inner) {
@@ -57,4 +59,10 @@ public class CachingPatternGroup implements PatternGroup {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public PatternCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new PatternCacheStats(0, stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.size());
+    }
 }
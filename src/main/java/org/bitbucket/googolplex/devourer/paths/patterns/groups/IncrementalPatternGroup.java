@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.groups;
+
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+
+/**
+ * A {@link PatternGroup} which is able to match paths incrementally, one name at a time, reusing the work
+ * done for the parent path when a child is matched.
+ */
+public interface IncrementalPatternGroup extends PatternGroup {
+    /**
+     * Creates new matcher positioned at the root path. The matcher is not thread-safe and is intended
+     * to be used for a single document walk.
+     *
+     * @param namespaceContext namespace context used for prefixes resolution
+     * @return new matcher
+     */
+    PatternMatcher matcher(NamespaceContext namespaceContext);
+
+    /**
+     * Prepares this group for matching in the given namespace context ahead of time, e.g. resolves the prefixes
+     * used by its patterns. This is an optimization only; groups must work with any context regardless of
+     * whether they have been prepared for it. The default implementation does nothing.
+     *
+     * @param namespaceContext namespace context which will be used for matching
+     */
+    default void prepare(NamespaceContext namespaceContext) {
+    }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.groups;
+
+/**
+ * A snapshot of the statistics of a {@link PatternCache}. Counters are cumulative since the creation of
+ * the group; lookups which are running while the snapshot is taken may be missing from it. Caches with a single
+ * level, like {@link CachingPatternGroup}, report all their hits as shared ones.
+ */
+public final class PatternCacheStats {
+    /** Number of lookups answered by the cache of the calling thread, see {@link TwoLevelCachingPatternGroup} */
+    public final long localHitCount;
+    /** Number of lookups answered by the shared cache */
+    public final long sharedHitCount;
+    /** Number of lookups which were delegated to the underlying group */
+    public final long missCount;
+    /** Number of entries evicted from the shared cache because it was full */
+    public final long evictionCount;
+    /** Number of entries in the shared cache */
+    public final long size;
+
+    public PatternCacheStats(long localHitCount, long sharedHitCount, long missCount, long evictionCount,
+                             long size) {
+        this.localHitCount = localHitCount;
+        this.sharedHitCount = sharedHitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /**
+     * @return total number of lookups
+     */
+    public long requestCount() {
+        return localHitCount + sharedHitCount + missCount;
+    }
+
+    /**
+     * @return ratio of lookups answered by either cache level, {@code 1.0} if there have been no lookups
+     */
+    public double hitRate() {
+        long requestCount = requestCount();
+        return requestCount == 0 ? 1.0 : (double) (localHitCount + sharedHitCount) / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PatternCacheStats{localHits=" + localHitCount + ", sharedHits=" + sharedHitCount +
+               ", misses=" + missCount + ", evictions=" + evictionCount + ", size=" + size + "}";
+    }
+}
@@ -42,6 +42,40 @@ public final class PatternGroups {
         return new CachingPatternGroup(listBackedGroup(patterns));
     }
 
+    public static PatternGroup trieGroup(Iterable<? extends PathPattern> patterns) {
+        Preconditions.checkNotNull(patterns, "Patterns are null");
+
+        return new TriePatternGroup(ImmutableList.<PathPattern>copyOf(patterns));
+    }
+
+    /**
+     * Creates a {@link TwoLevelCachingPatternGroup} in front of a {@link TriePatternGroup} with the given
+     * patterns, using default cache sizes.
+     *
+     * @param patterns patterns of the group
+     * @return new pattern group
+     */
+    public static TwoLevelCachingPatternGroup twoLevelCachingGroup(Iterable<? extends PathPattern> patterns) {
+        return twoLevelCachingGroup(patterns, TwoLevelCachingPatternGroup.DEFAULT_LOCAL_SIZE,
+                                    TwoLevelCachingPatternGroup.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a {@link TwoLevelCachingPatternGroup} in front of a {@link TriePatternGroup} with the given
+     * patterns.
+     *
+     * @param patterns patterns of the group
+     * @param localSize number of entries in the cache of each thread, must be a power of two
+     * @param maximumSize maximum number of entries in the shared cache
+     * @return new pattern group
+     */
+    public static TwoLevelCachingPatternGroup twoLevelCachingGroup(Iterable<? extends PathPattern> patterns,
+                                                                   int localSize, int maximumSize) {
+        Preconditions.checkNotNull(patterns, "Patterns are null");
+
+        return new TwoLevelCachingPatternGroup(trieGroup(patterns), localSize, maximumSize);
+    }
+
     public static PatternGroupProvider listBackedGroupProvider() {
         return new PatternGroupProvider() {
             @Override
@@ -59,4 +93,22 @@ public final class PatternGroups {
             }
         };
     }
+
+    public static PatternGroupProvider twoLevelCachingGroupProvider() {
+        return new PatternGroupProvider() {
+            @Override
+            public PatternGroup create(Iterable<? extends PathPattern> patterns) {
+                return twoLevelCachingGroup(patterns);
+            }
+        };
+    }
+
+    public static PatternGroupProvider trieGroupProvider() {
+        return new PatternGroupProvider() {
+            @Override
+            public PatternGroup create(Iterable<? extends PathPattern> patterns) {
+                return trieGroup(patterns);
+            }
+        };
+    }
 }
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.groups;
+
+import com.google.common.base.Optional;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+
+/**
+ * A stateful matcher which follows a walk over an XML document. Its state corresponds to the path from the
+ * root to the current element; {@link #push(QualifiedName)} descends into a child and {@link #pop()} returns
+ * to the parent. Matchers are created by {@link IncrementalPatternGroup}s and are not thread-safe.
+ */
+public interface PatternMatcher {
+    /**
+     * Descends into a child element with the given name and returns the pattern matching the new path.
+     *
+     * @param name qualified name of the child element
+     * @return a pattern which matches the new current path, if present
+     */
+    Optional<PathPattern> push(QualifiedName name);
+
+    /**
+     * Checks whether any pattern could match a path of a descendant of the current element. When this method
+     * returns {@code false}, the whole subtree of the current element can be skipped.
+     *
+     * @return {@code false} if no descendant of the current element can be matched, {@code true} otherwise
+     */
+    boolean canMatchBelow();
+
+    /**
+     * Returns to the parent of the current element.
+     *
+     * @throws IllegalStateException if the matcher is at the root path
+     */
+    void pop();
+}
@@ -0,0 +1,444 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.groups;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.bitbucket.googolplex.devourer.paths.PathsConstants;
+import org.bitbucket.googolplex.devourer.paths.patterns.AdvancedPathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.elements.LiteralName;
+import org.bitbucket.googolplex.devourer.paths.patterns.elements.PatternElement;
+import org.bitbucket.googolplex.devourer.paths.patterns.elements.ResolvedName;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An implementation of {@link PatternGroup} which compiles all {@link AdvancedPathPattern}s it is given into
+ * a shared prefix tree. Each edge of the tree is labeled either with a {@link LiteralName} or with a global
+ * wildcard; global wildcard nodes loop on any name. Lookup simulates the tree as a nondeterministic automaton,
+ * so its cost depends on the depth of the path and on the number of patterns sharing its prefixes, not on the
+ * total number of patterns in the group.
+ *
+ * <p>Patterns which are not {@link AdvancedPathPattern}s (or which consist of unknown pattern elements) cannot
+ * be compiled; they are checked linearly, as {@link ListBackedPatternGroup} does. In any case, if several
+ * patterns match the path, the one which was registered first is returned.</p>
+ *
+ * <p>The same automaton is used by {@link #matcher(NamespaceContext)} to track matching state incrementally while
+ * a document is being walked: the set of live nodes for each depth is computed from the set of its parent, so
+ * the cost of each element is proportional to the number of live nodes only.</p>
+ *
+ * <p>Matchers also report when none of the live nodes can consume any more names, which means that no pattern
+ * can match below the current element.</p>
+ *
+ * <p>Literal names of the tree are matched in their {@link ResolvedName} form: their prefixes are resolved
+ * in the namespace context once, when the first matcher for the context is created (or when the group is
+ * {@linkplain #prepare(NamespaceContext) prepared} for it), rather than on each comparison.</p>
+ *
+ * <p>This class is thread-safe; matchers it creates are not.</p>
+ */
+public class TriePatternGroup implements IncrementalPatternGroup {
+    private static final int NO_PATTERN = Integer.MAX_VALUE;
+
+    private final List<PathPattern> patterns;
+    // Lookup results for each pattern, created once so that lookups do not allocate them
+    private final List<Optional<PathPattern>> results;
+    private final Node root;
+    // Labels of all literal nodes, indexed by node id
+    private final List<LiteralName> literals;
+    private final List<PathPattern> fallbackPatterns;
+    private final int[] fallbackIndices;
+    // Literal names resolved in the most recently used namespace context
+    private volatile Resolution resolution;
+
+    TriePatternGroup(List<PathPattern> patterns) {
+        this.patterns = patterns;
+        this.root = new Node(null, false);
+
+        ImmutableList.Builder<Optional<PathPattern>> results = ImmutableList.builder();
+        for (PathPattern pattern : patterns) {
+            results.add(Optional.of(pattern));
+        }
+        this.results = results.build();
+
+        List<PathPattern> fallbackPatterns = Lists.newArrayList();
+        List<Integer> fallbackIndices = Lists.newArrayList();
+        for (int i = 0; i < patterns.size(); ++i) {
+            PathPattern pattern = patterns.get(i);
+            if (!addPattern(pattern, i)) {
+                fallbackPatterns.add(pattern);
+                fallbackIndices.add(i);
+            }
+        }
+        List<LiteralName> literals = Lists.newArrayList();
+        this.root.freeze(literals);
+        this.literals = ImmutableList.copyOf(literals);
+
+        this.fallbackPatterns = ImmutableList.copyOf(fallbackPatterns);
+        this.fallbackIndices = new int[fallbackIndices.size()];
+        for (int i = 0; i < this.fallbackIndices.length; ++i) {
+            this.fallbackIndices[i] = fallbackIndices.get(i);
+        }
+    }
+
+    /**
+     * Adds the given pattern to the tree.
+     *
+     * @return {@code false} if the pattern cannot be represented in the tree
+     */
+    private boolean addPattern(PathPattern pattern, int index) {
+        if (!(pattern instanceof AdvancedPathPattern)) {
+            return false;
+        }
+        List<PatternElement> elements = ((AdvancedPathPattern) pattern).elements();
+
+        // Check that all elements are known before touching the tree
+        for (PatternElement element : elements) {
+            if (!element.isGlobalWildcard() && !(element instanceof LiteralName)) {
+                return false;
+            }
+        }
+
+        Node node = root;
+        for (PatternElement element : elements) {
+            if (element.isGlobalWildcard()) {
+                node = node.globChild();
+            } else {
+                node = node.literalChild((LiteralName) element);
+            }
+        }
+        // Earlier patterns take precedence
+        if (node.pattern == NO_PATTERN) {
+            node.pattern = index;
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<PathPattern> lookup(ExactPath path, NamespaceContext namespaceContext) {
+        ResolvedName[] names = resolve(namespaceContext);
+        StateSet current = new StateSet();
+        StateSet next = new StateSet();
+        root.addClosureTo(current);
+
+        for (QualifiedName name : path.parts) {
+            if (current.isEmpty()) {
+                break;
+            }
+            next.clear();
+            current.step(name, names, next);
+
+            StateSet tmp = current;
+            current = next;
+            next = tmp;
+        }
+
+        return select(current, path, namespaceContext);
+    }
+
+    @Override
+    public PatternMatcher matcher(NamespaceContext namespaceContext) {
+        return new TrieMatcher(namespaceContext, resolve(namespaceContext));
+    }
+
+    @Override
+    public void prepare(NamespaceContext namespaceContext) {
+        resolve(namespaceContext);
+    }
+
+    /**
+     * Returns the literal names of the tree resolved in the given context. Usually all lookups are done
+     * with the same context, so only the last resolution is kept.
+     */
+    private ResolvedName[] resolve(NamespaceContext namespaceContext) {
+        Preconditions.checkNotNull(namespaceContext, "Namespace context is null");
+
+        Resolution current = resolution;
+        if (current == null || !current.namespaceContext.equals(namespaceContext)) {
+            ResolvedName[] names = new ResolvedName[literals.size()];
+            for (int i = 0; i < names.length; ++i) {
+                names[i] = literals.get(i).resolve(namespaceContext);
+            }
+            current = new Resolution(namespaceContext, names);
+            resolution = current;
+        }
+        return current.names;
+    }
+
+    private static final class Resolution {
+        private final NamespaceContext namespaceContext;
+        private final ResolvedName[] names;
+
+        private Resolution(NamespaceContext namespaceContext, ResolvedName[] names) {
+            this.namespaceContext = namespaceContext;
+            this.names = names;
+        }
+    }
+
+    /**
+     * Selects the first registered pattern among the ones which end in the given live nodes and among
+     * the patterns which could not be compiled.
+     */
+    private Optional<PathPattern> select(StateSet states, ExactPath path, NamespaceContext namespaceContext) {
+        int best = states.bestPattern();
+
+        // Only the patterns registered before the best match found so far can override it
+        for (int i = 0; i < fallbackIndices.length && fallbackIndices[i] < best; ++i) {
+            if (fallbackPatterns.get(i).matches(path.parts, namespaceContext)) {
+                best = fallbackIndices[i];
+                break;
+            }
+        }
+
+        if (best == NO_PATTERN) {
+            return Optional.absent();
+        } else {
+            return results.get(best);
+        }
+    }
+
+    /**
+     * Keeps a set of live nodes for each level of the path walked so far.
+     */
+    private final class TrieMatcher implements PatternMatcher {
+        private final NamespaceContext namespaceContext;
+        private final ResolvedName[] names;
+        private StateSet[] levels = new StateSet[16];
+        private int depth = 0;
+        // The path itself is needed only for the patterns which could not be compiled
+        private ExactPath path;
+
+        private TrieMatcher(NamespaceContext namespaceContext, ResolvedName[] names) {
+            this.namespaceContext = namespaceContext;
+            this.names = names;
+            this.levels[0] = new StateSet();
+            root.addClosureTo(levels[0]);
+            this.path = fallbackIndices.length > 0 ? ExactPath.root() : null;
+        }
+
+        @Override
+        public Optional<PathPattern> push(QualifiedName name) {
+            Preconditions.checkNotNull(name, "Name is null");
+
+            StateSet current = levels[depth];
+            if (++depth == levels.length) {
+                levels = Arrays.copyOf(levels, levels.length * 2);
+            }
+            StateSet next = levels[depth];
+            if (next == null) {
+                next = new StateSet();
+                levels[depth] = next;
+            }
+
+            next.clear();
+            current.step(name, names, next);
+
+            if (path != null) {
+                path = path.resolve(name);
+            }
+            return select(next, path, namespaceContext);
+        }
+
+        @Override
+        public boolean canMatchBelow() {
+            // Patterns which could not be compiled can match anything
+            return fallbackIndices.length > 0 || levels[depth].canStep();
+        }
+
+        @Override
+        public void pop() {
+            Preconditions.checkState(depth > 0, "Cannot move up from the root");
+
+            --depth;
+            if (path != null) {
+                path = path.moveUp();
+            }
+        }
+    }
+
+    /**
+     * A set of automaton nodes. Sets are small, so linear search is used for deduplication.
+     */
+    private static final class StateSet {
+        private Node[] nodes = new Node[4];
+        private int size = 0;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void clear() {
+            Arrays.fill(nodes, 0, size, null);
+            size = 0;
+        }
+
+        private void add(Node node) {
+            for (int i = 0; i < size; ++i) {
+                if (nodes[i] == node) {
+                    return;
+                }
+            }
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+        }
+
+        private void step(QualifiedName name, ResolvedName[] names, StateSet next) {
+            for (int i = 0; i < size; ++i) {
+                nodes[i].step(name, names, next);
+            }
+        }
+
+        private boolean canStep() {
+            for (int i = 0; i < size; ++i) {
+                if (nodes[i].hasChildren) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int bestPattern() {
+            int best = NO_PATTERN;
+            for (int i = 0; i < size; ++i) {
+                if (nodes[i].pattern < best) {
+                    best = nodes[i].pattern;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A node of the pattern tree. Nodes are mutable only while the tree is being built.
+     */
+    private static final class Node {
+        private static final Node[] NO_NODES = new Node[0];
+
+        // A label of the edge leading to this node; absent for global wildcard nodes and for the root
+        private final LiteralName literal;
+        // Index of the label among all labels of the tree; assigned by freeze()
+        private int id = -1;
+        // Global wildcard nodes match any number of names, so they loop on themselves
+        private final boolean glob;
+        // Index of the first registered pattern which ends in this node
+        private int pattern = NO_PATTERN;
+
+        private Map<LiteralName, Node> literalChildren = new LinkedHashMap<LiteralName, Node>();
+        private Node globChild;
+
+        // Literal children indexed by local name; filled by freeze()
+        private Map<String, Node[]> childrenByLocalName;
+        private Node[] childrenWithAnyLocalName;
+        // Whether any name can be consumed from this node; every node lies on the way to some pattern
+        private boolean hasChildren;
+
+        private Node(LiteralName literal, boolean glob) {
+            this.literal = literal;
+            this.glob = glob;
+        }
+
+        private Node literalChild(LiteralName name) {
+            Node child = literalChildren.get(name);
+            if (child == null) {
+                child = new Node(name, false);
+                literalChildren.put(name, child);
+            }
+            return child;
+        }
+
+        private Node globChild() {
+            if (globChild == null) {
+                globChild = new Node(null, true);
+            }
+            return globChild;
+        }
+
+        private void freeze(List<LiteralName> literals) {
+            Map<String, List<Node>> byLocalName = Maps.newHashMap();
+            List<Node> withAnyLocalName = Lists.newArrayList();
+            for (Node child : literalChildren.values()) {
+                child.id = literals.size();
+                literals.add(child.literal);
+                if (PathsConstants.WILDCARD.equals(child.literal.name)) {
+                    withAnyLocalName.add(child);
+                } else {
+                    List<Node> nodes = byLocalName.get(child.literal.name);
+                    if (nodes == null) {
+                        nodes = Lists.newArrayList();
+                        byLocalName.put(child.literal.name, nodes);
+                    }
+                    nodes.add(child);
+                }
+                child.freeze(literals);
+            }
+            if (globChild != null) {
+                globChild.freeze(literals);
+            }
+
+            ImmutableMap.Builder<String, Node[]> builder = ImmutableMap.builder();
+            for (Map.Entry<String, List<Node>> entry : byLocalName.entrySet()) {
+                builder.put(entry.getKey(), entry.getValue().toArray(new Node[entry.getValue().size()]));
+            }
+            this.childrenByLocalName = builder.build();
+            this.childrenWithAnyLocalName = withAnyLocalName.toArray(new Node[withAnyLocalName.size()]);
+            this.hasChildren = glob || globChild != null || !literalChildren.isEmpty();
+            this.literalChildren = null;
+        }
+
+        /**
+         * Adds this node and all nodes reachable from it without consuming a name to the list.
+         */
+        private void addClosureTo(StateSet nodes) {
+            nodes.add(this);
+            if (globChild != null) {
+                globChild.addClosureTo(nodes);
+            }
+        }
+
+        /**
+         * Adds all nodes reachable from this node by consuming the given name to the list.
+         */
+        private void step(QualifiedName name, ResolvedName[] names, StateSet next) {
+            if (glob) {
+                addClosureTo(next);
+            }
+            Node[] candidates = childrenByLocalName.get(name.localName);
+            for (Node child : candidates == null ? NO_NODES : candidates) {
+                if (names[child.id].matches(name)) {
+                    child.addClosureTo(next);
+                }
+            }
+            for (Node child : childrenWithAnyLocalName) {
+                if (names[child.id].matches(name)) {
+                    child.addClosureTo(next);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.groups;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A caching {@link PatternGroup} intended for Devourer instances shared by many threads. Lookup results are
+ * cached on two levels:
+ * <ul>
+ *     <li>a small direct-mapped cache owned by each thread, which is consulted without any synchronization
+ *     and catches the paths repeated within a document;</li>
+ *     <li>a shared {@link ConcurrentHashMap} which grows with the number of distinct paths up to a configurable
+ *     maximum size; reads from it take no locks.</li>
+ * </ul>
+ * Only the lookups missing from both levels are delegated to the underlying group. When the shared cache is full,
+ * arbitrary entries are evicted from it to make room for the new ones.
+ *
+ * <p>Cached results are tagged with the namespace context they were computed in; a lookup in a different context
+ * is treated as a miss. The statistics of the cache are available through {@link #stats()}.</p>
+ *
+ * <p>This class is thread-safe if the underlying group is.</p>
+ */
+public class TwoLevelCachingPatternGroup implements PatternCache {
+    public static final int DEFAULT_LOCAL_SIZE = 64;
+    public static final int DEFAULT_MAXIMUM_SIZE = 65536;
+
+    private final PatternGroup inner;
+    private final int localSize;
+    private final int maximumSize;
+    private final ConcurrentMap<ExactPath, Entry> shared;
+    private final ThreadLocal<LocalCache> local = new ThreadLocal<LocalCache>() {
+        @Override
+        protected LocalCache initialValue() {
+            return new LocalCache(localSize);
+        }
+    };
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    TwoLevelCachingPatternGroup(PatternGroup inner, int localSize, int maximumSize) {
+        Preconditions.checkArgument(localSize > 0 && Integer.bitCount(localSize) == 1,
+                                    "Local cache size is not a power of two: %s", localSize);
+        Preconditions.checkArgument(maximumSize > 0, "Maximum size is not positive: %s", maximumSize);
+
+        this.inner = inner;
+        this.localSize = localSize;
+        this.maximumSize = maximumSize;
+        this.shared = new ConcurrentHashMap<ExactPath, Entry>(Math.min(maximumSize, 256));
+    }
+
+    @Override
+    public Optional<PathPattern> lookup(ExactPath path, NamespaceContext namespaceContext) {
+        LocalCache cache = local.get();
+        int index = cache.index(path);
+        Entry entry = cache.entries[index];
+        if (entry != null && entry.matches(path, namespaceContext)) {
+            localHits.increment();
+            return entry.result;
+        }
+
+        entry = shared.get(path);
+        if (entry != null && entry.matches(path, namespaceContext)) {
+            sharedHits.increment();
+        } else {
+            misses.increment();
+            entry = new Entry(path, namespaceContext, inner.lookup(path, namespaceContext));
+            store(entry);
+        }
+        cache.entries[index] = entry;
+        return entry.result;
+    }
+
+    @Override
+    public PatternCacheStats stats() {
+        return new PatternCacheStats(localHits.sum(), sharedHits.sum(), misses.sum(), evictions.sum(), shared.size());
+    }
+
+    private void store(Entry entry) {
+        // An entry computed in another context is simply replaced
+        if (shared.put(entry.path, entry) != null) {
+            return;
+        }
+        if (shared.size() > maximumSize) {
+            Iterator<ExactPath> iterator = shared.keySet().iterator();
+            while (shared.size() > maximumSize && iterator.hasNext()) {
+                if (iterator.next() != entry.path) {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final ExactPath path;
+        private final NamespaceContext namespaceContext;
+        private final Optional<PathPattern> result;
+
+        private Entry(ExactPath path, NamespaceContext namespaceContext, Optional<PathPattern> result) {
+            this.path = path;
+            this.namespaceContext = namespaceContext;
+            this.result = result;
+        }
+
+        private boolean matches(ExactPath path, NamespaceContext namespaceContext) {
+            return (this.namespaceContext == namespaceContext || this.namespaceContext.equals(namespaceContext)) &&
+                   this.path.equals(path);
+        }
+    }
+
+    /**
+     * A direct-mapped cache; a new entry simply replaces the one occupying its slot.
+     */
+    private static final class LocalCache {
+        private final Entry[] entries;
+        private final int mask;
+
+        private LocalCache(int size) {
+            this.entries = new Entry[size];
+            this.mask = size - 1;
+        }
+
+        private int index(ExactPath path) {
+            int hash = path.hashCode();
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.bitbucket.googolplex.devourer.stacks;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 import java.util.*;
@@ -41,6 +42,15 @@ public class DefaultStacks implements Stacks {
         }
     }
 
+    /**
+     * Returns the names of all stacks which have been created so far, including empty ones.
+     *
+     * @return an immutable snapshot of stack names
+     */
+    public Set<String> stackNames() {
+        return ImmutableSet.copyOf(stacks.keySet());
+    }
+
     @Override
     public <T> Stack push(T object) {
         get(DEFAULT_STACK).push(object);
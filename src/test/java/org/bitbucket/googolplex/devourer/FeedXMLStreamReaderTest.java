@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FeedXMLStreamReaderTest {
+    private static final String DOCUMENT =
+        "\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<!DOCTYPE root [ <!ELEMENT root ANY> ]>\n" +
+        "<!-- leading comment -->\n" +
+        "<root xmlns=\"urn:default\" xmlns:p=\"urn:p\" a=\"1\" p:b='two &amp; &#x33;'>\r\n" +
+        "  <p:child attr=\"x\tz\"/>\n" +
+        "  <child>caf\u00e9 &lt;\u20ac&gt; &#128512;<![CDATA[<raw> & ]]>tail</child>\n" +
+        "  <?target some data?>\n" +
+        "  <inner xmlns=\"\"><p:deep/></inner>\n" +
+        "</root>\n" +
+        "<!-- trailing comment -->\n";
+
+    /**
+     * Collects events in a readable form; adjacent text chunks are joined, since parsers are free to split text.
+     */
+    private static class EventCollector {
+        private final List<String> events = new ArrayList<String>();
+        private final StringBuilder text = new StringBuilder();
+
+        private EventCollector collectAvailable(XMLStreamReader reader) throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    text.append(reader.getText());
+                } else {
+                    add(reader, event);
+                }
+            }
+            return this;
+        }
+
+        private void add(XMLStreamReader reader, int event) {
+            if (text.length() > 0) {
+                events.add("T:" + text);
+                text.setLength(0);
+            }
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    StringBuilder start = new StringBuilder("S:").append(reader.getName());
+                    for (int i = 0; i < reader.getNamespaceCount(); ++i) {
+                        start.append(" ns ").append(reader.getNamespacePrefix(i)).append('=')
+                            .append(reader.getNamespaceURI(i));
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); ++i) {
+                        start.append(' ').append(reader.getAttributeName(i)).append('=')
+                            .append(reader.getAttributeValue(i));
+                    }
+                    events.add(start.toString());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    events.add("E:" + reader.getName());
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    events.add("C:" + reader.getText());
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    events.add("P:" + reader.getPITarget() + "|" + reader.getPIData());
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    events.add("END");
+                    break;
+            }
+        }
+    }
+
+    private static List<String> events(XMLStreamReader reader) throws XMLStreamException {
+        return new EventCollector().collectAvailable(reader).events;
+    }
+
+    /**
+     * Feeds the document in chunks of the given size, collecting events whenever they are available.
+     */
+    private static List<String> feedEvents(byte[] bytes, int chunkSize) throws XMLStreamException {
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(Charsets.UTF_8);
+        EventCollector collector = new EventCollector();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            reader.feed(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+            collector.collectAvailable(reader);
+        }
+        reader.endOfInput();
+        return collector.collectAvailable(reader).events;
+    }
+
+    @Test
+    public void testEventsMatchStax() throws Exception {
+        byte[] bytes = DOCUMENT.getBytes(Charsets.UTF_8);
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        List<String> expected = events(factory.createXMLStreamReader(new ByteArrayInputStream(bytes)));
+
+        assertEquals(expected, feedEvents(bytes, bytes.length));
+        assertEquals(expected, feedEvents(bytes, 1));
+        assertEquals(expected, feedEvents(bytes, 7));
+    }
+
+    @Test
+    public void testPullingFromSourceMatchesStax() throws Exception {
+        byte[] bytes = DOCUMENT.getBytes(Charsets.UTF_8);
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        List<String> expected = events(factory.createXMLStreamReader(new ByteArrayInputStream(bytes)));
+
+        assertEquals(expected, events(new FeedXMLStreamReader(Charsets.UTF_8, new ByteArrayInputStream(bytes))));
+        assertEquals(expected, events(new FeedXMLStreamReader(new StringReader(DOCUMENT))));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testDeclaredEncodingMismatch() throws Exception {
+        byte[] bytes = "<?xml version='1.0' encoding='ISO-8859-1'?><a/>".getBytes(Charsets.UTF_8);
+        events(new FeedXMLStreamReader(Charsets.UTF_8, new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testReportsNeedForInput() throws Exception {
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(Charsets.UTF_8);
+        assertTrue(reader.needsInput());
+
+        reader.feed(ByteBuffer.wrap("<a><b x='1".getBytes(Charsets.UTF_8)));
+        assertTrue(reader.hasNext());
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.next());
+        assertFalse(reader.hasNext());
+        assertTrue(reader.needsInput());
+
+        reader.feed(ByteBuffer.wrap("'/>text &am".getBytes(Charsets.UTF_8)));
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.next());
+        assertEquals("1", reader.getAttributeValue(0));
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.next());
+        assertEquals(XMLStreamConstants.CHARACTERS, reader.next());
+        assertEquals("text ", reader.getText());
+        assertFalse(reader.hasNext());
+
+        reader.feed(ByteBuffer.wrap("p;</a>".getBytes(Charsets.UTF_8)));
+        assertEquals(XMLStreamConstants.CHARACTERS, reader.next());
+        assertEquals("&", reader.getText());
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.next());
+        assertTrue(reader.needsInput());
+
+        reader.endOfInput();
+        assertFalse(reader.needsInput());
+        assertEquals(XMLStreamConstants.END_DOCUMENT, reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test(timeout = 30000)
+    public void testLargeMarkupFedByteByByte() throws Exception {
+        StringBuilder builder = new StringBuilder("<!DOCTYPE a [");
+        for (int i = 0; builder.length() < 256 * 1024; ++i) {
+            builder.append(" <!ENTITY e").append(i).append(" 'value > \"").append(i).append("\"'>");
+        }
+        builder.append(" ]>\n<a");
+        String padding = Strings.repeat("x", 100);
+        for (int i = 0; builder.length() < 512 * 1024; ++i) {
+            builder.append(" attr").append(i).append("='value > \"").append(i).append("\" ")
+                .append(padding).append("'");
+        }
+        builder.append("><!--");
+        for (int i = 0; builder.length() < 768 * 1024; ++i) {
+            builder.append(" comment - > ").append(i);
+        }
+        builder.append(" --><![CDATA[");
+        for (int i = 0; builder.length() < 4 * 1024 * 1024; ++i) {
+            builder.append("<data ]] > ").append(i).append(']');
+        }
+        builder.append("]]></a>");
+        byte[] bytes = builder.toString().getBytes(Charsets.UTF_8);
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        List<String> expected = events(factory.createXMLStreamReader(new ByteArrayInputStream(bytes)));
+
+        // Scanning must resume where it has stopped on each chunk, otherwise this takes quadratic time
+        assertEquals(expected, feedEvents(bytes, 1));
+    }
+
+    @Test
+    public void testMultiByteCharactersSplitBetweenChunks() throws Exception {
+        byte[] bytes = "<a>\u20ac</a>".getBytes(Charsets.UTF_8);
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(Charsets.UTF_8);
+        reader.feed(ByteBuffer.wrap(bytes, 0, 4));
+        reader.feed(ByteBuffer.wrap(bytes, 4, bytes.length - 4));
+        reader.endOfInput();
+
+        assertEquals(ImmutableList.of("S:a", "T:\u20ac", "E:a", "END"), events(reader));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testMismatchedEndTag() throws Exception {
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(Charsets.UTF_8);
+        reader.feed(ByteBuffer.wrap("<a><b></a>".getBytes(Charsets.UTF_8)));
+        events(reader);
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testUnexpectedEndOfInput() throws Exception {
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(Charsets.UTF_8);
+        reader.feed(ByteBuffer.wrap("<a><b></b>".getBytes(Charsets.UTF_8)));
+        events(reader);
+        reader.endOfInput();
+        events(reader);
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testUnboundPrefix() throws Exception {
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(Charsets.UTF_8);
+        reader.feed(ByteBuffer.wrap("<p:a/>".getBytes(Charsets.UTF_8)));
+        events(reader);
+    }
+
+    @Test
+    public void testRejectsCdataEndInCharacterData() throws Exception {
+        byte[] bytes = "<a>x]]>y</a>".getBytes(Charsets.UTF_8);
+        for (int chunkSize : new int[] { bytes.length, 1, 5 }) {
+            try {
+                feedEvents(bytes, chunkSize);
+                fail("']]>' accepted with chunks of " + chunkSize + " bytes");
+            } catch (XMLStreamException e) {
+                // Expected
+            }
+        }
+        assertEquals(ImmutableList.of("S:a", "T:x]]y]>z]] >", "E:a", "END"),
+                     feedEvents("<a>x]]y]>z]] &gt;</a>".getBytes(Charsets.UTF_8), 1));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testRejectsLessThanInAttributeValue() throws Exception {
+        FeedXMLStreamReader reader = new FeedXMLStreamReader(Charsets.UTF_8);
+        reader.feed(ByteBuffer.wrap("<a x='<'/>".getBytes(Charsets.UTF_8)));
+        events(reader);
+    }
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IteratorPublisherTest {
+    private static class ListIterator implements RecordIterator<Integer> {
+        private final Iterator<Integer> delegate;
+        private int consumed = 0;
+        private boolean closed = false;
+
+        private ListIterator(List<Integer> items) {
+            this.delegate = items.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !closed && delegate.hasNext();
+        }
+
+        @Override
+        public Integer next() {
+            ++consumed;
+            return delegate.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class RecordingSubscriber implements RecordFlow.Subscriber<Integer> {
+        private final List<Integer> items = Lists.newArrayList();
+        private RecordFlow.Subscription subscription;
+        private Throwable error;
+        private boolean completed = false;
+        private long requestOnNext = 0;
+
+        @Override
+        public void onSubscribe(RecordFlow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+            if (requestOnNext > 0) {
+                subscription.request(requestOnNext);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+
+    private static IteratorPublisher<Integer> publisher(final ListIterator iterator) {
+        return new IteratorPublisher<Integer>(new Supplier<RecordIterator<Integer>>() {
+            @Override
+            public RecordIterator<Integer> get() {
+                return iterator;
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+
+    @Test
+    public void testItemsAreDeliveredOnDemandOnly() throws Exception {
+        ListIterator iterator = new ListIterator(ImmutableList.of(1, 2, 3, 4, 5));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(iterator).subscribe(subscriber);
+
+        assertTrue(subscriber.items.isEmpty());
+        assertEquals(0, iterator.consumed);
+
+        subscriber.subscription.request(2);
+        assertEquals(ImmutableList.of(1, 2), subscriber.items);
+        assertEquals(2, iterator.consumed);
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+        assertEquals(ImmutableList.of(1, 2, 3, 4, 5), subscriber.items);
+        assertTrue(subscriber.completed);
+        assertTrue(iterator.closed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testRequestsFromOnNextDoNotRecurse() throws Exception {
+        List<Integer> items = Lists.newArrayList();
+        for (int i = 0; i < 100000; ++i) {
+            items.add(i);
+        }
+        ListIterator iterator = new ListIterator(items);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.requestOnNext = 1;
+        publisher(iterator).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        assertEquals(items, subscriber.items);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testCancelClosesIterator() throws Exception {
+        ListIterator iterator = new ListIterator(ImmutableList.of(1, 2, 3));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(iterator).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        assertEquals(ImmutableList.of(1), subscriber.items);
+        assertTrue(iterator.closed);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void testInvalidRequestIsReported() throws Exception {
+        ListIterator iterator = new ListIterator(ImmutableList.of(1, 2, 3));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(iterator).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(iterator.closed);
+    }
+
+    @Test
+    public void testSecondSubscriberIsRejected() throws Exception {
+        IteratorPublisher<Integer> publisher = publisher(new ListIterator(ImmutableList.of(1)));
+        publisher.subscribe(new RecordingSubscriber());
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        assertTrue(subscriber.error instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.collect.ImmutableSet;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNameTable;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
+import org.junit.Test;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LazyElementContextTest {
+    private static final String DOCUMENT =
+        "<a xmlns:x=\"urn:x\" id=\"1\">" +
+        "<b xmlns=\"urn:default\" xmlns:y=\"urn:y\" name=\"n\" x:attr=\"v\"/>" +
+        "</a>";
+
+    private static final NamespaceContext CUSTOM = NamespaceContext.fromItems("urn:x", "p");
+
+    @Test
+    public void testAttributesAndNamespaces() throws Exception {
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(DOCUMENT));
+
+        QualifiedNameTable names = new QualifiedNameTable();
+        LazyElementContext root = new LazyElementContext(null, CUSTOM, names);
+        LazyElementContext a = new LazyElementContext(root, CUSTOM, names);
+        LazyElementContext b = new LazyElementContext(a, CUSTOM, names);
+
+        reader.nextTag();
+        a.enter(reader, QualifiedNames.localOnly("a"));
+        a.captureAttributes(reader);
+        reader.nextTag();
+        b.enter(reader, QualifiedNames.withNamespace("b", "urn:default"));
+        b.captureAttributes(reader);
+
+        assertEquals("1", a.attribute("id").get());
+        assertFalse(a.attribute("name").isPresent());
+
+        assertEquals(QualifiedNames.withNamespace("b", "urn:default"), b.elementName());
+        assertEquals("n", b.attribute("name").get());
+        assertEquals("v", b.attribute("attr", "urn:x").get());
+        assertEquals("v", b.attributeWithPrefix("attr", "p").get());
+        assertEquals("v", b.attribute(QualifiedNames.withNamespace("attr", "urn:x")).get());
+        assertFalse(b.attribute("attr").isPresent());
+        assertEquals(ImmutableSet.<QualifiedName>of(QualifiedNames.localOnly("name"),
+                                                    QualifiedNames.withNamespace("attr", "urn:x")),
+                     ImmutableSet.copyOf(b.attributeNames()));
+
+        // Declarations of the ancestors are visible, inner ones are not visible from outside
+        javax.xml.namespace.NamespaceContext real = b.realNamespaceContext();
+        assertEquals("urn:x", real.getNamespaceURI("x"));
+        assertEquals("urn:y", real.getNamespaceURI("y"));
+        assertEquals("urn:default", real.getNamespaceURI(XMLConstants.DEFAULT_NS_PREFIX));
+        assertEquals("y", real.getPrefix("urn:y"));
+        assertEquals(XMLConstants.NULL_NS_URI, a.realNamespaceContext().getNamespaceURI("y"));
+
+        // Detached copy must survive reuse of the context
+        ElementContext detached = b.detach();
+        b.leave();
+
+        assertEquals(QualifiedNames.withNamespace("b", "urn:default"), detached.elementName());
+        assertEquals("n", detached.attribute("name").get());
+        assertEquals("v", detached.attributeWithPrefix("attr", "p").get());
+        assertEquals("urn:y", detached.realNamespaceContext().getNamespaceURI("y"));
+        assertEquals("x", detached.realNamespaceContext().getPrefix("urn:x"));
+        assertFalse(b.attribute("name").isPresent());
+    }
+}
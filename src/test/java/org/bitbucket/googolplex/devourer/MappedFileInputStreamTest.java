@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MappedFileInputStreamTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path createFile(int size) throws Exception {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            bytes[i] = (byte) i;
+        }
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, bytes);
+        return path;
+    }
+
+    @Test
+    public void testReadsAcrossWindows() throws Exception {
+        Path path = createFile(1000);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            InputStream stream = new MappedFileInputStream(channel, 7);
+            assertArrayEquals(Files.readAllBytes(path), ByteStreams.toByteArray(stream));
+            assertEquals(-1, stream.read());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testStartsAtChannelPosition() throws Exception {
+        Path path = createFile(100);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(90);
+            InputStream stream = new MappedFileInputStream(channel, 4);
+            assertEquals(90, stream.read());
+            assertEquals(5, stream.skip(5));
+            assertArrayEquals(new byte[] { 96, 97, 98, 99 }, ByteStreams.toByteArray(stream));
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        Path path = createFile(0);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            assertEquals(-1, new MappedFileInputStream(channel).read());
+        } finally {
+            channel.close();
+        }
+    }
+}
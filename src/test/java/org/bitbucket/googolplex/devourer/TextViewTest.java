@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TextViewTest {
+    @Test
+    public void testTrimming() throws Exception {
+        char[] buffer = "xx \t value with spaces \n xx".toCharArray();
+        TextView view = new TextView();
+
+        view.reset(buffer, 2, buffer.length - 4, true);
+        assertEquals("value with spaces", view.toString());
+        assertEquals(17, view.length());
+        assertEquals('v', view.charAt(0));
+        assertEquals("with", view.subSequence(6, 10).toString());
+
+        view.reset(buffer, 2, buffer.length - 4, false);
+        assertEquals(" \t value with spaces \n ", view.toString());
+
+        view.reset(buffer, 2, 2, true);
+        assertEquals("", view.toString());
+    }
+
+    @Test
+    public void testStringIsCached() throws Exception {
+        char[] buffer = "value".toCharArray();
+        TextView view = new TextView();
+
+        view.reset(buffer, 0, buffer.length, false);
+        assertSame(view.toString(), view.toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCharAtOutOfRange() throws Exception {
+        char[] buffer = "abc".toCharArray();
+        TextView view = new TextView();
+
+        view.reset(buffer, 1, 1, false);
+        view.charAt(1);
+    }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.configuration.annotated;
+
+import com.google.common.base.Optional;
+import org.bitbucket.googolplex.devourer.Devourer;
+import org.bitbucket.googolplex.devourer.Devourers;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.After;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.At;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.PeekFrom;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.PopFrom;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.PushTo;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappingReflectorTest {
+    @Test
+    public void testOptionalParameters() throws Exception {
+        Devourer devourer = Devourers.create(new OptionalParametersConfig());
+        Stacks stacks = devourer.parse("<a><b>value</b></a>");
+
+        assertEquals("peeked value", stacks.get("peeked").pop());
+        assertEquals("value, missing absent, raw missing absent", stacks.pop());
+    }
+
+    public static class OptionalParametersConfig {
+        @At("/a/b")
+        @PushTo("values")
+        public String b(String body) {
+            return body;
+        }
+
+        @After("/a/b")
+        @PushTo("peeked")
+        public String afterB(@PeekFrom("values") Optional<String> value,
+                             @PeekFrom("missing") Optional<String> missing) {
+            return missing.isPresent() ? "unexpected" : "peeked " + value.get();
+        }
+
+        @After("/a")
+        @SuppressWarnings("rawtypes")
+        public String afterA(@PopFrom("values") Optional<String> value, @PopFrom("missing") Optional<String> missing,
+                             @PopFrom("missing") Optional rawMissing) {
+            return String.format("%s, missing %s, raw missing %s", value.get(),
+                                 missing.isPresent() ? "present" : "absent",
+                                 rawMissing.isPresent() ? "present" : "absent");
+        }
+    }
+}
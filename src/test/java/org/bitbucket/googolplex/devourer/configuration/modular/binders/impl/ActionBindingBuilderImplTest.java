@@ -2,6 +2,7 @@ package org.bitbucket.googolplex.devourer.configuration.modular.binders.impl;
 
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
 import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
 import org.bitbucket.googolplex.devourer.configuration.modular.binders.ActionBindingBuilder;
 import org.bitbucket.googolplex.devourer.paths.mappings.MappingBuilder;
@@ -50,6 +51,22 @@ public class ActionBindingBuilderImplTest {
         verifyNoMoreInteractions(mappingBuilder);
     }
 
+    @Test
+    public void testDoAtChars() throws Exception {
+        // Prepare
+        MappingBuilder mappingBuilder = mock(MappingBuilder.class);
+        ActionAtChars actionAt = mock(ActionAtChars.class);
+
+        // Run
+        ActionBindingBuilder bindingBuilder = new ActionBindingBuilderImpl(mappingBuilder, "/a/b/c");
+        ActionBindingBuilder result = bindingBuilder.doAtChars(actionAt);
+
+        // Verify
+        assertSame(result, bindingBuilder);
+        verify(mappingBuilder).addChars(PathPatterns.fromString("/a/b/c"), actionAt);
+        verifyNoMoreInteractions(mappingBuilder);
+    }
+
     @Test
     public void testDoAfter() throws Exception {
         // Prepare
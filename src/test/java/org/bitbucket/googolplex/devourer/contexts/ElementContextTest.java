@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.contexts;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ElementContextTest {
+    private static final javax.xml.namespace.NamespaceContext REAL = new javax.xml.namespace.NamespaceContext() {
+        @Override
+        public String getNamespaceURI(String prefix) {
+            return "urn:real";
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            return "r";
+        }
+
+        @Override
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            return Collections.singleton("r").iterator();
+        }
+    };
+
+    private static final NamespaceContext CUSTOM = NamespaceContext.fromItems("urn:x", "p");
+
+    @Test
+    public void testDefaultDetachCopiesContext() throws Exception {
+        ForwardingElementContext context = new ForwardingElementContext(
+            new DefaultElementContext.Builder()
+                .setName("a")
+                .setRealNamespaceContext(REAL)
+                .setCustomNamespaceContext(CUSTOM)
+                .addAttribute("id", "1")
+                .addAttribute("attr", "urn:x", "v")
+                .build()
+        );
+
+        ElementContext detached = context.detach();
+
+        // The original context is reused for another element
+        context.delegate = new DefaultElementContext.Builder()
+            .setName("b")
+            .setRealNamespaceContext(REAL)
+            .setCustomNamespaceContext(CUSTOM)
+            .build();
+
+        assertEquals(QualifiedNames.localOnly("a"), detached.elementName());
+        assertSame(REAL, detached.realNamespaceContext());
+        assertSame(CUSTOM, detached.customNamespaceContext());
+        assertEquals(ImmutableSet.<QualifiedName>of(QualifiedNames.localOnly("id"),
+                                                    QualifiedNames.withNamespace("attr", "urn:x")),
+                     ImmutableSet.copyOf(detached.attributeNames()));
+        assertEquals("1", detached.attribute("id").get());
+        assertEquals("v", detached.attributeWithPrefix("attr", "p").get());
+    }
+
+    /**
+     * Element context which relies on the default implementation of {@link ElementContext#detach()}.
+     */
+    private static class ForwardingElementContext implements ElementContext {
+        ElementContext delegate;
+
+        ForwardingElementContext(ElementContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public QualifiedName elementName() {
+            return delegate.elementName();
+        }
+
+        @Override
+        public javax.xml.namespace.NamespaceContext realNamespaceContext() {
+            return delegate.realNamespaceContext();
+        }
+
+        @Override
+        public NamespaceContext customNamespaceContext() {
+            return delegate.customNamespaceContext();
+        }
+
+        @Override
+        public Collection<QualifiedName> attributeNames() {
+            return delegate.attributeNames();
+        }
+
+        @Override
+        public Optional<String> attribute(String localName) {
+            return delegate.attribute(localName);
+        }
+
+        @Override
+        public Optional<String> attribute(String localName, String namespace) {
+            return delegate.attribute(localName, namespace);
+        }
+
+        @Override
+        public Optional<String> attributeWithPrefix(String localName, String prefix) {
+            return delegate.attributeWithPrefix(localName, prefix);
+        }
+
+        @Override
+        public Optional<String> attribute(QualifiedName name) {
+            return delegate.attribute(name);
+        }
+    }
+}
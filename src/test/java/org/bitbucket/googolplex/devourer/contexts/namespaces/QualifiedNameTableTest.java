@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.contexts.namespaces;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class QualifiedNameTableTest {
+    @Test
+    public void testNamesAreCanonical() throws Exception {
+        QualifiedNameTable table = new QualifiedNameTable();
+
+        QualifiedName name = table.get("a", "urn:x", "x");
+        assertEquals(QualifiedNames.full("a", "urn:x", "x"), name);
+        assertEquals("x", name.prefix.get());
+        assertSame(name, table.get(new String("a"), new String("urn:x"), "x"));
+
+        // Prefixes are not compared, but they are kept
+        QualifiedName otherPrefix = table.get("a", "urn:x", "y");
+        assertNotSame(name, otherPrefix);
+        assertEquals(name, otherPrefix);
+        assertEquals("y", otherPrefix.prefix.get());
+    }
+
+    @Test
+    public void testAbsentComponents() throws Exception {
+        QualifiedNameTable table = new QualifiedNameTable();
+
+        QualifiedName name = table.get("a", null, null);
+        assertEquals(QualifiedNames.localOnly("a"), name);
+        assertSame(name, table.get("a", "", ""));
+        assertSame(name, table.get("a", "", "p"));
+        assertSame(table.get("a", "urn:x", null), table.get("a", "urn:x", ""));
+    }
+
+    @Test
+    public void testTableIsBounded() throws Exception {
+        QualifiedNameTable table = new QualifiedNameTable(2);
+
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(QualifiedNames.localOnly("n" + i), table.get("n" + i, null, null));
+        }
+    }
+
+    @Test
+    public void testCanonicalizationRecoversAfterFlood() throws Exception {
+        QualifiedNameTable table = new QualifiedNameTable(64);
+
+        // Fills all the slots with names which are never requested again
+        for (int i = 0; i < 10000; ++i) {
+            table.get("flood" + i, "urn:x", "x");
+        }
+
+        List<QualifiedName> names = new ArrayList<QualifiedName>();
+        for (int i = 0; i < 16; ++i) {
+            names.add(table.get("name" + i, null, null));
+        }
+        for (int i = 0; i < 16; ++i) {
+            assertSame(names.get(i), table.get("name" + i, null, null));
+        }
+    }
+
+    @Test
+    public void testConcurrentLookupsAgree() throws Exception {
+        final QualifiedNameTable table = new QualifiedNameTable();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<QualifiedName>>> futures = new ArrayList<Future<List<QualifiedName>>>();
+            for (int t = 0; t < 4; ++t) {
+                futures.add(executor.submit(new Callable<List<QualifiedName>>() {
+                    @Override
+                    public List<QualifiedName> call() {
+                        List<QualifiedName> names = new ArrayList<QualifiedName>();
+                        for (int i = 0; i < 200; ++i) {
+                            names.add(table.get("n" + i, "urn:x", null));
+                        }
+                        return names;
+                    }
+                }));
+            }
+
+            List<QualifiedName> first = futures.get(0).get();
+            for (Future<List<QualifiedName>> future : futures) {
+                List<QualifiedName> names = future.get();
+                for (int i = 0; i < names.size(); ++i) {
+                    assertSame(first.get(i), names.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.allocation;
+
+import com.google.common.base.Preconditions;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.bitbucket.googolplex.devourer.Devourer;
+import org.bitbucket.googolplex.devourer.Devourers;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that parsing with a warmed Devourer does not allocate more than the budgets checked in to
+ * {@code allocation-budgets.properties}. Allocation is measured per element, using a catalog document without
+ * text, and per text node, as the difference with the same document with text. Per-document costs, like
+ * parser buffers, are spread over the elements of a large document.
+ *
+ * <p>Allocated bytes are read from {@link com.sun.management.ThreadMXBean}; the test is skipped on JVMs which
+ * do not provide it, and on the ones which do not match the assumptions the budgets are measured under, see
+ * {@code allocation-budgets.properties}. It belongs to {@link AllocationTests} category, which is run only with
+ * {@code allocation-budgets} Maven profile.</p>
+ */
+@Category(AllocationTests.class)
+public class AllocationBudgetTest {
+    private static final int ITEMS = 2000;
+    private static final int WARMUP_PARSES = 500;
+    private static final int ROUNDS = 5;
+    private static final int PARSES_PER_ROUND = 10;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+    private static Properties budgets;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // Object sizes differ without compressed references, and agents like coverage tools allocate on their own
+        HotSpotDiagnosticMXBean diagnosticBean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        Assume.assumeNotNull(diagnosticBean);
+        Assume.assumeTrue(Boolean.parseBoolean(diagnosticBean.getVMOption("UseCompressedOops").getValue()));
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            Assume.assumeTrue(!argument.startsWith("-javaagent:") && !argument.startsWith("-agentpath:") &&
+                              !argument.startsWith("-agentlib:"));
+        }
+
+        budgets = new Properties();
+        InputStream stream = AllocationBudgetTest.class.getResourceAsStream("allocation-budgets.properties");
+        Preconditions.checkState(stream != null, "Allocation budgets are missing");
+        try {
+            budgets.load(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void testModular() throws Exception {
+        checkBudget("modular", Devourers.create(new CatalogModule(false)), false);
+    }
+
+    @Test
+    public void testModularWithNamespaces() throws Exception {
+        checkBudget("modular.namespaces", Devourers.create(new CatalogModule(true)), true);
+    }
+
+    @Test
+    public void testAnnotated() throws Exception {
+        checkBudget("annotated", Devourers.create(new CatalogAnnotatedConfig()), false);
+    }
+
+    @Test
+    public void testAnnotatedWithNamespaces() throws Exception {
+        checkBudget("annotated.namespaces", Devourers.create(new CatalogNamespacesAnnotatedConfig()), true);
+    }
+
+    @Test
+    public void testEnhancedAction() throws Exception {
+        checkBudget("enhanced", Devourers.create(new CatalogEnhancedModule(false)), false);
+    }
+
+    @Test
+    public void testEnhancedActionWithNamespaces() throws Exception {
+        checkBudget("enhanced.namespaces", Devourers.create(new CatalogEnhancedModule(true)), true);
+    }
+
+    private void checkBudget(String configuration, Devourer devourer, boolean withNamespaces) {
+        byte[] elementsOnly = Catalog.generate(ITEMS, false, withNamespaces);
+        byte[] withText = Catalog.generate(ITEMS, true, withNamespaces);
+
+        for (int i = 0; i < WARMUP_PARSES; ++i) {
+            parse(devourer, elementsOnly);
+            parse(devourer, withText);
+        }
+
+        long elementsBytes = measure(devourer, elementsOnly);
+        long textBytes = measure(devourer, withText);
+        double perElement = (double) elementsBytes / Catalog.elementCount(ITEMS);
+        double perTextNode = (double) Math.max(0, textBytes - elementsBytes) / Catalog.textNodeCount(ITEMS);
+
+        String measured = String.format("%s: %.1f bytes per element, %.1f bytes per text node",
+                                        configuration, perElement, perTextNode);
+        assertTrue("Element allocation budget exceeded, " + measured,
+                   perElement <= budget(configuration + ".element"));
+        assertTrue("Text node allocation budget exceeded, " + measured,
+                   perTextNode <= budget(configuration + ".text"));
+    }
+
+    /**
+     * @return the least number of bytes allocated by a single parse of the document over several rounds
+     */
+    private long measure(Devourer devourer, byte[] document) {
+        long threadId = Thread.currentThread().getId();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < PARSES_PER_ROUND; ++i) {
+                parse(devourer, document);
+            }
+            least = Math.min(least, (threadBean.getThreadAllocatedBytes(threadId) - start) / PARSES_PER_ROUND);
+        }
+        return least;
+    }
+
+    private static void parse(Devourer devourer, byte[] document) {
+        Stacks stacks = devourer.parse(document);
+        Catalog.Totals totals = stacks.pop();
+        assertEquals(ITEMS, totals.items());
+    }
+
+    private static double budget(String key) {
+        String value = budgets.getProperty(key);
+        Preconditions.checkState(value != null, "No allocation budget for %s", key);
+        return Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.allocation;
+
+/**
+ * JUnit category of the allocation budget tests. They take a while and depend on the JVM, so they are run only
+ * with the {@code allocation-budgets} Maven profile:
+ * <pre>
+ *     mvn test -Pallocation-budgets
+ * </pre>
+ */
+public interface AllocationTests {
+}
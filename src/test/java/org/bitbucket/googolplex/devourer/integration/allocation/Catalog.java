@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.allocation;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Generates catalog documents for allocation measurements:
+ * {@code <catalog><item id="..."><title>...</title><price>...</price></item>...</catalog>}. There is no
+ * whitespace between the tags, so the only text nodes are titles and prices, and they can be left out to
+ * separate the cost of elements from the cost of text.
+ */
+public final class Catalog {
+    public static final String NAMESPACE = "urn:catalog";
+
+    private Catalog() {
+    }
+
+    /**
+     * @param items number of items
+     * @param withText whether titles and prices have text
+     * @param withNamespaces whether the elements are in {@link #NAMESPACE} namespace
+     * @return UTF-8 encoded document
+     */
+    public static byte[] generate(int items, boolean withText, boolean withNamespaces) {
+        String p = withNamespaces ? "c:" : "";
+        StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        builder.append('<').append(p).append("catalog");
+        if (withNamespaces) {
+            builder.append(" xmlns:c=\"").append(NAMESPACE).append('"');
+        }
+        builder.append('>');
+        for (int i = 0; i < items; ++i) {
+            builder.append('<').append(p).append("item id=\"").append(i).append("\">");
+            builder.append('<').append(p).append("title>");
+            if (withText) {
+                builder.append("Title of item number ").append(i);
+            }
+            builder.append("</").append(p).append("title>");
+            builder.append('<').append(p).append("price>");
+            if (withText) {
+                builder.append(i % 100).append(".99");
+            }
+            builder.append("</").append(p).append("price>");
+            builder.append("</").append(p).append("item>");
+        }
+        builder.append("</").append(p).append("catalog>");
+        return builder.toString().getBytes(Charsets.UTF_8);
+    }
+
+    /**
+     * @return number of elements in a document with the given number of items
+     */
+    public static int elementCount(int items) {
+        return 1 + items * 3;
+    }
+
+    /**
+     * @return number of text nodes in a document with text and the given number of items
+     */
+    public static int textNodeCount(int items) {
+        return items * 2;
+    }
+
+    public static final class Item {
+        public final String id;
+        private String title = "";
+        private double price = 0;
+
+        public Item(String id) {
+            this.id = id;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public void setPrice(String price) {
+            this.price = Double.parseDouble(price);
+        }
+    }
+
+    /**
+     * Accumulates the items of a document, so the stacks do not grow with the document.
+     */
+    public static final class Totals {
+        private int items = 0;
+        private long titleLength = 0;
+        private double priceSum = 0;
+
+        public void add(Item item) {
+            items++;
+            titleLength += item.title.length();
+            priceSum += item.price;
+        }
+
+        public int items() {
+            return items;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.allocation;
+
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.*;
+
+/**
+ * Annotated configuration for {@link Catalog} documents without namespaces.
+ */
+public class CatalogAnnotatedConfig {
+    @Before("/catalog")
+    public Catalog.Totals startCatalog() {
+        return new Catalog.Totals();
+    }
+
+    @Before("/catalog/item")
+    public Catalog.Item startItem(@Attribute("id") String id) {
+        return new Catalog.Item(id);
+    }
+
+    @At("/catalog/item/title")
+    public void setTitle(@Peek Catalog.Item item, String body) {
+        item.setTitle(body);
+    }
+
+    @At("/catalog/item/price")
+    public void setPrice(@Peek Catalog.Item item, String body) {
+        item.setPrice(body);
+    }
+
+    @After("/catalog/item")
+    public void finishItem(@Pop Catalog.Item item, @Peek Catalog.Totals totals) {
+        totals.add(item);
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.allocation;
+
+import org.bitbucket.googolplex.devourer.configuration.actions.EnhancedAction;
+import org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule;
+
+/**
+ * Modular configuration for {@link Catalog} documents with {@link EnhancedAction}s.
+ */
+public class CatalogEnhancedModule extends AbstractMappingModule {
+    private final String p;
+
+    /**
+     * @param withNamespaces whether the documents have their elements in {@link Catalog#NAMESPACE}
+     */
+    public CatalogEnhancedModule(boolean withNamespaces) {
+        this.p = withNamespaces ? "c:" : "";
+    }
+
+    @Override
+    protected void configure() {
+        namespaceContext()
+            .map(Catalog.NAMESPACE).to("c");
+
+        on("/" + p + "catalog").doBefore(new EnhancedAction() {
+            @Override
+            public void act() {
+                push(new Catalog.Totals());
+            }
+        });
+
+        on("/" + p + "catalog/" + p + "item")
+            .doBefore(new EnhancedAction() {
+                @Override
+                public void act() {
+                    push(new Catalog.Item(attribute("id").get()));
+                }
+            })
+            .doAfter(new EnhancedAction() {
+                @Override
+                public void act() {
+                    Catalog.Item item = pop();
+                    this.<Catalog.Totals>peek().add(item);
+                }
+            });
+
+        on("/" + p + "catalog/" + p + "item/" + p + "title").doAt(new EnhancedAction() {
+            @Override
+            public void act() {
+                this.<Catalog.Item>peek().setTitle(body());
+            }
+        });
+
+        on("/" + p + "catalog/" + p + "item/" + p + "price").doAt(new EnhancedAction() {
+            @Override
+            public void act() {
+                this.<Catalog.Item>peek().setPrice(body());
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.allocation;
+
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
+import org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+/**
+ * Modular configuration for {@link Catalog} documents with plain actions.
+ */
+public class CatalogModule extends AbstractMappingModule {
+    private final String p;
+
+    /**
+     * @param withNamespaces whether the documents have their elements in {@link Catalog#NAMESPACE}
+     */
+    public CatalogModule(boolean withNamespaces) {
+        this.p = withNamespaces ? "c:" : "";
+    }
+
+    @Override
+    protected void configure() {
+        namespaceContext()
+            .map(Catalog.NAMESPACE).to("c");
+
+        on("/" + p + "catalog")
+            .doBefore(new ActionBefore() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    stacks.push(new Catalog.Totals());
+                }
+            });
+
+        on("/" + p + "catalog/" + p + "item")
+            .doBefore(new ActionBefore() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    stacks.push(new Catalog.Item(context.attribute("id").get()));
+                }
+            })
+            .doAfter(new ActionAfter() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    Catalog.Item item = stacks.pop();
+                    Catalog.Totals totals = stacks.peek();
+                    totals.add(item);
+                }
+            });
+
+        on("/" + p + "catalog/" + p + "item/" + p + "title")
+            .doAt(new ActionAt() {
+                @Override
+                public void act(Stacks stacks, ElementContext context, String body) {
+                    Catalog.Item item = stacks.peek();
+                    item.setTitle(body);
+                }
+            });
+
+        on("/" + p + "catalog/" + p + "item/" + p + "price")
+            .doAt(new ActionAt() {
+                @Override
+                public void act(Stacks stacks, ElementContext context, String body) {
+                    Catalog.Item item = stacks.peek();
+                    item.setPrice(body);
+                }
+            });
+    }
+}
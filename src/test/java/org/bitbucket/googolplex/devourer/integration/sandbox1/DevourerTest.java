@@ -16,20 +16,63 @@
 
 package org.bitbucket.googolplex.devourer.integration.sandbox1;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.bitbucket.googolplex.devourer.Devourer;
+import org.bitbucket.googolplex.devourer.DevourerSession;
 import org.bitbucket.googolplex.devourer.Devourers;
+import org.bitbucket.googolplex.devourer.ParserBackends;
+import org.bitbucket.googolplex.devourer.RecordHandler;
+import org.bitbucket.googolplex.devourer.RecordIterator;
+import org.bitbucket.googolplex.devourer.configuration.DevourerConfig;
+import org.bitbucket.googolplex.devourer.configuration.PipelineConfig;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAt;
+import org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.exceptions.ActionException;
+import org.bitbucket.googolplex.devourer.exceptions.ParsingException;
 import org.bitbucket.googolplex.devourer.integration.sandbox1.classes.ExampleAnnotatedConfig;
+import org.bitbucket.googolplex.devourer.integration.sandbox1.classes.ExampleCharsAnnotatedConfig;
 import org.bitbucket.googolplex.devourer.integration.sandbox1.classes.ExampleData;
+import org.bitbucket.googolplex.devourer.integration.sandbox1.classes.ExampleDataCharsModule;
 import org.bitbucket.googolplex.devourer.integration.sandbox1.classes.ExampleDataModule;
 import org.bitbucket.googolplex.devourer.integration.sandbox1.classes.ExampleDataModuleNamespaces;
+import org.bitbucket.googolplex.devourer.metrics.ActionPhase;
+import org.bitbucket.googolplex.devourer.metrics.DevourerMetrics;
+import org.bitbucket.googolplex.devourer.metrics.JmxDevourerMetrics;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCache;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroupProvider;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroups;
 import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Date: 19.02.13
@@ -80,6 +123,722 @@ public class DevourerTest {
         assertEquals(ImmutableMap.of("Header-1", "header 1 value", "Header-2", "Some bigger value"), data.headers);
     }
 
+    @Test
+    public void testModularCharsConfig() throws Exception {
+        Devourer devourer = Devourers.create(new ExampleDataCharsModule());
+        Stacks stacks = devourer.parse(EXAMPLE);
+
+        List<ExampleData> dataList = stacks.pop();
+        assertEquals(1, dataList.size());
+
+        ExampleData data = dataList.get(0);
+        assertEquals(34, data.id);
+        assertEquals("Name", data.name);
+        assertEquals(ImmutableList.of(0.3, 0.2), data.args);
+        assertEquals(ImmutableMap.of("Header-1", "header 1 value", "Header-2", "Some bigger value"), data.headers);
+    }
+
+    @Test
+    public void testAnnotatedCharsConfig() throws Exception {
+        Devourer devourer = Devourers.create(new ExampleCharsAnnotatedConfig());
+        Stacks stacks = devourer.parse(EXAMPLE);
+
+        List<ExampleData> dataList = stacks.get("results").pop();
+        assertEquals(1, dataList.size());
+
+        ExampleData data = dataList.get(0);
+        assertEquals(34, data.id);
+        assertEquals("Name", data.name);
+        assertEquals(ImmutableList.of(0.3, 0.2), data.args);
+        assertEquals(ImmutableMap.of("Header-1", "header 1 value", "Header-2", "Some bigger value"), data.headers);
+    }
+
+    private static final String EXAMPLE_UNMAPPED =
+        "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+        "<data>\n" +
+        "  <extra>\n" +
+        "    <datum id=\"12\"><name>Wrong name</name></datum>\n" +
+        "  </extra>\n" +
+        "  <datum id=\"34\">\n" +
+        "    <name>Name<extra><name>Wrong name</name><extra/></extra></name>\n" +
+        "    <arg>0.3</arg>\n" +
+        "    <extra><arg>0.1</arg></extra>\n" +
+        "    <arg>0.2</arg>\n" +
+        "  </datum>\n" +
+        "  <extra/>\n" +
+        "</data>";
+
+    @Test
+    public void testUnmappedSubtreesAreSkipped() throws Exception {
+        Devourer devourer = Devourers.create(new ExampleDataModule());
+        Stacks stacks = devourer.parse(EXAMPLE_UNMAPPED);
+
+        List<ExampleData> dataList = stacks.pop();
+        assertEquals(1, dataList.size());
+
+        ExampleData data = dataList.get(0);
+        assertEquals(34, data.id);
+        assertEquals("Name", data.name);
+        assertEquals(ImmutableList.of(0.3, 0.2), data.args);
+    }
+
+    private static final String EXAMPLE_SPLIT_TEXT =
+        "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+        "<data>\n" +
+        "  <text> one &amp; two &lt;<![CDATA[three]]> </text>\n" +
+        "  <text>mixed<inner/>content</text>\n" +
+        "</data>";
+
+    private static class TextModule extends AbstractMappingModule {
+        @Override
+        protected void configure() {
+            on("/data/text")
+                .doAt(new ActionAt() {
+                    @Override
+                    public void act(Stacks stacks, ElementContext context, String body) {
+                        stacks.push(body);
+                    }
+                });
+        }
+    }
+
+    @Test
+    public void testCoalescedText() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setCoalesceText(true).build();
+        Devourer devourer = Devourers.create(config, new TextModule());
+        Stacks stacks = devourer.parse(EXAMPLE_SPLIT_TEXT);
+
+        List<String> texts = stacks.popList();
+        assertEquals(ImmutableList.of("one & two <three", "mixed", "content"), texts);
+    }
+
+    private static class RecordsModule extends AbstractMappingModule {
+        @Override
+        protected void configure() {
+            on("/data/text")
+                .doAt(new ActionAt() {
+                    @Override
+                    public void act(Stacks stacks, ElementContext context, String body) {
+                        stacks.get("records").push(Integer.parseInt(body));
+                    }
+                });
+        }
+    }
+
+    private static String recordsDocument(int count, boolean closed) {
+        StringBuilder builder = new StringBuilder("<data>");
+        for (int i = 0; i < count; ++i) {
+            builder.append("<text>").append(i).append("</text>");
+        }
+        if (closed) {
+            builder.append("</data>");
+        } else {
+            builder.append("<broken");
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testIterate() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        RecordIterator<Integer> iterator = devourer.iterate(new StringReader(recordsDocument(3, true)), "records");
+
+        assertEquals(ImmutableList.of(0, 1, 2), ImmutableList.copyOf(iterator));
+    }
+
+    @Test
+    public void testIterateIsLazy() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        // The document is broken far beyond the first records, so reading them must not touch the broken part
+        RecordIterator<Integer> iterator = devourer.iterate(new StringReader(recordsDocument(100000, false)),
+                                                            "records");
+
+        assertEquals((Object) 0, iterator.next());
+        assertEquals((Object) 1, iterator.next());
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = ParsingException.class)
+    public void testIterateReportsBrokenDocument() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        RecordIterator<Integer> iterator = devourer.iterate(new StringReader(recordsDocument(10, false)), "records");
+
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        Stream<Integer> stream = devourer.stream(new StringReader(recordsDocument(1000, true)), "records");
+        try {
+            Iterator<Integer> iterator = stream.iterator();
+            int sum = 0;
+            while (iterator.hasNext()) {
+                sum += iterator.next();
+            }
+            assertEquals(999 * 1000 / 2, sum);
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void testPipelinedConfig() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setPipelined(true).build();
+        Devourer devourer = Devourers.create(config, new ExampleDataModule());
+        Stacks stacks = devourer.parse(EXAMPLE);
+
+        List<ExampleData> dataList = stacks.pop();
+        assertEquals(1, dataList.size());
+
+        ExampleData data = dataList.get(0);
+        assertEquals(34, data.id);
+        assertEquals("Name", data.name);
+        assertEquals(ImmutableList.of(0.3, 0.2), data.args);
+        assertEquals(ImmutableMap.of("Header-1", "header 1 value", "Header-2", "Some bigger value"), data.headers);
+    }
+
+    private static class RecordingMetrics implements DevourerMetrics {
+        private int documents = 0;
+        private long elements = 0;
+        private long bytes = 0;
+        private final int[] actions = new int[ActionPhase.values().length];
+
+        @Override
+        public void patternCacheCreated(PatternCache cache) {
+        }
+
+        @Override
+        public synchronized void documentParsed(long elementCount, long byteCount, long elapsedNanos) {
+            documents++;
+            elements += elementCount;
+            bytes = byteCount;
+        }
+
+        @Override
+        public synchronized void actionsExecuted(ActionBundle bundle, ActionPhase phase, int actionCount,
+                                                 long elapsedNanos) {
+            assertTrue(bundle.pattern.isPresent());
+            actions[phase.ordinal()] += actionCount;
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        RecordingMetrics metrics = new RecordingMetrics();
+        DevourerConfig config = DevourerConfig.builder().setMetrics(metrics).build();
+        Devourer devourer = Devourers.create(config, new ExampleDataModule());
+
+        devourer.parse(EXAMPLE);
+        assertEquals(1, metrics.documents);
+        assertEquals(7, metrics.elements);
+        assertEquals(-1, metrics.bytes);
+        assertEquals(2, metrics.actions[ActionPhase.BEFORE.ordinal()]);
+        assertEquals(5, metrics.actions[ActionPhase.AT.ordinal()]);
+        assertEquals(2, metrics.actions[ActionPhase.AFTER.ordinal()]);
+
+        byte[] bytes = EXAMPLE.getBytes(Charsets.UTF_8);
+        devourer.parse(bytes);
+        assertEquals(2, metrics.documents);
+        assertEquals(14, metrics.elements);
+        assertEquals(bytes.length, metrics.bytes);
+    }
+
+    @Test
+    public void testPatternGroupProviders() throws Exception {
+        JmxDevourerMetrics metrics = new JmxDevourerMetrics();
+        DevourerConfig config = DevourerConfig.builder().setMetrics(metrics).build();
+        List<PatternGroupProvider> providers = ImmutableList.of(
+            PatternGroups.listBackedGroupProvider(), PatternGroups.cachingGroupProvider(),
+            PatternGroups.twoLevelCachingGroupProvider(), PatternGroups.trieGroupProvider()
+        );
+
+        for (PatternGroupProvider provider : providers) {
+            Devourer devourer = Devourers.create(config, new ExampleDataModule(), provider);
+            List<ExampleData> dataList = devourer.parse(EXAMPLE).pop();
+            assertEquals(34, dataList.get(0).id);
+
+            devourer = Devourers.create(config, new ExampleAnnotatedConfig(), provider);
+            dataList = devourer.parse(EXAMPLE).get("results").pop();
+            assertEquals(34, dataList.get(0).id);
+        }
+
+        // Each caching Devourer has looked up 7 paths, and only the second arg and header paths were cached
+        assertEquals(2.0 / 7, metrics.getPathCacheHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testPipelinedMetrics() throws Exception {
+        RecordingMetrics metrics = new RecordingMetrics();
+        DevourerConfig config = DevourerConfig.builder().setPipelined(true).setMetrics(metrics).build();
+        Devourer devourer = Devourers.create(config, new ExampleDataModule());
+
+        devourer.parse(EXAMPLE);
+        assertEquals(1, metrics.documents);
+        assertEquals(7, metrics.elements);
+        assertEquals(2, metrics.actions[ActionPhase.BEFORE.ordinal()]);
+        assertEquals(5, metrics.actions[ActionPhase.AT.ordinal()]);
+        assertEquals(2, metrics.actions[ActionPhase.AFTER.ordinal()]);
+    }
+
+    @Test
+    public void testPipelinedParsingPreservesOrder() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setPipelined(true).build();
+        Devourer devourer = Devourers.create(config, new RecordsModule());
+        // More records than the pipeline can hold at once
+        Stacks stacks = devourer.parse(recordsDocument(10000, true));
+
+        List<Integer> records = stacks.get("records").popList();
+        assertEquals(10000, records.size());
+        for (int i = 0; i < records.size(); ++i) {
+            assertEquals((Object) i, records.get(i));
+        }
+    }
+
+    @Test
+    public void testPipelinedParsingReportsActionFailure() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setPipelined(true).build();
+        Devourer devourer = Devourers.create(config, new RecordsModule());
+
+        try {
+            devourer.parse(recordsDocument(10000, true).replace("<text>5000</text>", "<text>bad</text>"));
+            fail("Action failure is not reported");
+        } catch (ActionException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+    }
+
+    @Test
+    public void testPipelinedParsingStopsActionThreadOnError() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setPipelined(true).build();
+        Devourer devourer = Devourers.create(config, new AbstractMappingModule() {
+            @Override
+            protected void configure() {
+                on("/data/text")
+                    .doAt(new ActionAt() {
+                        @Override
+                        public void act(Stacks stacks, ElementContext context, String body) {
+                            if (body.equals("5000")) {
+                                throw new AssertionError("Bad record");
+                            }
+                        }
+                    });
+            }
+        });
+
+        Throwable error = null;
+        try {
+            devourer.parse(recordsDocument(10000, true));
+        } catch (AssertionError e) {
+            error = e;
+        } catch (ActionException e) {
+            error = e.getCause();
+        }
+        assertTrue(error instanceof AssertionError);
+        assertEquals("Bad record", error.getMessage());
+
+        // The action thread must not outlive the failed parse
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("devourer-actions")) {
+                thread.join(5000);
+                assertFalse("Action thread is still running", thread.isAlive());
+            }
+        }
+    }
+
+    private static class FeedModule extends AbstractMappingModule {
+        @Override
+        protected void configure() {
+            on("/feed/title")
+                .doAt(new ActionAt() {
+                    @Override
+                    public void act(Stacks stacks, ElementContext context, String body) {
+                        stacks.get("titles").push(body);
+                    }
+                });
+            on("/feed/entry/value")
+                .doAt(new ActionAt() {
+                    @Override
+                    public void act(Stacks stacks, ElementContext context, String body) {
+                        stacks.get("records").push(Integer.parseInt(body));
+                    }
+                });
+        }
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path feedFile(int count) throws Exception {
+        StringBuilder builder = new StringBuilder(
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<feed xmlns:x=\"urn:x\" version=\"2\">\n" +
+            "  <title>Feed</title>\n"
+        );
+        for (int i = 0; i < count; ++i) {
+            builder.append("  <entry id=\"").append(i).append("\"><value>").append(i).append("</value></entry>\n");
+        }
+        builder.append("</feed>\n");
+
+        Path path = temporaryFolder.newFile("feed.xml").toPath();
+        Files.write(path, builder.toString().getBytes(Charsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    public void testParseParallel() throws Exception {
+        Devourer devourer = Devourers.create(new FeedModule());
+        Stacks stacks = devourer.parseParallel(feedFile(20000), "/feed/entry", 4);
+
+        assertEquals(ImmutableList.of("Feed"), stacks.get("titles").popList());
+        List<Integer> records = stacks.get("records").popList();
+        assertEquals(20000, records.size());
+        for (int i = 0; i < records.size(); ++i) {
+            assertEquals((Object) i, records.get(i));
+        }
+    }
+
+    @Test
+    public void testParseParallelWithSingleRange() throws Exception {
+        Devourer devourer = Devourers.create(new FeedModule());
+        Stacks stacks = devourer.parseParallel(feedFile(10), "/feed/entry", 1);
+
+        assertEquals(ImmutableList.of("Feed"), stacks.get("titles").popList());
+        assertEquals(ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), stacks.get("records").popList());
+    }
+
+    @Test
+    public void testParsePathDetectsEncoding() throws Exception {
+        Path path = temporaryFolder.newFile("latin1.xml").toPath();
+        String document = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" +
+                          "<data><text>caf\u00e9</text><text>na\u00efve</text></data>";
+        Files.write(path, document.getBytes(Charsets.ISO_8859_1));
+
+        Devourer devourer = Devourers.create(new TextModule());
+        Stacks stacks = devourer.parse(path);
+
+        assertEquals(ImmutableList.of("caf\u00e9", "na\u00efve"), stacks.popList());
+    }
+
+    private static final String LATIN1_DOCUMENT =
+        "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" +
+        "<data><text>caf\u00e9</text><text>na\u00efve</text></data>";
+
+    @Test
+    public void testParseBytesDetectsEncoding() throws Exception {
+        Devourer devourer = Devourers.create(new TextModule());
+        byte[] bytes = LATIN1_DOCUMENT.getBytes(Charsets.ISO_8859_1);
+
+        assertEquals(ImmutableList.of("caf\u00e9", "na\u00efve"), devourer.parse(bytes).popList());
+        assertEquals(ImmutableList.of("caf\u00e9", "na\u00efve"),
+                     devourer.parse(new ByteArrayInputStream(bytes)).popList());
+        assertEquals(ImmutableList.of("caf\u00e9", "na\u00efve"),
+                     devourer.parse(Channels.newChannel(new ByteArrayInputStream(bytes))).popList());
+    }
+
+    @Test
+    public void testParseByteBufferKeepsPosition() throws Exception {
+        Devourer devourer = Devourers.create(new TextModule());
+        ByteBuffer buffer = ByteBuffer.wrap(LATIN1_DOCUMENT.getBytes(Charsets.ISO_8859_1));
+
+        assertEquals(ImmutableList.of("caf\u00e9", "na\u00efve"), devourer.parse(buffer).popList());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testBuiltInParserBackend() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setParserBackend(ParserBackends.builtInUtf8()).build();
+        Devourer devourer = Devourers.create(config, new ExampleDataModule());
+
+        for (Stacks stacks : ImmutableList.of(devourer.parse(EXAMPLE),
+                                              devourer.parse(EXAMPLE.getBytes(Charsets.UTF_8)),
+                                              devourer.parse(EXAMPLE_UNMAPPED))) {
+            List<ExampleData> dataList = stacks.pop();
+            assertEquals(1, dataList.size());
+
+            ExampleData data = dataList.get(0);
+            assertEquals(34, data.id);
+            assertEquals("Name", data.name);
+            assertEquals(ImmutableList.of(0.3, 0.2), data.args);
+        }
+    }
+
+    @Test
+    public void testBuiltInParserBackendWithParallelParsing() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setParserBackend(ParserBackends.builtInUtf8()).build();
+        Devourer devourer = Devourers.create(config, new FeedModule());
+        Stacks stacks = devourer.parseParallel(feedFile(1000), "/feed/entry", 4);
+
+        assertEquals(ImmutableList.of("Feed"), stacks.get("titles").popList());
+        assertEquals(1000, stacks.get("records").popList().size());
+    }
+
+    @Test(expected = ParsingException.class)
+    public void testBuiltInParserBackendRejectsOtherEncodings() throws Exception {
+        DevourerConfig config = DevourerConfig.builder().setParserBackend(ParserBackends.builtInUtf8()).build();
+        Devourer devourer = Devourers.create(config, new TextModule());
+
+        devourer.parse(LATIN1_DOCUMENT.getBytes(Charsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testSession() throws Exception {
+        Devourer devourer = Devourers.create(new ExampleDataModule());
+        byte[] bytes = EXAMPLE.getBytes(Charsets.UTF_8);
+
+        DevourerSession session = devourer.openSession();
+        for (int i = 0; i < bytes.length; i += 3) {
+            session.feed(ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i)));
+            assertTrue(session.needsInput());
+        }
+        Stacks stacks = session.endOfInput();
+        assertFalse(session.needsInput());
+
+        List<ExampleData> dataList = stacks.pop();
+        assertEquals(1, dataList.size());
+
+        ExampleData data = dataList.get(0);
+        assertEquals(34, data.id);
+        assertEquals("Name", data.name);
+        assertEquals(ImmutableList.of(0.3, 0.2), data.args);
+        assertEquals(ImmutableMap.of("Header-1", "header 1 value", "Header-2", "Some bigger value"), data.headers);
+    }
+
+    @Test
+    public void testSessionExecutesActionsAsSoonAsPossible() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        DevourerSession session = devourer.openSession();
+
+        session.feed(ByteBuffer.wrap("<data><text>1</text><text>2</te".getBytes(Charsets.UTF_8)));
+        assertEquals(ImmutableList.of(1), session.stacks().get("records").popList());
+
+        session.feed(ByteBuffer.wrap("xt></data>".getBytes(Charsets.UTF_8)));
+        assertEquals(ImmutableList.of(2), session.stacks().get("records").popList());
+        session.endOfInput();
+    }
+
+    @Test(expected = ParsingException.class)
+    public void testSessionReportsIncompleteDocument() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        DevourerSession session = devourer.openSession();
+
+        session.feed(ByteBuffer.wrap("<data><text>1</text>".getBytes(Charsets.UTF_8)));
+        session.endOfInput();
+    }
+
+    private static final Function<Integer, Integer> MOD_4 = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return input % 4;
+        }
+    };
+
+    @Test
+    public void testProcessPreservesPerKeyOrder() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        final ListMultimap<Integer, Integer> handled =
+            Multimaps.synchronizedListMultimap(ArrayListMultimap.<Integer, Integer>create());
+        PipelineConfig pipelineConfig = PipelineConfig.builder().setWorkers(3).setQueueCapacity(2).build();
+
+        devourer.process(
+            new StringReader(recordsDocument(1000, true)), "records", MOD_4,
+            new RecordHandler<Integer>() {
+                @Override
+                public void handle(Integer record) throws Exception {
+                    handled.put(record % 4, record);
+                }
+            },
+            pipelineConfig
+        );
+
+        assertEquals(1000, handled.size());
+        for (int key = 0; key < 4; ++key) {
+            List<Integer> records = handled.get(key);
+            assertEquals(250, records.size());
+            for (int i = 0; i < records.size(); ++i) {
+                assertEquals((Object) (key + i * 4), records.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testProcessReportsHandlerFailure() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        PipelineConfig pipelineConfig = PipelineConfig.builder().setWorkers(2).setQueueCapacity(1).build();
+
+        try {
+            devourer.process(
+                new StringReader(recordsDocument(1000, true)), "records", MOD_4,
+                new RecordHandler<Integer>() {
+                    @Override
+                    public void handle(Integer record) throws Exception {
+                        if (record == 10) {
+                            throw new IllegalStateException("Bad record");
+                        }
+                    }
+                },
+                pipelineConfig
+            );
+            fail("Handler failure is not reported");
+        } catch (ActionException e) {
+            assertEquals("Bad record", e.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testProcessReportsHandlerError() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        PipelineConfig pipelineConfig = PipelineConfig.builder().setWorkers(2).setQueueCapacity(1).build();
+
+        try {
+            devourer.process(
+                new StringReader(recordsDocument(1000, true)), "records", MOD_4,
+                new RecordHandler<Integer>() {
+                    @Override
+                    public void handle(Integer record) throws Exception {
+                        if (record == 10) {
+                            throw new AssertionError("Bad record");
+                        }
+                    }
+                },
+                pipelineConfig
+            );
+            fail("Handler error is not reported");
+        } catch (ActionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+            assertEquals("Bad record", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testProcessStopsWorkersOnActionError() throws Exception {
+        Devourer devourer = Devourers.create(new AbstractMappingModule() {
+            @Override
+            protected void configure() {
+                on("/data/text")
+                    .doAt(new ActionAt() {
+                        @Override
+                        public void act(Stacks stacks, ElementContext context, String body) {
+                            if (body.equals("500")) {
+                                throw new AssertionError("Bad record");
+                            }
+                            stacks.get("records").push(Integer.parseInt(body));
+                        }
+                    });
+            }
+        });
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        PipelineConfig pipelineConfig = PipelineConfig.builder()
+            .setWorkers(2)
+            .setThreadFactory(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    threads.add(thread);
+                    return thread;
+                }
+            })
+            .build();
+
+        Throwable error = null;
+        try {
+            devourer.process(
+                new StringReader(recordsDocument(1000, true)), "records", MOD_4,
+                new RecordHandler<Integer>() {
+                    @Override
+                    public void handle(Integer record) throws Exception {
+                    }
+                },
+                pipelineConfig
+            );
+        } catch (AssertionError e) {
+            error = e;
+        }
+        assertTrue(error instanceof AssertionError);
+        assertEquals("Bad record", error.getMessage());
+
+        assertEquals(2, threads.size());
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertFalse("Worker thread is still running", thread.isAlive());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testProcessReportsKeyFunctionFailure() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        PipelineConfig pipelineConfig = PipelineConfig.builder().setWorkers(2).build();
+
+        try {
+            devourer.process(
+                new StringReader(recordsDocument(1000, true)), "records", failingKey(10),
+                new RecordHandler<Integer>() {
+                    @Override
+                    public void handle(Integer record) throws Exception {
+                    }
+                },
+                pipelineConfig
+            );
+            fail("Key function failure is not reported");
+        } catch (ActionException e) {
+            assertEquals("Bad key", e.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testProcessWaitsForWorkersIgnoringInterruption() throws Exception {
+        Devourer devourer = Devourers.create(new RecordsModule());
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        PipelineConfig pipelineConfig = PipelineConfig.builder()
+            .setWorkers(2)
+            .setThreadFactory(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    threads.add(thread);
+                    return thread;
+                }
+            })
+            .build();
+
+        try {
+            devourer.process(
+                new StringReader(recordsDocument(1000, true)), "records", failingKey(3),
+                new RecordHandler<Integer>() {
+                    @Override
+                    public void handle(Integer record) throws Exception {
+                        Uninterruptibles.sleepUninterruptibly(300, TimeUnit.MILLISECONDS);
+                    }
+                },
+                pipelineConfig
+            );
+            fail("Key function failure is not reported");
+        } catch (ActionException e) {
+            assertEquals("Bad key", e.getCause().getMessage());
+        }
+
+        assertEquals(2, threads.size());
+        for (Thread thread : threads) {
+            assertFalse("Worker thread is still running", thread.isAlive());
+        }
+    }
+
+    private static Function<Integer, Integer> failingKey(final int badRecord) {
+        return new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                if (input == badRecord) {
+                    throw new IllegalStateException("Bad key");
+                }
+                return input;
+            }
+        };
+    }
+
     private static final String EXAMPLE_2 =
         "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
         "<p:data xmlns:p=\"urn:example:namespace\" xmlns:d=\"urn:example:double\" xmlns:h=\"urn:example:header\">\n" +
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.sandbox1.classes;
+
+import com.google.common.collect.ImmutableList;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.After;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.At;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.Before;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.Peek;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.Pop;
+import org.bitbucket.googolplex.devourer.configuration.annotated.annotations.PushTo;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+
+import java.util.List;
+
+/**
+ * Same mapping as {@link ExampleAnnotatedConfig}, but with all {@link At} methods receiving element bodies as
+ * {@link CharSequence}s.
+ */
+public class ExampleCharsAnnotatedConfig {
+    @Before("/data")
+    public ImmutableList.Builder<ExampleData> initData() {
+        return ImmutableList.builder();
+    }
+
+    @Before("/data/datum")
+    public ExampleData.Builder createDatum(ElementContext context) {
+        ExampleData.Builder builder = new ExampleData.Builder();
+        builder.setId(Integer.parseInt(context.attribute("id").or("0")));
+        return builder;
+    }
+
+    @At("/data/datum/name")
+    public void setDatumName(@Peek ExampleData.Builder builder, CharSequence body) {
+        builder.setName(body.toString());
+    }
+
+    @At("/data/datum/arg")
+    public void addDatumArg(@Peek ExampleData.Builder builder, CharSequence body) {
+        builder.addArg(Double.parseDouble(body.toString()));
+    }
+
+    @At("/data/datum/header")
+    public void addDatumHeader(@Peek ExampleData.Builder builder, ElementContext context, CharSequence body) {
+        builder.addHeader(context.attribute("name").get(), body.toString());
+    }
+
+    @After("/data/datum")
+    public void addDatum(@Pop ExampleData.Builder builder, @Peek ImmutableList.Builder<ExampleData> dataBuilder) {
+        dataBuilder.add(builder.build());
+    }
+
+    @After("/data")
+    @PushTo("results")
+    public List<ExampleData> finishData(@Pop ImmutableList.Builder<ExampleData> dataBuilder) {
+        return dataBuilder.build();
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.integration.sandbox1.classes;
+
+import com.google.common.collect.ImmutableList;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAfter;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionAtChars;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
+import org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+
+/**
+ * Same mapping as {@link ExampleDataModule}, but with all at-actions receiving element bodies as
+ * {@link CharSequence}s.
+ */
+public class ExampleDataCharsModule extends AbstractMappingModule {
+    @Override
+    public void configure() {
+        on("/data")
+            .doBefore(new ActionBefore() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    stacks.push(ImmutableList.builder());
+                }
+            })
+            .doAfter(new ActionAfter() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    ImmutableList.Builder<ExampleData> dataBuilder = stacks.pop();
+                    stacks.push(dataBuilder.build());
+                }
+            });
+
+        on("/data/datum")
+            .doBefore(new ActionBefore() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    ExampleData.Builder builder = new ExampleData.Builder();
+                    builder.setId(Integer.parseInt(context.attribute("id").or("0")));
+                    stacks.push(builder);
+                }
+            })
+            .doAfter(new ActionAfter() {
+                @Override
+                public void act(Stacks stacks, ElementContext context) {
+                    ExampleData.Builder builder = stacks.pop();
+                    ImmutableList.Builder<ExampleData> dataBuilder = stacks.peek();
+                    dataBuilder.add(builder.build());
+                }
+            });
+
+        on("/data/datum/name")
+            .doAtChars(new ActionAtChars() {
+                @Override
+                public void act(Stacks stacks, ElementContext context, CharSequence body) {
+                    ExampleData.Builder builder = stacks.peek();
+                    builder.setName(body.toString());
+                }
+            });
+
+        on("/data/datum/arg")
+            .doAtChars(new ActionAtChars() {
+                @Override
+                public void act(Stacks stacks, ElementContext context, CharSequence body) {
+                    ExampleData.Builder builder = stacks.peek();
+                    builder.addArg(Double.parseDouble(body.toString()));
+                }
+            });
+
+        on("/data/datum/header")
+            .doAtChars(new ActionAtChars() {
+                @Override
+                public void act(Stacks stacks, ElementContext context, CharSequence body) {
+                    ExampleData.Builder builder = stacks.peek();
+                    builder.addHeader(context.attribute("name").get(), body.toString());
+                }
+            });
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.metrics;
+
+import org.bitbucket.googolplex.devourer.Devourer;
+import org.bitbucket.googolplex.devourer.Devourers;
+import org.bitbucket.googolplex.devourer.configuration.DevourerConfig;
+import org.bitbucket.googolplex.devourer.configuration.actions.ActionBefore;
+import org.bitbucket.googolplex.devourer.configuration.modular.AbstractMappingModule;
+import org.bitbucket.googolplex.devourer.contexts.ElementContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.bitbucket.googolplex.devourer.paths.mappings.ActionBundle;
+import org.bitbucket.googolplex.devourer.paths.mappings.MappingBuilder;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPatterns;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCache;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternCacheStats;
+import org.bitbucket.googolplex.devourer.paths.patterns.groups.PatternGroups;
+import org.bitbucket.googolplex.devourer.stacks.Stacks;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class JmxDevourerMetricsTest {
+    @Test
+    public void testAccumulation() throws Exception {
+        JmxDevourerMetrics metrics = new JmxDevourerMetrics();
+        metrics.documentParsed(10, 100, 1000);
+        metrics.documentParsed(5, -1, 1000);
+
+        assertEquals(2, metrics.getDocumentCount());
+        assertEquals(15, metrics.getElementCount());
+        assertEquals(100, metrics.getByteCount());
+        assertTrue(metrics.getElementsPerSecond() > 0);
+
+        PathPattern pattern = PathPatterns.fromString("/a/b");
+        ActionBundle bundle = MappingBuilder.create()
+            .add(pattern, mock(ActionBefore.class))
+            .build()
+            .lookup(ExactPath.fromString("/a/b"), NamespaceContext.empty())
+            .get();
+        metrics.actionsExecuted(bundle, ActionPhase.AT, 2, 3000000);
+        metrics.actionsExecuted(bundle, ActionPhase.AT, 2, 2000000);
+        assertArrayEquals(new String[] {pattern + " AT invocations=4 totalMillis=5"}, metrics.getActionStatistics());
+
+        metrics.reset();
+        assertEquals(0, metrics.getDocumentCount());
+        assertEquals(0, metrics.getActionStatistics().length);
+    }
+
+    @Test
+    public void testPathCacheHitRate() throws Exception {
+        JmxDevourerMetrics metrics = new JmxDevourerMetrics();
+        assertTrue(Double.isNaN(metrics.getPathCacheHitRate()));
+
+        PatternCache cache1 = mock(PatternCache.class);
+        when(cache1.stats()).thenReturn(new PatternCacheStats(1, 2, 1, 0, 1));
+        PatternCache cache2 = mock(PatternCache.class);
+        when(cache2.stats()).thenReturn(new PatternCacheStats(0, 0, 4, 0, 4));
+        metrics.patternCacheCreated(cache1);
+        metrics.patternCacheCreated(cache2);
+
+        assertEquals(0.375, metrics.getPathCacheHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testSkippedElementsAreCounted() throws Exception {
+        JmxDevourerMetrics metrics = new JmxDevourerMetrics();
+        DevourerConfig config = DevourerConfig.builder().setMetrics(metrics).build();
+        Devourer devourer = Devourers.create(config, new AbstractMappingModule() {
+            @Override
+            protected void configure() {
+                on("/a/b").doBefore(mock(ActionBefore.class));
+            }
+        });
+
+        // The subtree of c cannot contain mapped elements, so it is skipped, but its elements are still parsed
+        devourer.parse("<a><b/><c><d/><e><f/></e></c></a>");
+
+        assertEquals(1, metrics.getDocumentCount());
+        assertEquals(6, metrics.getElementCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testSharedMetricsDoNotRetainDevourers() throws Exception {
+        JmxDevourerMetrics metrics = new JmxDevourerMetrics();
+        DevourerConfig config = DevourerConfig.builder().setMetrics(metrics).build();
+
+        List<Devourer> devourers = new ArrayList<Devourer>();
+        for (int i = 0; i < 200; ++i) {
+            Devourer devourer = Devourers.create(config, new AbstractMappingModule() {
+                @Override
+                protected void configure() {
+                    on("/a/b").doBefore(new ActionBefore() {
+                        @Override
+                        public void act(Stacks stacks, ElementContext context) {
+                        }
+                    });
+                }
+            }, PatternGroups.twoLevelCachingGroupProvider());
+            devourer.parse("<a><b/></a>");
+            devourers.add(devourer);
+        }
+        assertEquals(200, metrics.getActionStatistics().length);
+        assertFalse(Double.isNaN(metrics.getPathCacheHitRate()));
+
+        // Nothing references the Devourers anymore, so their caches and bundles must be collected
+        devourers.clear();
+        while (metrics.getActionStatistics().length > 0 || !Double.isNaN(metrics.getPathCacheHitRate())) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testRegistration() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(
+            JmxDevourerMetrics.DOMAIN + ":type=DevourerMetrics,name=" + ObjectName.quote("test")
+        );
+
+        JmxDevourerMetrics metrics = JmxDevourerMetrics.register("test");
+        try {
+            metrics.documentParsed(3, 30, 1000);
+            assertEquals(1L, server.getAttribute(name, "DocumentCount"));
+            assertEquals(3L, server.getAttribute(name, "ElementCount"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -24,6 +24,8 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -71,6 +73,19 @@ public class ExactPathTest {
         assertTrue(path.parts.isEmpty());
     }
 
+    @Test
+    public void testEmptyPathEqualsRoot() throws Exception {
+        ExactPath empty = new ExactPath(ImmutableList.<QualifiedName>of());
+
+        assertEquals(ExactPath.root(), empty);
+        assertEquals(empty, ExactPath.root());
+        assertEquals(ExactPath.root().hashCode(), empty.hashCode());
+
+        assertEquals(ExactPath.fromString("/a"), empty.resolve(QualifiedNames.localOnly("a")));
+        assertEquals(empty.resolve(QualifiedNames.localOnly("a")), ExactPath.fromString("/a"));
+        assertFalse(empty.equals(ExactPath.fromString("/a")));
+    }
+
     @Test
     public void testResolve() throws Exception {
         List<QualifiedName> base = ImmutableList.of(
@@ -104,4 +119,36 @@ public class ExactPathTest {
         path = path.moveUp();
         assertTrue(path.parts.isEmpty());
     }
+
+    @Test
+    public void testEqualsAndHashCode() throws Exception {
+        ExactPath path1 = ExactPath.fromString("/a/{ns}b/c");
+        ExactPath path2 = ExactPath.root()
+                                   .resolve(QualifiedNames.localOnly("a"))
+                                   .resolve(QualifiedNames.withNamespace("b", "ns"))
+                                   .resolve(QualifiedNames.localOnly("c"));
+        ExactPath path3 = ExactPath.fromString("/a/{ns}b/d");
+
+        assertEquals(path1, path2);
+        assertEquals(path1.hashCode(), path2.hashCode());
+        assertFalse(path1.equals(path3));
+        assertFalse(path1.equals(path1.moveUp()));
+
+        // Hash codes and equality of parts must be compatible with ordinary lists
+        List<QualifiedName> list = ImmutableList.copyOf(path1.parts);
+        assertEquals(list.hashCode(), path1.hashCode());
+        assertEquals(list.hashCode(), path1.parts.hashCode());
+        assertEquals(list, path1.parts);
+        assertEquals(path1.parts, list);
+    }
+
+    @Test
+    public void testMoveUpReturnsParent() throws Exception {
+        ExactPath parent = ExactPath.fromString("/a/b");
+        ExactPath child = parent.resolve(QualifiedNames.localOnly("c"));
+
+        assertSame(parent, child.moveUp());
+        assertEquals(QualifiedNames.localOnly("c"), child.parts.get(2));
+        assertEquals(QualifiedNames.localOnly("a"), child.parts.get(0));
+    }
 }
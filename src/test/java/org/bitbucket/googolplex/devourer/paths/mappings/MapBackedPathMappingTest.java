@@ -31,6 +31,7 @@ import static org.junit.Assert.assertFalse;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -79,4 +80,41 @@ public class MapBackedPathMappingTest {
         assertFalse(b3.isPresent());
         assertFalse(b4.isPresent());
     }
+
+    @Test
+    public void testTrackerWithNonIncrementalGroup() throws Exception {
+        // Prepare
+        ExactPath path1 = ExactPath.fromString("/a");
+        ExactPath path2 = ExactPath.fromString("/a/b");
+
+        NamespaceContext context = mock(NamespaceContext.class);
+
+        PathPattern pattern1 = mock(PathPattern.class);
+
+        ActionBundle bundle1 = mock(ActionBundle.class);
+
+        PatternGroup patternGroup = mock(PatternGroup.class);
+        when(patternGroup.lookup(any(ExactPath.class), eq(context))).thenReturn(Optional.<PathPattern>absent());
+        when(patternGroup.lookup(path1, context)).thenReturn(Optional.of(pattern1));
+
+        Map<PathPattern, ActionBundle> bundleMap = ImmutableMap.of(pattern1, bundle1);
+
+        // Run
+        PathMapping pathMapping = new MapBackedPathMapping(bundleMap, patternGroup);
+        PathTracker tracker = pathMapping.tracker(context);
+        Optional<ActionBundle> b1 = tracker.push(path1.parts.get(0));
+        Optional<ActionBundle> b2 = tracker.push(path2.parts.get(1));
+        Optional<ActionBundle> b3 = tracker.current();
+        tracker.pop();
+        Optional<ActionBundle> b4 = tracker.current();
+
+        // Verify
+        verify(patternGroup).lookup(path1, context);
+        verify(patternGroup).lookup(path2, context);
+
+        assertEquals(bundle1, b1.get());
+        assertFalse(b2.isPresent());
+        assertFalse(b3.isPresent());
+        assertEquals(bundle1, b4.get());
+    }
 }
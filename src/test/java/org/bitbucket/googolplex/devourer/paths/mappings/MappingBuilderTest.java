@@ -141,6 +141,11 @@ public class MappingBuilderTest {
         public Optional<ActionBundle> lookup(ExactPath path, NamespaceContext namespaceContext) {
             return null;
         }
+
+        @Override
+        public PathTracker tracker(NamespaceContext namespaceContext) {
+            return null;
+        }
     }
 
 }
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.mappings;
+
+import com.google.common.base.Optional;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PathMappingTest {
+    @Test
+    public void testDefaultTracker() throws Exception {
+        // Prepare
+        ExactPath path1 = ExactPath.fromString("/a");
+        ExactPath path2 = ExactPath.fromString("/a/b");
+
+        NamespaceContext context = mock(NamespaceContext.class);
+
+        ActionBundle bundle1 = mock(ActionBundle.class);
+
+        final PathMapping lookupOnly = mock(PathMapping.class);
+        when(lookupOnly.lookup(any(ExactPath.class), eq(context))).thenReturn(Optional.<ActionBundle>absent());
+        when(lookupOnly.lookup(path1, context)).thenReturn(Optional.of(bundle1));
+
+        // Implements lookup() only, as mappings written before trackers were introduced do
+        PathMapping pathMapping = new PathMapping() {
+            @Override
+            public Optional<ActionBundle> lookup(ExactPath path, NamespaceContext namespaceContext) {
+                return lookupOnly.lookup(path, namespaceContext);
+            }
+        };
+
+        // Run
+        PathTracker tracker = pathMapping.tracker(context);
+        Optional<ActionBundle> b0 = tracker.current();
+        Optional<ActionBundle> b1 = tracker.push(path1.parts.get(0));
+        Optional<ActionBundle> b2 = tracker.push(path2.parts.get(1));
+        Optional<ActionBundle> b3 = tracker.current();
+        boolean below = tracker.canMatchBelow();
+        tracker.pop();
+        Optional<ActionBundle> b4 = tracker.current();
+
+        // Verify
+        verify(lookupOnly).lookup(path1, context);
+        verify(lookupOnly).lookup(path2, context);
+
+        assertFalse(b0.isPresent());
+        assertEquals(bundle1, b1.get());
+        assertFalse(b2.isPresent());
+        assertFalse(b3.isPresent());
+        assertTrue(below);
+        assertEquals(bundle1, b4.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDefaultTrackerCannotMoveAboveRoot() throws Exception {
+        PathMapping pathMapping = new PathMapping() {
+            @Override
+            public Optional<ActionBundle> lookup(ExactPath path, NamespaceContext namespaceContext) {
+                return Optional.absent();
+            }
+        };
+
+        pathMapping.tracker(mock(NamespaceContext.class)).pop();
+    }
+}
@@ -238,6 +238,27 @@ public class AdvancedPathPatternTest {
                    "Pattern must match more than one element");
     }
 
+    @Test(timeout = 2000)
+    public void testSeveralGlobalWildcardsOnDeepPathsDoNotBacktrack() throws Exception {
+        // Backtracking over every split of the path between wildcards is polynomial in the path length with
+        // the degree equal to the number of wildcards; these checks would never finish in that case
+        PathPattern pattern = PathPatterns.fromString("/**/a/**/a/**/a/**/a/**/b");
+
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            path.append("/a");
+        }
+
+        checkNoMatch(pattern, path.toString(),
+                     "Pattern must not match deep path without the last element");
+
+        checkMatch(pattern, path + "/b",
+                   "Pattern must match deep path with the last element");
+
+        checkNoMatch(pattern, path + "/b/a",
+                     "Pattern must not match deep path with extra elements after the last one");
+    }
+
     private void checkMatch(PathPattern pattern, String path, NamespaceContext context, String message) {
         assertTrue(
             message,
@@ -22,6 +22,8 @@ import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedName;
 import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -302,5 +304,27 @@ public class LiteralNameTest {
             )
         );
     }
+
+    @Test
+    public void testResolvedNameMatchesLikeLiteralName() throws Exception {
+        NamespaceContext context = NamespaceContext.fromItems("urn:a", "a", "urn:b", "b");
+        List<LiteralName> literals = ImmutableList.of(
+            LiteralName.fromString("x"), LiteralName.fromString("*"), LiteralName.fromString("a:x"),
+            LiteralName.fromString("a:*"), LiteralName.fromString("*:x"), LiteralName.fromString("*:*"),
+            LiteralName.fromString("c:x")
+        );
+        List<QualifiedName> names = ImmutableList.of(
+            QualifiedNames.localOnly("x"), QualifiedNames.localOnly("y"), QualifiedNames.withNamespace("x", "urn:a"),
+            QualifiedNames.full("x", "urn:a", "q"), QualifiedNames.withNamespace("y", "urn:a"),
+            QualifiedNames.withNamespace("x", "urn:b"), QualifiedNames.withNamespace("x", "urn:c")
+        );
+
+        for (LiteralName literal : literals) {
+            ResolvedName resolved = literal.resolve(context);
+            for (QualifiedName name : names) {
+                assertEquals(literal + " vs " + name, literal.matches(name, context), resolved.matches(name));
+            }
+        }
+    }
 }
 
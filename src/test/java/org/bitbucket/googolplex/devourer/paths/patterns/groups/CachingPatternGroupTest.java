@@ -48,7 +48,7 @@ public class CachingPatternGroupTest {
         when(inner.lookup(path2, context)).thenReturn(Optional.of(pattern));
 
         // Run
-        PatternGroup patternGroup = new CachingPatternGroup(inner);
+        CachingPatternGroup patternGroup = new CachingPatternGroup(inner);
         Optional<PathPattern> p1 = patternGroup.lookup(path1, context);
         Optional<PathPattern> p2 = patternGroup.lookup(path1, context);
         Optional<PathPattern> p3 = patternGroup.lookup(path2, context);
@@ -64,5 +64,12 @@ public class CachingPatternGroupTest {
         assertFalse(p2.isPresent());
         assertEquals(pattern, p3.get());
         assertEquals(pattern, p4.get());
+
+        PatternCacheStats stats = patternGroup.stats();
+        assertEquals(0, stats.localHitCount);
+        assertEquals(2, stats.sharedHitCount);
+        assertEquals(2, stats.missCount);
+        assertEquals(2, stats.size);
+        assertEquals(0.5, stats.hitRate(), 1e-9);
     }
 }
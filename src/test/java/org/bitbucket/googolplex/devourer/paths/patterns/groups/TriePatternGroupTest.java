@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.groups;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.QualifiedNames;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPatterns;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class TriePatternGroupTest {
+    private static final NamespaceContext CONTEXT = NamespaceContext.fromItems("urn:ns1", "p");
+
+    private static final List<PathPattern> PATTERNS = ImmutableList.of(
+        PathPatterns.fromString("/a/b/c"),
+        PathPatterns.fromString("/a/*/c"),
+        PathPatterns.fromString("/a/**/d"),
+        PathPatterns.fromString("/a/p:b"),
+        PathPatterns.fromString("/a/*:e"),
+        PathPatterns.fromString("/**/f/**/g"),
+        PathPatterns.fromString("/a/b/**"),
+        PathPatterns.fromString("/"),
+        PathPatterns.fromString("/**")
+    );
+
+    private static final List<String> PATHS = ImmutableList.of(
+        "/", "/a", "/a/b", "/a/b/c", "/a/x/c", "/a/x/y/d", "/a/d", "/a/{urn:ns1}b", "/a/{urn:ns2}b",
+        "/a/e", "/a/{urn:ns2}e", "/f/g", "/x/f/y/z/g", "/a/b/f/g", "/a/b/c/d", "/z/z/z"
+    );
+
+    @Test
+    public void testLookupIsConsistentWithListBackedGroup() throws Exception {
+        PatternGroup trieGroup = new TriePatternGroup(PATTERNS);
+        PatternGroup listGroup = new ListBackedPatternGroup(PATTERNS);
+
+        for (String path : PATHS) {
+            ExactPath exactPath = ExactPath.fromString(path);
+            assertEquals("Lookup result differs for " + path,
+                         listGroup.lookup(exactPath, CONTEXT), trieGroup.lookup(exactPath, CONTEXT));
+        }
+    }
+
+    @Test
+    public void testMatcherIsConsistentWithLookup() throws Exception {
+        TriePatternGroup patternGroup = new TriePatternGroup(PATTERNS);
+        PatternMatcher matcher = patternGroup.matcher(CONTEXT);
+
+        // Walk a document with the following structure, checking each path on the way down and after moving up
+        // <a><b><c><d/></c><f><g/></f></b><x><y><d/></y></x></a>
+        checkPush(patternGroup, matcher, "/a");
+        checkPush(patternGroup, matcher, "/a/b");
+        checkPush(patternGroup, matcher, "/a/b/c");
+        checkPush(patternGroup, matcher, "/a/b/c/d");
+        matcher.pop();
+        matcher.pop();
+        checkPush(patternGroup, matcher, "/a/b/f");
+        checkPush(patternGroup, matcher, "/a/b/f/g");
+        matcher.pop();
+        matcher.pop();
+        matcher.pop();
+        checkPush(patternGroup, matcher, "/a/x");
+        checkPush(patternGroup, matcher, "/a/x/y");
+        checkPush(patternGroup, matcher, "/a/x/y/d");
+        matcher.pop();
+        matcher.pop();
+        matcher.pop();
+        matcher.pop();
+        checkPush(patternGroup, matcher, "/z");
+    }
+
+    private void checkPush(PatternGroup patternGroup, PatternMatcher matcher, String path) {
+        ExactPath exactPath = ExactPath.fromString(path);
+        assertEquals("Matcher result differs for " + path,
+                     patternGroup.lookup(exactPath, CONTEXT),
+                     matcher.push(exactPath.parts.get(exactPath.parts.size() - 1)));
+    }
+
+    @Test
+    public void testMatcherReportsDeadSubtrees() throws Exception {
+        TriePatternGroup patternGroup = new TriePatternGroup(ImmutableList.of(
+            PathPatterns.fromString("/a/b/c"),
+            PathPatterns.fromString("/a/x/**/d")
+        ));
+        PatternMatcher matcher = patternGroup.matcher(CONTEXT);
+
+        assertTrue(matcher.canMatchBelow());
+        matcher.push(QualifiedNames.localOnly("a"));
+        assertTrue(matcher.canMatchBelow());
+        matcher.push(QualifiedNames.localOnly("b"));
+        assertTrue(matcher.canMatchBelow());
+        matcher.push(QualifiedNames.localOnly("c"));
+        assertFalse(matcher.canMatchBelow());
+        matcher.pop();
+        matcher.push(QualifiedNames.localOnly("z"));
+        assertFalse(matcher.canMatchBelow());
+        matcher.pop();
+        matcher.pop();
+        matcher.push(QualifiedNames.localOnly("x"));
+        matcher.push(QualifiedNames.localOnly("d"));
+        // Global wildcard can consume any number of names
+        assertTrue(matcher.canMatchBelow());
+        matcher.pop();
+        matcher.pop();
+        matcher.pop();
+        matcher.push(QualifiedNames.localOnly("b"));
+        assertFalse(matcher.canMatchBelow());
+    }
+
+    @Test
+    public void testFirstRegisteredPatternWins() throws Exception {
+        PathPattern p1 = PathPatterns.fromString("/a/**");
+        PathPattern p2 = PathPatterns.fromString("/a/b");
+        PathPattern p3 = PathPatterns.fromString("/a/*");
+
+        PatternGroup patternGroup = new TriePatternGroup(ImmutableList.of(p1, p2, p3));
+        assertEquals(p1, patternGroup.lookup(ExactPath.fromString("/a/b"), CONTEXT).get());
+
+        patternGroup = new TriePatternGroup(ImmutableList.of(p3, p2, p1));
+        assertEquals(p3, patternGroup.lookup(ExactPath.fromString("/a/b"), CONTEXT).get());
+
+        patternGroup = new TriePatternGroup(ImmutableList.of(p2, p3, p1));
+        assertEquals(p2, patternGroup.lookup(ExactPath.fromString("/a/b"), CONTEXT).get());
+    }
+
+    @Test
+    public void testLookupUsesGivenNamespaceContext() throws Exception {
+        TriePatternGroup patternGroup = new TriePatternGroup(ImmutableList.of(PathPatterns.fromString("/a/p:b")));
+        NamespaceContext otherContext = NamespaceContext.fromItems("urn:ns2", "p");
+        ExactPath path1 = ExactPath.fromString("/a/{urn:ns1}b");
+        ExactPath path2 = ExactPath.fromString("/a/{urn:ns2}b");
+
+        patternGroup.prepare(CONTEXT);
+        assertTrue(patternGroup.lookup(path1, CONTEXT).isPresent());
+        assertFalse(patternGroup.lookup(path2, CONTEXT).isPresent());
+
+        assertFalse(patternGroup.lookup(path1, otherContext).isPresent());
+        assertTrue(patternGroup.lookup(path2, otherContext).isPresent());
+
+        // Equal contexts share the resolution
+        assertTrue(patternGroup.lookup(path1, NamespaceContext.fromItems("urn:ns1", "p")).isPresent());
+    }
+
+    @Test
+    public void testLookupFailure() throws Exception {
+        PatternGroup patternGroup = new TriePatternGroup(ImmutableList.of(
+            PathPatterns.fromString("/a/b"),
+            PathPatterns.fromString("/a/**/c")
+        ));
+
+        assertFalse(patternGroup.lookup(ExactPath.fromString("/a"), CONTEXT).isPresent());
+        assertFalse(patternGroup.lookup(ExactPath.fromString("/a/b/d"), CONTEXT).isPresent());
+        assertFalse(patternGroup.lookup(ExactPath.fromString("/b"), CONTEXT).isPresent());
+    }
+
+    @Test
+    public void testForeignPatternsAreCheckedInOrder() throws Exception {
+        ExactPath path = ExactPath.fromString("/a/b");
+
+        PathPattern p1 = mock(PathPattern.class);
+        PathPattern p2 = PathPatterns.fromString("/a/b");
+        PathPattern p3 = mock(PathPattern.class);
+        when(p3.matches(path.parts, CONTEXT)).thenReturn(true);
+
+        PatternGroup patternGroup = new TriePatternGroup(ImmutableList.of(p1, p2, p3));
+        Optional<PathPattern> pattern = patternGroup.lookup(path, CONTEXT);
+
+        // p3 is registered after the matching compiled pattern, so it must not be queried at all
+        verify(p1).matches(path.parts, CONTEXT);
+        verifyZeroInteractions(p3);
+        assertEquals(p2, pattern.get());
+    }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2013 Vladimir Matveev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package org.bitbucket.googolplex.devourer.paths.patterns.groups;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.bitbucket.googolplex.devourer.contexts.namespaces.NamespaceContext;
+import org.bitbucket.googolplex.devourer.paths.ExactPath;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPattern;
+import org.bitbucket.googolplex.devourer.paths.patterns.PathPatterns;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class TwoLevelCachingPatternGroupTest {
+    @Test
+    public void testLookupsAreCached() throws Exception {
+        ExactPath path1 = ExactPath.fromString("/a/b/c");
+        ExactPath path2 = ExactPath.fromString("/d/e/f");
+        NamespaceContext context = mock(NamespaceContext.class);
+        PathPattern pattern = mock(PathPattern.class);
+
+        PatternGroup inner = mock(PatternGroup.class);
+        when(inner.lookup(path1, context)).thenReturn(Optional.<PathPattern>absent());
+        when(inner.lookup(path2, context)).thenReturn(Optional.of(pattern));
+
+        TwoLevelCachingPatternGroup patternGroup = new TwoLevelCachingPatternGroup(inner, 64, 100);
+        assertFalse(patternGroup.lookup(path1, context).isPresent());
+        assertFalse(patternGroup.lookup(ExactPath.fromString("/a/b/c"), context).isPresent());
+        assertEquals(pattern, patternGroup.lookup(path2, context).get());
+        assertEquals(pattern, patternGroup.lookup(path2, context).get());
+
+        verify(inner).lookup(path1, context);
+        verify(inner).lookup(path2, context);
+        verifyNoMoreInteractions(inner);
+
+        PatternCacheStats stats = patternGroup.stats();
+        assertEquals(2, stats.localHitCount);
+        assertEquals(0, stats.sharedHitCount);
+        assertEquals(2, stats.missCount);
+        assertEquals(2, stats.size);
+        assertEquals(0.5, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testSharedCacheServesOtherThreads() throws Exception {
+        final ExactPath path = ExactPath.fromString("/a/b");
+        final NamespaceContext context = NamespaceContext.empty();
+        PatternGroup inner = mock(PatternGroup.class);
+        when(inner.lookup(path, context)).thenReturn(Optional.<PathPattern>absent());
+
+        final TwoLevelCachingPatternGroup patternGroup = new TwoLevelCachingPatternGroup(inner, 64, 100);
+        patternGroup.lookup(path, context);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    patternGroup.lookup(path, context);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNull(failure.get());
+        verify(inner, times(1)).lookup(path, context);
+        assertEquals(1, patternGroup.stats().sharedHitCount);
+    }
+
+    @Test
+    public void testNamespaceContextIsPartOfTheKey() throws Exception {
+        PatternGroup inner = PatternGroups.trieGroup(ImmutableList.of(PathPatterns.fromString("/a/p:b")));
+        TwoLevelCachingPatternGroup patternGroup = new TwoLevelCachingPatternGroup(inner, 64, 100);
+        ExactPath path = ExactPath.fromString("/a/{urn:x}b");
+
+        assertTrue(patternGroup.lookup(path, NamespaceContext.fromItems("urn:x", "p")).isPresent());
+        assertFalse(patternGroup.lookup(path, NamespaceContext.fromItems("urn:y", "p")).isPresent());
+        // Equal contexts share cached results
+        assertFalse(patternGroup.lookup(path, NamespaceContext.fromItems("urn:y", "p")).isPresent());
+        assertEquals(2, patternGroup.stats().missCount);
+    }
+
+    @Test
+    public void testSharedCacheIsBounded() throws Exception {
+        PatternGroup inner = PatternGroups.trieGroup(ImmutableList.of(PathPatterns.fromString("/a/**")));
+        TwoLevelCachingPatternGroup patternGroup = new TwoLevelCachingPatternGroup(inner, 1, 10);
+        NamespaceContext context = NamespaceContext.empty();
+
+        for (int i = 0; i < 1000; ++i) {
+            assertTrue(patternGroup.lookup(ExactPath.fromString("/a/n" + i), context).isPresent());
+        }
+
+        PatternCacheStats stats = patternGroup.stats();
+        assertEquals(10, stats.size);
+        assertEquals(990, stats.evictionCount);
+        assertEquals(1000, stats.missCount);
+    }
+}
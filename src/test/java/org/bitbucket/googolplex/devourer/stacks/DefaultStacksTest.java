@@ -27,7 +27,7 @@ public class DefaultStacksTest {
         stacks.push("123");
 
         assertEquals(Optional.of("123"), stacks.<String>tryPop());
-        assertEquals(123, stacks.pop());
+        assertEquals((Object) 123, stacks.pop());
     }
 
     @Test
@@ -44,8 +44,8 @@ public class DefaultStacksTest {
 
         assertEquals(Optional.of(234.2), stacks.get("stack2").<Double>tryPop());
         assertEquals(Optional.of("abcd"), stacks.get("stack1").<String>tryPop());
-        assertEquals(945, stacks.get("stack2").pop());
-        assertEquals(123, stacks.get("stack1").pop());
+        assertEquals((Object) 945, stacks.get("stack2").pop());
+        assertEquals((Object) 123, stacks.get("stack1").pop());
     }
 
     @Test
@@ -55,11 +55,11 @@ public class DefaultStacksTest {
         stacks.push(123);
         stacks.push(123.5);
 
-        assertEquals(123.5, stacks.peek());
-        assertEquals(123.5, stacks.peek());
-        assertEquals(123.5, stacks.pop());
-        assertEquals(123, stacks.peek());
-        assertEquals(123, stacks.peek());
+        assertEquals((Object) 123.5, stacks.peek());
+        assertEquals((Object) 123.5, stacks.peek());
+        assertEquals((Object) 123.5, stacks.pop());
+        assertEquals((Object) 123, stacks.peek());
+        assertEquals((Object) 123, stacks.peek());
     }
 
     @Test
@@ -71,14 +71,14 @@ public class DefaultStacksTest {
         stacks.get("stack2").push(753);
         stacks.get("stack2").push(356);
 
-        assertEquals(345, stacks.get("stack1").peek());
-        assertEquals(345, stacks.get("stack1").peek());
-        assertEquals(356, stacks.get("stack2").peek());
-        assertEquals(356, stacks.get("stack2").peek());
-        assertEquals(345, stacks.get("stack1").pop());
-        assertEquals(356, stacks.get("stack2").pop());
-        assertEquals(123, stacks.get("stack1").peek());
-        assertEquals(753, stacks.get("stack2").pop());
+        assertEquals((Object) 345, stacks.get("stack1").peek());
+        assertEquals((Object) 345, stacks.get("stack1").peek());
+        assertEquals((Object) 356, stacks.get("stack2").peek());
+        assertEquals((Object) 356, stacks.get("stack2").peek());
+        assertEquals((Object) 345, stacks.get("stack1").pop());
+        assertEquals((Object) 356, stacks.get("stack2").pop());
+        assertEquals((Object) 123, stacks.get("stack1").peek());
+        assertEquals((Object) 753, stacks.get("stack2").pop());
     }
 
     @Test